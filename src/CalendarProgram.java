@@ -1,10 +1,21 @@
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
 import controller.CalendarController;
 import controller.CalendarControllerImpl;
+import controller.CalendarRouter;
+import controller.CalendarServer;
+import controller.ShardServer;
 import model.CalendarModel;
 import model.CalendarModelImpl;
+import model.CalendarRegistry;
+import model.ZonedCalendarModel;
 import view.CalendarView;
 import view.CalendarViewImpl;
 
@@ -13,33 +24,180 @@ import view.CalendarViewImpl;
  */
 public class CalendarProgram {
 
+  // the default estimated heap that a registry's loaded calendars may use, in bytes
+  private static final long DEFAULT_HEAP_BUDGET = 256L * 1024 * 1024;
+
   /**
-   * The Main method to run the program.
+   * The Main method to run the program. Adding "--calendars <directory>" hosts many named
+   * calendars stored in that directory instead of a single calendar, optionally followed by
+   * "--heap-budget <bytes>" to limit how much memory the loaded calendars may use. Running
+   * "--mode server <port>" instead serves one calendar to many clients over local connections.
+   * Adding "--zone <zoneId>" to either a single calendar or a server stores times in UTC while
+   * taking and showing them in the given time zone. In a cluster, "--mode shard <port>" with
+   * "--calendars <directory>" serves one shard of the cluster's calendars, and
+   * "--mode router <port> --shards <host:port>,..." serves users the calendars of those shards.
    * @param args the input command
    */
   public static void main(String[] args) {
-    CalendarModel model = new CalendarModelImpl();
     CalendarView view = new CalendarViewImpl(System.out);
+    CalendarRegistry calendars = createRegistry(args);
     CalendarController controller;
 
     if (args[0].equals("--mode")) {
+      Readable input;
       switch ( args[1] ) {
         case "interactive":
-          controller = new CalendarControllerImpl(model, new InputStreamReader(System.in), view);
+          input = new InputStreamReader(System.in);
           break;
         case "headless":
-          FileReader reader;
           try {
-            reader = new FileReader(args[2]);
+            input = new FileReader(args[2]);
           } catch (IOException e) {
             throw new IllegalArgumentException("The file entered in headless mode was not found.");
           }
-          controller = new CalendarControllerImpl(model, reader, view);
           break;
+        case "server":
+          serve(args);
+          return;
+        case "shard":
+          serveShard(args, calendars);
+          return;
+        case "router":
+          route(args);
+          return;
         default:
           throw new IllegalArgumentException( args[1] + " is not a recognized run mode.");
       }
+
+      if (calendars == null) {
+        CalendarModel model = createCalendar(args);
+        controller = new CalendarControllerImpl(model, input, view);
+      } else {
+        controller = new CalendarControllerImpl(calendars, "default", input, view);
+      }
       controller.control();
+
+      if (calendars != null) {
+        calendars.flush();
+      }
+    }
+  }
+
+  /**
+   * Serve one shared calendar to any number of clients connecting to the port given after
+   * "--mode server", until the process is stopped.
+   * @param args the input command
+   */
+  private static void serve(String[] args) {
+    int port;
+    try {
+      port = Integer.parseInt(args[2]);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Server mode must be given a port to listen on.");
+    }
+    CalendarServer server = new CalendarServer(createCalendar(args), port);
+    System.out.println("Serving the calendar on port " + server.getPort() + ".");
+    server.serve();
+  }
+
+  /**
+   * Serve the calendars of the registry as one shard of a cluster on the port given after
+   * "--mode shard", until the process is stopped. The calendars are written to storage when the
+   * process is stopped.
+   * @param args      the input command
+   * @param calendars the registry holding the shard's calendars
+   */
+  private static void serveShard(String[] args, CalendarRegistry calendars) {
+    if (calendars == null) {
+      throw new IllegalArgumentException("Shard mode must be given a directory with "
+              + "--calendars.");
+    }
+    ShardServer shard = new ShardServer(calendars, parsePort(args));
+    Runtime.getRuntime().addShutdownHook(new Thread(calendars::flush));
+    System.out.println("Serving shard on port " + shard.getPort() + ".");
+    shard.serve();
+  }
+
+  /**
+   * Route users' commands to the shards given after "--shards" from the port given after
+   * "--mode router", until the process is stopped.
+   * @param args the input command
+   */
+  private static void route(String[] args) {
+    List<String> shards = null;
+    for (int i = 0; i < args.length - 1; i++) {
+      if (args[i].equals("--shards")) {
+        shards = Arrays.asList(args[i + 1].split(","));
+      }
+    }
+    if (shards == null) {
+      throw new IllegalArgumentException("Router mode must be given its shards with --shards.");
+    }
+    CalendarRouter router = new CalendarRouter(shards, parsePort(args));
+    System.out.println("Routing to " + shards.size() + " shards on port " + router.getPort()
+            + ".");
+    router.serve();
+  }
+
+  /**
+   * Reads the port given after the run mode.
+   * @param args the input command
+   * @return the port to listen on
+   */
+  private static int parsePort(String[] args) {
+    try {
+      return Integer.parseInt(args[2]);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("The " + args[1] + " mode must be given a port to "
+              + "listen on.");
+    }
+  }
+
+  /**
+   * Creates the single calendar to run, viewed in the time zone given after "--zone" if any.
+   * @param args the input command
+   * @return a new calendar, storing times in UTC if a zone was given
+   */
+  private static CalendarModel createCalendar(String[] args) {
+    for (int i = 0; i < args.length - 1; i++) {
+      if (args[i].equals("--zone")) {
+        try {
+          return new ZonedCalendarModel(new CalendarModelImpl(), ZoneId.of(args[i + 1]));
+        } catch (DateTimeException e) {
+          throw new IllegalArgumentException(args[i + 1] + " is not a recognized time zone.");
+        }
+      }
+    }
+    return new CalendarModelImpl();
+  }
+
+  /**
+   * Creates a registry of named calendars if the arguments ask for one.
+   * @param args the input command
+   * @return the registry described by the arguments, or null if only one calendar is needed
+   */
+  private static CalendarRegistry createRegistry(String[] args) {
+    String directory = null;
+    long heapBudget = DEFAULT_HEAP_BUDGET;
+    for (int i = 0; i < args.length - 1; i++) {
+      switch (args[i]) {
+        case "--calendars":
+          directory = args[i + 1];
+          break;
+        case "--heap-budget":
+          try {
+            heapBudget = Long.parseLong(args[i + 1]);
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The heap budget must be a number of bytes.");
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    if (directory == null) {
+      return null;
     }
+    return new CalendarRegistry(Paths.get(directory), heapBudget);
   }
 }
@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import controller.CalendarRouter;
+
+/**
+ * Measures how a calendar cluster's throughput scales with its number of shards, entirely on
+ * localhost. For each shard count, it starts that many shard processes of CalendarProgram and a
+ * router, has many clients each create events in their own calendar through the router, and
+ * reports the commands handled per second. It then adds one more shard and reports how many
+ * calendars moved to it and how long that took.
+ *
+ * <p>Run it with the same classpath as CalendarProgram, optionally followed by the shard counts
+ * to try, the number of clients, and the number of commands per client, such as
+ * "java ClusterBenchmark 1,2,4 32 500".</p>
+ */
+public class ClusterBenchmark {
+
+  /**
+   * Runs the benchmark.
+   * @param args the shard counts, clients and commands per client, each optional
+   * @throws Exception if the cluster could not be started or a client failed
+   */
+  public static void main(String[] args) throws Exception {
+    String[] shardCounts = (args.length > 0 ? args[0] : "1,2,4").split(",");
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    int commands = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+    System.out.println("shards  commands/s  moved  rebalance ms");
+    for (String count : shardCounts) {
+      run(Integer.parseInt(count), clients, commands);
+    }
+  }
+
+  /**
+   * Measures one cluster with the given number of shards.
+   */
+  private static void run(int shardCount, int clients, int commands) throws Exception {
+    List<Process> processes = new ArrayList<>();
+    try {
+      List<String> shards = new ArrayList<>();
+      for (int i = 0; i < shardCount; i++) {
+        shards.add(startShard(processes));
+      }
+
+      try (CalendarRouter router = new CalendarRouter(shards, 0)) {
+        Thread serving = new Thread(router::serve, "router");
+        serving.setDaemon(true);
+        serving.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> done = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+          int client = c;
+          done.add(pool.submit(() -> {
+            sendCommands(router.getPort(), "tenant-" + client, commands);
+            return null;
+          }));
+        }
+        for (Future<?> f : done) {
+          f.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        String added = startShard(processes);
+        long rebalanceStart = System.nanoTime();
+        int moved = router.addShard(added);
+        long rebalanceMillis = (System.nanoTime() - rebalanceStart) / 1_000_000;
+
+        System.out.printf("%6d  %10.0f  %5d  %12d%n", shardCount,
+                clients * (commands + 1) / seconds, moved, rebalanceMillis);
+      }
+    } finally {
+      for (Process p : processes) {
+        p.destroy();
+      }
+    }
+  }
+
+  /**
+   * Starts one shard process storing its calendars in a new temporary directory.
+   *
+   * @return the "host:port" address of the shard
+   */
+  private static String startShard(List<Process> processes) throws IOException {
+    Path directory = Files.createTempDirectory("shard");
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+            + "java";
+    Process shard = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "CalendarProgram", "--mode", "shard", "0", "--calendars", directory.toString())
+            .redirectErrorStream(true).start();
+    processes.add(shard);
+
+    // the shard prints "Serving shard on port <port>." once it is listening
+    BufferedReader out = new BufferedReader(new InputStreamReader(shard.getInputStream(),
+            StandardCharsets.UTF_8));
+    String line = out.readLine();
+    if (line == null || !line.startsWith("Serving shard on port ")) {
+      throw new IllegalStateException("The shard did not start: " + line);
+    }
+    return "localhost:" + line.replaceAll("\\D", "");
+  }
+
+  /**
+   * Creates the given number of events in the given calendar through the router, then waits
+   * for the router to finish the session.
+   */
+  private static void sendCommands(int port, String calendar, int commands) throws IOException {
+    try (Socket socket = new Socket("localhost", port)) {
+      PrintStream out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+      out.print("use calendar " + calendar + "\n");
+      LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+      for (int i = 0; i < commands; i++) {
+        out.print("create event Meeting from " + start + " to " + start.plusMinutes(30) + "\n");
+        start = start.plusHours(1);
+      }
+      out.print("q\n");
+      out.flush();
+      InputStream in = socket.getInputStream();
+      while (in.read(new byte[8192]) >= 0) {
+        // the router closes the connection once every command has been handled
+      }
+    }
+  }
+}
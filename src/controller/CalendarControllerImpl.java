@@ -1,8 +1,10 @@
 package controller;
 
+import java.util.List;
 import java.util.Scanner;
 
 import model.CalendarModel;
+import model.CalendarRegistry;
 import view.CalendarView;
 
 /**
@@ -11,8 +13,11 @@ import view.CalendarView;
 public class CalendarControllerImpl implements CalendarController {
 
   private final CalendarModel model;
+  private final CalendarRegistry calendars;
   private final Readable input;
   private final CalendarView view;
+  private String activeCalendar;
+  private List<String[]> staged;
 
   /**
    * Constructs a new CalendarControllerImpl with the given non-null model object, view object,
@@ -29,8 +34,36 @@ public class CalendarControllerImpl implements CalendarController {
               "be null.");
     }
     this.model = model;
+    this.calendars = null;
     this.input = input;
     this.view = view;
+    this.activeCalendar = null;
+    this.staged = null;
+  }
+
+  /**
+   * Constructs a new CalendarControllerImpl that works with the named calendars of the given
+   * registry, starting with the given calendar. The "use calendar" command switches which
+   * calendar later commands operate on.
+   *
+   * @param calendars     The CalendarRegistry that holds every calendar this controller can use.
+   * @param firstCalendar The name of the calendar that commands operate on until another is used.
+   * @param input         The readable input stream from which text commands are passed to the
+   *                      calendar.
+   * @param view          The CalendarView that will display output from this calendar.
+   */
+  public CalendarControllerImpl(CalendarRegistry calendars, String firstCalendar,
+                                Readable input, CalendarView view) {
+    if (calendars == null || firstCalendar == null || input == null || view == null) {
+      throw new IllegalArgumentException("The given registry, calendar name, input, and view " +
+              "objects may not be null.");
+    }
+    this.model = null;
+    this.calendars = calendars;
+    this.input = input;
+    this.view = view;
+    this.activeCalendar = firstCalendar;
+    this.staged = null;
   }
 
   /**
@@ -65,7 +98,8 @@ public class CalendarControllerImpl implements CalendarController {
   /**
    * Check that the given input to this calculator is a valid command, then delegate to the
    * corresponding CalendarCommand object to handle it. Input that throws errors does not kill
-   * the program, but displays the error message and then prompts the user again.
+   * the program, but displays the error message and then prompts the user again. While a
+   * transaction is open, create and edit commands are staged to be run when it is committed.
    *
    * @param firstToken The first keyword of the arguments, which specifies the type of the
    *                   command.
@@ -73,33 +107,82 @@ public class CalendarControllerImpl implements CalendarController {
    *
    */
   private void processCommand(String firstToken, Scanner scan) {
-    CalendarCommand cmd;
+    String keyword = firstToken.toLowerCase();
+    if (staged != null && (keyword.equals("create") || keyword.equals("edit"))) {
+      staged.add(new String[] {keyword, scan.nextLine()});
+      return;
+    }
+
+    CalendarCommand cmd = this.commandFor(keyword);
+    if (cmd == null) {
+      view.write("Invalid command given: " + firstToken + " " + System.lineSeparator());
+      throw new IllegalArgumentException("Unrecognized command \"" + firstToken +
+              "\" was found. " + "Please input a valid command to the calendar.");
+    }
+
+    try {
+      if (staged != null && keyword.equals("use")) {
+        throw new IllegalArgumentException("Commit or roll back the open transaction before "
+                + "using another calendar.");
+      }
+      cmd.execute(this.activeModel(), scan.nextLine(), view);
+    } catch (Exception e) {
+      view.write(e.getMessage() + System.lineSeparator());
+      view.write("Please try again:");
+    }
+  }
 
-    switch (firstToken.toLowerCase()) {
+  /**
+   * Finds the CalendarCommand object that handles commands with the given keyword.
+   *
+   * @param keyword The lowercase first keyword of a command.
+   * @return The command for that keyword, or null if the keyword is not recognized.
+   */
+  private CalendarCommand commandFor(String keyword) {
+    switch (keyword) {
       case "create":
-        cmd = new CreateEventCmd();
-        break;
+        return new CreateEventCmd();
       case "edit":
-        cmd = new EditEventCmd();
-        break;
+        return new EditEventCmd();
       case "print":
-        cmd = new PrintCmd();
-        break;
+        return new PrintCmd();
       case "show":
-        cmd = new ShowCmd();
-        break;
+        return new ShowCmd();
+      case "search":
+        return new SearchCmd();
+      case "memory":
+        return new MemoryCmd();
+      case "undo":
+        return new UndoCmd();
+      case "redo":
+        return new RedoCmd();
+      case "checkpoint":
+        return new CheckpointCmd(false);
+      case "restore":
+        return new CheckpointCmd(true);
+      case "use":
+        return new UseCalendarCmd(calendars, name -> this.activeCalendar = name);
+      case "begin":
+      case "commit":
+      case "rollback":
+        return new TransactionCmd(keyword, staged, this::commandFor,
+                commands -> this.staged = commands);
       default:
-        view.write("Invalid command given: " + firstToken + " " + System.lineSeparator());
-        throw new IllegalArgumentException("Unrecognized command \"" + firstToken +
-                "\" was found. " + "Please input a valid command to the calendar.");
+        return null;
     }
+  }
 
-    try {
-      cmd.execute(model, scan.nextLine(), view);
-    } catch (Exception e) {
-      view.write(e.getMessage() + System.lineSeparator());
-      view.write("Please try again:");
+  /**
+   * Returns the calendar that commands should currently operate on. Calendars of a registry are
+   * looked up on every command, since ones not in use may have been evicted from memory.
+   *
+   * @return the active CalendarModel
+   */
+  private CalendarModel activeModel() {
+    if (calendars == null) {
+      return model;
     }
+    return calendars.get(activeCalendar);
   }
 
 }
@@ -0,0 +1,486 @@
+package controller;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import model.CalendarRegistry;
+import view.CalendarView;
+import view.CalendarViewImpl;
+
+/**
+ * Fronts a cluster of ShardServers, each holding some of the cluster's named calendars, so that
+ * users see one calendar program. Calendars are assigned to shards by consistent hashing of
+ * their names, and each user's text commands are forwarded to the shard owning the calendar they
+ * are using. Commands between "begin" and "commit" or "rollback" are forwarded together once the
+ * transaction ends, so the shard runs them as one transaction.
+ *
+ * <p>Adding a shard with {@link #addShard(String)}, or the "add shard &lt;host&gt;:&lt;port&gt;"
+ * command, moves the calendars that now hash to it over from the other shards. Commands wait
+ * while calendars are being moved, so none are lost or sent to the wrong shard.</p>
+ *
+ * <p>The router keeps a small pool of connections to each shard, so the commands of different
+ * users reach a shard side by side rather than queueing behind one connection.</p>
+ */
+public class CalendarRouter implements AutoCloseable {
+
+  // the number of points each shard is placed at on the hash ring
+  private static final int VIRTUAL_NODES = 128;
+
+  // the calendar each user starts with, as in a registry-backed CalendarControllerImpl
+  private static final String FIRST_CALENDAR = "default";
+
+  // the most connections kept open to each shard
+  private static final int CONNECTIONS_PER_SHARD = 8;
+
+  private final ServerSocket socket;
+  private final ExecutorService sessions;
+  private final Map<String, ShardLink> shards;
+  private final ReadWriteLock rebalancing;
+  private volatile HashRing ring;
+
+  /**
+   * Constructs a router for the shards at the given addresses, listening on the given port of
+   * the loopback address.
+   *
+   * @param shardAddresses The "host:port" address of each shard.
+   * @param port           The port to listen on, or 0 to pick any free port.
+   * @throws IllegalArgumentException if no shards are given or an address is not valid
+   * @throws IllegalStateException    if a shard could not be reached or the port could not be
+   *                                  listened on
+   */
+  public CalendarRouter(List<String> shardAddresses, int port) {
+    this.ring = new HashRing(shardAddresses, VIRTUAL_NODES);
+    this.shards = new ConcurrentHashMap<>();
+    for (String address : shardAddresses) {
+      this.shards.put(address, new ShardLink(address));
+    }
+    this.rebalancing = new ReentrantReadWriteLock();
+    try {
+      this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not listen on port " + port + ": " + e.getMessage());
+    }
+    this.sessions = CalendarServer.newSessionExecutor();
+  }
+
+  /**
+   * Returns the port this router is listening on.
+   *
+   * @return the local port number
+   */
+  public int getPort() {
+    return socket.getLocalPort();
+  }
+
+  /**
+   * Returns the address of the shard that owns the named calendar.
+   *
+   * @param calendar The name of a calendar.
+   * @return The "host:port" address of its shard.
+   */
+  public String ownerOf(String calendar) {
+    return ring.owner(calendar);
+  }
+
+  /**
+   * Accept connections until this router is closed, starting a session for each one.
+   */
+  public void serve() {
+    while (!socket.isClosed()) {
+      Socket client;
+      try {
+        client = socket.accept();
+      } catch (IOException e) {
+        // the socket was closed while waiting for a connection
+        break;
+      }
+      sessions.execute(() -> this.runSession(client));
+    }
+  }
+
+  /**
+   * Adds the shard at the given address to the cluster, moving every calendar that now hashes to
+   * it from the shard that held it. Each calendar is copied to the new shard before the new
+   * shard starts receiving its commands, and only deleted from its old shard after that.
+   *
+   * @param address The "host:port" address of the new shard.
+   * @return The number of calendars moved to the new shard.
+   * @throws IllegalArgumentException if the shard is already in the cluster
+   * @throws IllegalStateException    if a shard could not be reached, in which case the
+   *                                  calendars already copied to the new shard are deleted
+   *                                  from it and it is left out of the cluster
+   */
+  public int addShard(String address) {
+    rebalancing.writeLock().lock();
+    try {
+      if (shards.containsKey(address)) {
+        throw new IllegalArgumentException("The shard " + address + " is already in the "
+                + "cluster.");
+      }
+      HashRing grown = ring.with(address);
+      ShardLink added = new ShardLink(address);
+      Map<String, ShardLink> moved = new LinkedHashMap<>();
+      try {
+        for (ShardLink shard : shards.values()) {
+          for (String calendar : shard.request("list", List.of())) {
+            if (grown.owner(calendar).equals(address)) {
+              String data = shard.request("export " + calendar, List.of()).get(0);
+              moved.put(calendar, shard);
+              added.request("import " + calendar + " " + data, List.of());
+            }
+          }
+        }
+      } catch (RuntimeException e) {
+        // the old shards still hold every calendar, so only the copies need undoing
+        for (String calendar : moved.keySet()) {
+          try {
+            added.request("drop " + calendar, List.of());
+          } catch (RuntimeException dropFailed) {
+            e.addSuppressed(dropFailed);
+          }
+        }
+        added.close();
+        throw e;
+      }
+
+      shards.put(address, added);
+      ring = grown;
+      for (Map.Entry<String, ShardLink> entry : moved.entrySet()) {
+        entry.getValue().request("drop " + entry.getKey(), List.of());
+      }
+      return moved.size();
+    } finally {
+      rebalancing.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Run one text session over the given connection until the client quits or disconnects,
+   * forwarding each command to the shard of the calendar in use.
+   *
+   * @param client The connection to read commands from and write output to.
+   */
+  private void runSession(Socket client) {
+    try (Socket connection = client) {
+      CalendarView view = new CalendarViewImpl(new PrintStream(connection.getOutputStream(),
+              true, StandardCharsets.UTF_8));
+      BufferedReader input = new BufferedReader(new InputStreamReader(
+              connection.getInputStream(), StandardCharsets.UTF_8));
+      view.welcome();
+
+      String calendar = FIRST_CALENDAR;
+      List<String> transaction = null;
+      boolean quit = false;
+      String line;
+      while (!quit && (line = input.readLine()) != null) {
+        String[] words = line.trim().split("\\s+");
+        String keyword = words[0].toLowerCase();
+        if (keyword.isEmpty()) {
+          continue;
+        }
+        if (keyword.equals("q") || keyword.equals("quit")) {
+          quit = true;
+        } else if (transaction != null) {
+          transaction.add(line);
+          if (keyword.equals("commit") || keyword.equals("rollback")) {
+            this.forward(calendar, transaction, view);
+            transaction = null;
+          }
+        } else if (keyword.equals("begin")) {
+          transaction = new ArrayList<>(List.of(line));
+        } else if (keyword.equals("menu")) {
+          view.showMenu();
+        } else if (keyword.equals("add") && words.length == 3
+                && words[1].equalsIgnoreCase("shard")) {
+          this.addShard(words[2], view);
+        } else if (keyword.equals("use") && words.length == 3
+                && words[1].equalsIgnoreCase("calendar")
+                && CalendarRegistry.isValidName(words[2])) {
+          calendar = words[2];
+          this.forward(calendar, List.of(line), view);
+        } else {
+          this.forward(calendar, List.of(line), view);
+        }
+      }
+      if (!quit) {
+        view.write("Did not provide an exit command.");
+      }
+    } catch (Exception e) {
+      // a failed session only ends that client's connection
+    }
+  }
+
+  /**
+   * Runs the given commands on the shard owning the given calendar, writing their output.
+   *
+   * @param calendar The name of the calendar the commands operate on.
+   * @param commands The command lines to run.
+   * @param view     The view to write the output to.
+   */
+  private void forward(String calendar, List<String> commands, CalendarView view) {
+    List<String> output;
+    rebalancing.readLock().lock();
+    try {
+      output = shards.get(ring.owner(calendar)).request("run " + calendar + " "
+              + commands.size(), commands);
+    } catch (IllegalStateException e) {
+      view.write(e.getMessage() + System.lineSeparator());
+      view.write("Please try again:");
+      return;
+    } finally {
+      rebalancing.readLock().unlock();
+    }
+    for (String line : output) {
+      view.write(line + System.lineSeparator());
+    }
+  }
+
+  /**
+   * Adds the shard at the given address, telling the user how many calendars were moved.
+   *
+   * @param address The "host:port" address of the new shard.
+   * @param view    The view to write the outcome to.
+   */
+  private void addShard(String address, CalendarView view) {
+    try {
+      int moved = this.addShard(address);
+      view.write("Added shard " + address + " and moved " + moved + " calendars to it."
+              + System.lineSeparator());
+    } catch (RuntimeException e) {
+      view.write(e.getMessage() + System.lineSeparator());
+      view.write("Please try again:");
+    }
+  }
+
+  /**
+   * Stop accepting connections, end running sessions and disconnect from the shards.
+   */
+  @Override
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    sessions.shutdownNow();
+    for (ShardLink shard : shards.values()) {
+      shard.close();
+    }
+  }
+
+  /**
+   * The connections from this router to one shard. Each connection carries one request at a
+   * time, so a request borrows an idle connection, or opens a new one while there are fewer
+   * than CONNECTIONS_PER_SHARD, and waits for one to be returned otherwise. A connection that
+   * fails is closed and replaced by a new one when next needed.
+   */
+  private static class ShardLink {
+
+    private final String address;
+    private final String host;
+    private final int port;
+    private final Deque<Connection> idle;
+    private int open;
+    private boolean closed;
+
+    /**
+     * Connects to the shard at the given address.
+     *
+     * @param address The "host:port" address of the shard.
+     * @throws IllegalArgumentException if the address is not valid
+     * @throws IllegalStateException    if the shard could not be reached
+     */
+    private ShardLink(String address) {
+      int colon = address.lastIndexOf(':');
+      try {
+        this.port = Integer.parseInt(address.substring(colon + 1));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Shard addresses must be given as <host>:<port>.");
+      }
+      this.address = address;
+      this.host = address.substring(0, Math.max(colon, 0));
+      this.idle = new ArrayDeque<>();
+      this.idle.push(this.connect());
+      this.open = 1;
+      this.closed = false;
+    }
+
+    /**
+     * Sends a request to the shard over a connection of its own and waits for the response.
+     *
+     * @param request The request line.
+     * @param body    The lines the request announces.
+     * @return The lines of the response.
+     * @throws IllegalStateException if the shard could not be reached or the request failed
+     */
+    private List<String> request(String request, List<String> body) {
+      Connection connection = this.borrow();
+      boolean broken = true;
+      try {
+        List<String> response = connection.request(request, body);
+        broken = false;
+        return response;
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not reach the shard " + address + ": "
+                + e.getMessage());
+      } catch (IllegalStateException e) {
+        // the shard answered that the request failed, so the connection is still usable
+        broken = false;
+        throw e;
+      } finally {
+        this.giveBack(connection, broken);
+      }
+    }
+
+    /**
+     * Takes an idle connection, opening a new one if there is room, or waits for one.
+     */
+    private Connection borrow() {
+      synchronized (this) {
+        while (idle.isEmpty() && open >= CONNECTIONS_PER_SHARD && !closed) {
+          try {
+            this.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shard "
+                    + address + ".");
+          }
+        }
+        if (closed) {
+          throw new IllegalStateException("The connection to the shard " + address
+                  + " was closed.");
+        }
+        if (!idle.isEmpty()) {
+          return idle.pop();
+        }
+        open++;
+      }
+      try {
+        return this.connect();
+      } catch (RuntimeException e) {
+        this.giveBack(null, true);
+        throw e;
+      }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool, or closes it if it failed or the pool was
+     * closed, and wakes a request waiting for a connection.
+     */
+    private synchronized void giveBack(Connection connection, boolean broken) {
+      if (broken || closed) {
+        open--;
+        if (connection != null) {
+          connection.close();
+        }
+      } else {
+        idle.push(connection);
+      }
+      this.notifyAll();
+    }
+
+    /**
+     * Opens a new connection to the shard.
+     */
+    private Connection connect() {
+      try {
+        return new Connection(new Socket(host, port));
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not reach the shard " + address + ": "
+                + e.getMessage());
+      }
+    }
+
+    /**
+     * Disconnects from the shard, closing idle connections now and the others once their
+     * requests are answered.
+     */
+    private synchronized void close() {
+      closed = true;
+      while (!idle.isEmpty()) {
+        open--;
+        idle.pop().close();
+      }
+      this.notifyAll();
+    }
+  }
+
+  /**
+   * One connection from this router to a shard, which carries one request at a time.
+   */
+  private static class Connection {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    /**
+     * Sets up the given socket connected to a shard.
+     *
+     * @param socket The connected socket.
+     * @throws IOException if the socket's streams could not be opened
+     */
+    private Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      try {
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+        this.out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false,
+                StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        this.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Sends a request to the shard and waits for its response.
+     *
+     * @param request The request line.
+     * @param body    The lines the request announces.
+     * @return The lines of the response.
+     * @throws IOException           if the shard could not be reached
+     * @throws IllegalStateException if the shard reported that the request failed
+     */
+    private List<String> request(String request, List<String> body) throws IOException {
+      out.print(request + "\n");
+      for (String line : body) {
+        out.print(line + "\n");
+      }
+      out.flush();
+      if (out.checkError()) {
+        throw new IOException("The request could not be sent.");
+      }
+      return ShardServer.readResponse(in);
+    }
+
+    /**
+     * Disconnects from the shard.
+     */
+    private void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // the connection is being abandoned either way
+      }
+    }
+  }
+}
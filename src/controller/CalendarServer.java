@@ -0,0 +1,121 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.CalendarModel;
+import model.SynchronizedCalendarModel;
+import view.CalendarView;
+import view.CalendarViewImpl;
+
+/**
+ * Serves one calendar to many clients over local TCP connections. Each connection gets its own
+ * text session, run by a CalendarControllerImpl with a view that writes back to that connection,
+ * and every session shares the same thread-safe calendar. Sessions run on virtual threads when
+ * the Java runtime provides them, and on pooled platform threads otherwise.
+ */
+public class CalendarServer implements AutoCloseable {
+
+  private final CalendarModel model;
+  private final ServerSocket socket;
+  private final ExecutorService sessions;
+
+  /**
+   * Constructs a server for the given calendar listening on the given port of the loopback
+   * address. The calendar is wrapped so that sessions can safely share it.
+   *
+   * @param model The CalendarModel that every session operates on.
+   * @param port  The port to listen on, or 0 to pick any free port.
+   * @throws IllegalArgumentException if the model is null
+   * @throws IllegalStateException    if the port could not be listened on
+   */
+  public CalendarServer(CalendarModel model, int port) {
+    if (model == null) {
+      throw new IllegalArgumentException("The given calendar may not be null.");
+    }
+    this.model = new SynchronizedCalendarModel(model);
+    try {
+      this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not listen on port " + port + ": " + e.getMessage());
+    }
+    this.sessions = newSessionExecutor();
+  }
+
+  /**
+   * Returns the port this server is listening on.
+   *
+   * @return the local port number
+   */
+  public int getPort() {
+    return socket.getLocalPort();
+  }
+
+  /**
+   * Accept connections until this server is closed, starting a session for each one.
+   */
+  public void serve() {
+    while (!socket.isClosed()) {
+      Socket client;
+      try {
+        client = socket.accept();
+      } catch (IOException e) {
+        // the socket was closed while waiting for a connection
+        break;
+      }
+      sessions.execute(() -> this.runSession(client));
+    }
+  }
+
+  /**
+   * Run one text session over the given connection until the client quits or disconnects.
+   *
+   * @param client The connection to read commands from and write output to.
+   */
+  private void runSession(Socket client) {
+    try (Socket connection = client) {
+      CalendarView view = new CalendarViewImpl(new PrintStream(connection.getOutputStream(),
+              true, StandardCharsets.UTF_8));
+      Readable input = new InputStreamReader(connection.getInputStream(),
+              StandardCharsets.UTF_8);
+      new CalendarControllerImpl(model, input, view).control();
+    } catch (Exception e) {
+      // a failed session only ends that client's connection
+    }
+  }
+
+  /**
+   * Stop accepting connections and stop waiting on sessions that are still running.
+   */
+  @Override
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    sessions.shutdownNow();
+  }
+
+  /**
+   * Creates an executor that starts a virtual thread per session if the runtime supports them,
+   * falling back to a cached pool of platform threads.
+   *
+   * @return the executor to run sessions on
+   */
+  static ExecutorService newSessionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+              .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package controller;
+
+import java.util.Scanner;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to save the calendar's current events as a named checkpoint, or to bring the calendar
+ * back to a checkpoint saved before.
+ */
+public class CheckpointCmd implements CalendarCommand {
+
+  private final boolean restore;
+
+  /**
+   * Constructs a command that either saves or restores checkpoints.
+   *
+   * @param restore True to restore the named checkpoint, false to save it.
+   */
+  public CheckpointCmd(boolean restore) {
+    this.restore = restore;
+  }
+
+  /**
+   * Execute this command by saving or restoring the checkpoint named in the rest of the
+   * arguments, then telling the user.
+   *
+   * @param model             The CalendarModel to operate on.
+   * @param restOfCommand     The rest of the command-line arguments following the keyword of this
+   *                          command.
+   * @param view              The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    Scanner scan = new Scanner(restOfCommand);
+    if (!scan.hasNext()) {
+      throw new IllegalArgumentException("Checkpoint commands must be formatted as 'checkpoint "
+              + "<name>' or 'restore <name>'.");
+    }
+    String name = scan.next();
+
+    if (restore) {
+      model.restoreCheckpoint(name);
+      view.write("Restored checkpoint " + name + "." + System.lineSeparator());
+    } else {
+      model.checkpoint(name);
+      view.write("Saved checkpoint " + name + "." + System.lineSeparator());
+    }
+  }
+}
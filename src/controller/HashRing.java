@@ -0,0 +1,103 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns keys to nodes by consistent hashing. Each node is placed at many points, its virtual
+ * nodes, on a ring of 64-bit hashes, and a key belongs to the node of the first point at or
+ * after the key's hash, wrapping around. The many points spread keys evenly, and adding a node
+ * only moves keys from other nodes to the new one, about one in every (nodes + 1) of them.
+ * Hashes are taken from MD5, so every process assigns the same keys to the same nodes. Rings
+ * are immutable.
+ */
+public final class HashRing {
+
+  private final TreeMap<Long, String> points;
+
+  private final List<String> nodes;
+
+  private final int virtualNodes;
+
+  /**
+   * Constructs a ring of the given nodes.
+   *
+   * @param nodes        the names of the nodes, such as shard addresses
+   * @param virtualNodes the number of points each node is placed at
+   * @throws IllegalArgumentException if there are no nodes, a node is repeated, or the number of
+   *                                  virtual nodes is not positive
+   */
+  public HashRing(List<String> nodes, int virtualNodes) throws IllegalArgumentException {
+    if (nodes == null || nodes.isEmpty() || virtualNodes <= 0) {
+      throw new IllegalArgumentException("A hash ring needs at least one node and a positive "
+              + "number of virtual nodes.");
+    }
+    this.points = new TreeMap<>();
+    this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+    this.virtualNodes = virtualNodes;
+    for (String node : nodes) {
+      if (node == null || this.nodes.indexOf(node) != this.nodes.lastIndexOf(node)) {
+        throw new IllegalArgumentException("Every node of a hash ring must be named once.");
+      }
+      for (int i = 0; i < virtualNodes; i++) {
+        this.points.put(hash(node + "#" + i), node);
+      }
+    }
+  }
+
+  /**
+   * Returns a ring with every node of this ring and the given one.
+   *
+   * @param node the node to add
+   * @return the new ring
+   * @throws IllegalArgumentException if the node is already in this ring
+   */
+  public HashRing with(String node) throws IllegalArgumentException {
+    List<String> more = new ArrayList<>(this.nodes);
+    more.add(node);
+    return new HashRing(more, this.virtualNodes);
+  }
+
+  /**
+   * Returns the nodes of this ring.
+   *
+   * @return the nodes, in the order they were added
+   */
+  public List<String> nodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Finds the node the given key belongs to.
+   *
+   * @param key the key to look up, such as a calendar name
+   * @return the node that owns the key
+   */
+  public String owner(String key) {
+    Map.Entry<Long, String> point = this.points.ceilingEntry(hash(key));
+    return point != null ? point.getValue() : this.points.firstEntry().getValue();
+  }
+
+  /**
+   * Hashes the given text to a point on the ring.
+   */
+  private static long hash(String text) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not available: " + e.getMessage());
+    }
+    long point = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      point = (point << 8) | (digest[i] & 0xff);
+    }
+    return point;
+  }
+}
@@ -0,0 +1,31 @@
+package controller;
+
+import java.util.Map;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to print an estimate of how much memory the calendar takes up, broken down by what it
+ * is spent on, along with its numbers of events and series.
+ */
+public class MemoryCmd implements CalendarCommand {
+
+  /**
+   * Execute this command by having the given view print each line of the calendar's memory
+   * usage as "name: value".
+   *
+   * @param model         The CalendarModel to operate on.
+   * @param restOfCommand The rest of the command-line arguments following the keyword of this
+   *                      command, which should be empty.
+   * @param view          The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    if (!restOfCommand.isBlank()) {
+      throw new IllegalArgumentException("Memory commands must be given as just 'memory'.");
+    }
+    for (Map.Entry<String, Long> entry : model.getMemoryUsage().entrySet()) {
+      view.write(entry.getKey() + ": " + entry.getValue() + System.lineSeparator());
+    }
+  }
+}
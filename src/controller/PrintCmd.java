@@ -1,14 +1,49 @@
 package controller;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
 
 import model.CalendarModel;
+import model.SchedulePage;
 import view.CalendarView;
 
 /**
- * Command to print the user's schedule for a specified range to the output.
+ * Command to print the user's schedule for a specified range to the output. Schedules over a
+ * range of times are retrieved and printed one page at a time, so printing a wide range never
+ * holds more than a page of events. The range may be followed by filters such as
+ * 'location online', 'status private', 'subject "Team m"' or 'duration 30', which the calendar
+ * applies before building any results, so only the matching events are printed.
  */
-public class PrintCmd implements CalendarCommand {
+public class PrintCmd extends MultiWordEventCommand {
+
+  /**
+   * The number of events retrieved per page unless another page size is given.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  private final int pageSize;
+
+  /**
+   * Constructs a print command that retrieves schedules in pages of the default size.
+   */
+  public PrintCmd() {
+    this(DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Constructs a print command that retrieves schedules over a range of times in pages of at
+   * most the given number of events.
+   *
+   * @param pageSize The largest number of events to retrieve at once.
+   * @throws IllegalArgumentException if the page size is not positive
+   */
+  public PrintCmd(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("A page must hold at least one event.");
+    }
+    this.pageSize = pageSize;
+  }
 
   /**
    * Execute this command using the given calendar, searching the rest of the arguments for the
@@ -28,13 +63,29 @@ public class PrintCmd implements CalendarCommand {
 
     switch (scan.next().toLowerCase()) {
       case "on":
-        view.formatSchedule(model.getSchedule(scan.next()));
+        String day = scan.next();
+        Map<String, String> dayFilters = this.scanFilters(scan);
+        if (dayFilters.isEmpty()) {
+          view.formatSchedule(model.getSchedule(day));
+        } else {
+          view.formatSchedule(model.getSchedule(day + "T00:00", day + "T23:59", dayFilters));
+        }
         return;
       case "from":
         String from = scan.next();
         if (scan.next().equals("to")) {
           String to = scan.next();
-          view.formatSchedule(model.getSchedule(from, to));
+          Map<String, String> filters = this.scanFilters(scan);
+          if (!filters.isEmpty()) {
+            view.formatSchedule(model.getSchedule(from, to, filters));
+            return;
+          }
+          String cursor = null;
+          do {
+            SchedulePage page = model.getSchedulePage(from, to, cursor, this.pageSize);
+            view.formatSchedule(page.getItems());
+            cursor = page.getCursor();
+          } while (cursor != null);
           return;
         }
         break;
@@ -44,4 +95,23 @@ public class PrintCmd implements CalendarCommand {
 
     }
   }
+
+  /**
+   * Reads the filters following the range, each a property followed by its value, which may be
+   * several words in double quotes.
+   *
+   * @param scan the scanner positioned just after the range
+   * @return the filters in the order given, empty if there are none
+   */
+  private Map<String, String> scanFilters(Scanner scan) {
+    Map<String, String> filters = new LinkedHashMap<>();
+    while (scan.hasNext()) {
+      String property = scan.next().toLowerCase();
+      if (!scan.hasNext()) {
+        throw new IllegalArgumentException("No value was given to filter by " + property + ".");
+      }
+      filters.put(property, this.scanForQuotedInput(scan.next(), scan));
+    }
+    return filters;
+  }
 }
@@ -0,0 +1,27 @@
+package controller;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to reapply the most recently undone change to the calendar's events.
+ */
+public class RedoCmd implements CalendarCommand {
+
+  /**
+   * Execute this command by redoing the calendar's most recently undone change and telling the
+   * user.
+   *
+   * @param model             The CalendarModel to operate on.
+   * @param restOfCommand     The rest of the command-line arguments following the keyword of this
+   *                          command, which should be empty.
+   * @param view              The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    if (!restOfCommand.isBlank()) {
+      throw new IllegalArgumentException("Redo commands must be given as just 'redo'.");
+    }
+    model.redo();
+    view.write("Redid the last undone change." + System.lineSeparator());
+  }
+}
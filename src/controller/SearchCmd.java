@@ -0,0 +1,49 @@
+package controller;
+
+import java.util.Scanner;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to print the events whose subject or description contains the given words, optionally
+ * limited to a time range.
+ */
+public class SearchCmd implements CalendarCommand {
+
+  /**
+   * Execute this command using the given calendar, reading the words to search for up to an
+   * optional "from <dateTime> to <dateTime>" range, and then have the given view object display
+   * the matching events.
+   *
+   * @param model         The CalendarModel to operate on.
+   * @param restOfCommand The rest of the command-line arguments following the keyword of this
+   *                      command.
+   * @param view          The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    Scanner scan = new Scanner(restOfCommand);
+    StringBuilder query = new StringBuilder();
+    String from = null;
+    String to = null;
+    while (scan.hasNext()) {
+      String word = scan.next();
+      if (word.equalsIgnoreCase("from")) {
+        from = scan.hasNext() ? scan.next() : null;
+        if (from == null || !scan.hasNext() || !scan.next().equalsIgnoreCase("to")
+                || !scan.hasNext()) {
+          throw new IllegalArgumentException("Search commands must be formatted as 'search "
+                  + "<words>' or 'search <words> from <dateTime> to <dateTime>'.");
+        }
+        to = scan.next();
+        break;
+      }
+      query.append(word).append(" ");
+    }
+    if (query.length() == 0) {
+      throw new IllegalArgumentException("Must specify at least one word to search for.");
+    }
+
+    view.formatSchedule(model.search(query.toString().trim(), from, to));
+  }
+}
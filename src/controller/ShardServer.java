@@ -0,0 +1,290 @@
+package controller;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import model.CalendarRegistry;
+import view.CalendarView;
+import view.CalendarViewImpl;
+
+/**
+ * Serves one shard of a calendar cluster: the named calendars of a registry, reached through a
+ * CalendarRouter rather than by users directly. Each request is one line, possibly followed by
+ * more lines it announces, and each response is any number of lines followed by a line holding
+ * just ".". Response lines that start with "." or "!" have a "." put in front of them, and a
+ * response line starting with "!" reports that the request failed. The requests are:
+ *
+ * <ul>
+ *   <li>"run &lt;calendar&gt; &lt;n&gt;" followed by n command lines, which runs the commands
+ *   against the named calendar as one text session and responds with their output</li>
+ *   <li>"list", which responds with the name of each calendar of the shard</li>
+ *   <li>"export &lt;calendar&gt;", which responds with the stored form of the calendar in
+ *   base64</li>
+ *   <li>"import &lt;calendar&gt; &lt;base64&gt;", which replaces the calendar with the given
+ *   stored form</li>
+ *   <li>"drop &lt;calendar&gt;", which deletes the calendar</li>
+ * </ul>
+ *
+ * <p>Requests from different connections are handled side by side. The registry runs each
+ * operation on its calendars one at a time, so the commands of different connections may
+ * interleave, but each command sees and leaves its calendar whole.</p>
+ */
+public class ShardServer implements AutoCloseable {
+
+  private final CalendarRegistry calendars;
+  private final ServerSocket socket;
+  private final ExecutorService connections;
+
+  /**
+   * Constructs a server for the given calendars listening on the given port of the loopback
+   * address.
+   *
+   * @param calendars The registry holding the calendars of this shard.
+   * @param port      The port to listen on, or 0 to pick any free port.
+   * @throws IllegalArgumentException if the registry is null
+   * @throws IllegalStateException    if the port could not be listened on
+   */
+  public ShardServer(CalendarRegistry calendars, int port) {
+    if (calendars == null) {
+      throw new IllegalArgumentException("The given registry may not be null.");
+    }
+    this.calendars = calendars;
+    try {
+      this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not listen on port " + port + ": " + e.getMessage());
+    }
+    this.connections = CalendarServer.newSessionExecutor();
+  }
+
+  /**
+   * Returns the port this server is listening on.
+   *
+   * @return the local port number
+   */
+  public int getPort() {
+    return socket.getLocalPort();
+  }
+
+  /**
+   * Accept connections until this server is closed, answering the requests of each one.
+   */
+  public void serve() {
+    while (!socket.isClosed()) {
+      Socket client;
+      try {
+        client = socket.accept();
+      } catch (IOException e) {
+        // the socket was closed while waiting for a connection
+        break;
+      }
+      connections.execute(() -> this.answer(client));
+    }
+  }
+
+  /**
+   * Answer the requests sent over the given connection until it is closed.
+   *
+   * @param client The connection to read requests from and write responses to.
+   */
+  private void answer(Socket client) {
+    try (Socket connection = client) {
+      BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+              StandardCharsets.UTF_8));
+      connection.setTcpNoDelay(true);
+      PrintStream out = new PrintStream(new BufferedOutputStream(connection.getOutputStream()),
+              false, StandardCharsets.UTF_8);
+      String request;
+      while ((request = in.readLine()) != null) {
+        String[] words = request.trim().split(" ");
+        List<String> response;
+        try {
+          if (words[0].equals("run") && words.length == 3) {
+            List<String> commands = new ArrayList<>();
+            int count = Integer.parseInt(words[2]);
+            for (int i = 0; i < count; i++) {
+              commands.add(in.readLine());
+            }
+            response = this.run(words[1], commands);
+          } else {
+            response = this.administer(words);
+          }
+        } catch (RuntimeException e) {
+          writeFailure(out, e.getMessage());
+          continue;
+        }
+        writeResponse(out, response);
+      }
+    } catch (Exception e) {
+      // a failed connection only ends that connection
+    }
+  }
+
+  /**
+   * Runs the given command lines against the named calendar as one text session.
+   *
+   * @param calendar The name of the calendar to run the commands against.
+   * @param commands The command lines to run.
+   * @return The lines of output of the commands.
+   */
+  private List<String> run(String calendar, List<String> commands) {
+    StringBuilder output = new StringBuilder();
+    CalendarView view = new SessionView(output);
+    Readable input = new StringReader(String.join(System.lineSeparator(), commands)
+            + System.lineSeparator() + "q");
+    try {
+      new CalendarControllerImpl(calendars, calendar, input, view).control();
+    } catch (IllegalArgumentException e) {
+      // the controller gives up on an unrecognized command after reporting it
+      output.append(e.getMessage());
+    }
+    return output.toString().lines().toList();
+  }
+
+  /**
+   * Answers a request to list, export, import or drop calendars.
+   *
+   * @param words The words of the request.
+   * @return The lines of the response.
+   * @throws IllegalArgumentException if the request is not recognized
+   */
+  private List<String> administer(String[] words) {
+    synchronized (calendars) {
+      switch (words[0] + " " + words.length) {
+        case "list 1":
+          return new ArrayList<>(calendars.names());
+        case "export 2":
+          return List.of(Base64.getEncoder().encodeToString(calendars.exportCalendar(words[1])));
+        case "import 3":
+          calendars.importCalendar(words[1], Base64.getDecoder().decode(words[2]));
+          return List.of();
+        case "drop 2":
+          calendars.remove(words[1]);
+          return List.of();
+        default:
+          throw new IllegalArgumentException("Unrecognized shard request \"" + words[0]
+                  + "\" was found.");
+      }
+    }
+  }
+
+  /**
+   * Stop accepting connections and stop waiting on connections that are still open.
+   */
+  @Override
+  public void close() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    connections.shutdownNow();
+  }
+
+  /**
+   * Writes a response in the form described by this class.
+   *
+   * @param out   The stream to write to.
+   * @param lines The lines of the response.
+   */
+  static void writeResponse(PrintStream out, List<String> lines) {
+    for (String line : lines) {
+      if (line.startsWith(".") || line.startsWith("!")) {
+        line = "." + line;
+      }
+      out.print(line + "\n");
+    }
+    out.print(".\n");
+    out.flush();
+  }
+
+  /**
+   * Writes a response reporting that a request failed.
+   *
+   * @param out     The stream to write to.
+   * @param message The reason the request failed.
+   */
+  static void writeFailure(PrintStream out, String message) {
+    out.print("!" + String.valueOf(message).replaceAll("\\R", " ") + "\n.\n");
+    out.flush();
+  }
+
+  /**
+   * Reads a response in the form described by this class.
+   *
+   * @param in The stream to read from.
+   * @return The lines of the response.
+   * @throws IOException           if the connection fails or closes before the response ends
+   * @throws IllegalStateException if the response reports that the request failed
+   */
+  static List<String> readResponse(BufferedReader in) throws IOException {
+    List<String> lines = new ArrayList<>();
+    String failure = null;
+    String line;
+    while (!".".equals(line = in.readLine())) {
+      if (line == null) {
+        throw new IOException("The shard closed the connection mid-response.");
+      }
+      if (line.startsWith("!")) {
+        failure = line.substring(1);
+      } else {
+        lines.add(line.startsWith(".") ? line.substring(1) : line);
+      }
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+    return lines;
+  }
+
+  /**
+   * A view that writes a session's output without greeting the user, since the router already
+   * did when the user connected.
+   */
+  private static class SessionView implements CalendarView {
+
+    private final CalendarView delegate;
+
+    /**
+     * Constructs a view writing to the given output.
+     *
+     * @param output The text that output should be appended to.
+     */
+    private SessionView(StringBuilder output) {
+      this.delegate = new CalendarViewImpl(output);
+    }
+
+    @Override
+    public void welcome() {
+      // the router greets the user once for the whole session
+    }
+
+    @Override
+    public void showMenu() {
+      delegate.showMenu();
+    }
+
+    @Override
+    public void write(String arg) {
+      delegate.write(arg);
+    }
+
+    @Override
+    public void formatSchedule(List<Map<String, String>> events) {
+      delegate.formatSchedule(events);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to begin, commit or roll back a transaction. While a transaction is open, the
+ * controller stages create and edit commands instead of running them, and committing runs every
+ * staged command against the calendar as one change, so either all of them take effect or none
+ * do.
+ */
+public class TransactionCmd implements CalendarCommand {
+
+  private final String action;
+  private final List<String[]> staged;
+  private final Function<String, CalendarCommand> commands;
+  private final Consumer<List<String[]>> onChange;
+
+  /**
+   * Constructs a command that begins, commits or rolls back the controller's transaction.
+   *
+   * @param action   One of "begin", "commit" or "rollback".
+   * @param staged   The keyword and rest of each command staged so far, or null if no
+   *                 transaction is open.
+   * @param commands Finds the command for the keyword of a staged command.
+   * @param onChange Called with the staged commands of the newly begun transaction, or with null
+   *                 once the transaction is committed or rolled back.
+   */
+  public TransactionCmd(String action, List<String[]> staged,
+                        Function<String, CalendarCommand> commands,
+                        Consumer<List<String[]>> onChange) {
+    this.action = action;
+    this.staged = staged;
+    this.commands = commands;
+    this.onChange = onChange;
+  }
+
+  /**
+   * Execute this command by opening a transaction, applying its staged commands to the calendar,
+   * or discarding them, then telling the user. A transaction is closed by committing it even if
+   * one of its commands fails, in which case none of them take effect.
+   *
+   * @param model             The CalendarModel to operate on.
+   * @param restOfCommand     The rest of the command-line arguments following the keyword of this
+   *                          command, which should be empty.
+   * @param view              The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    if (!restOfCommand.isBlank()) {
+      throw new IllegalArgumentException("Transaction commands must be given as just 'begin', "
+              + "'commit' or 'rollback'.");
+    }
+    if (action.equals("begin")) {
+      if (staged != null) {
+        throw new IllegalArgumentException("A transaction is already open.");
+      }
+      onChange.accept(new ArrayList<>());
+      view.write("Began a transaction. Create and edit commands will be staged until 'commit' "
+              + "or 'rollback'." + System.lineSeparator());
+      return;
+    }
+
+    if (staged == null) {
+      throw new IllegalArgumentException("There is no open transaction to " + action + ".");
+    }
+    onChange.accept(null);
+    if (action.equals("rollback")) {
+      view.write("Rolled back " + staged.size() + " staged commands." + System.lineSeparator());
+      return;
+    }
+
+    try {
+      model.transact(calendar -> {
+        for (String[] command : staged) {
+          commands.apply(command[0]).execute(calendar, command[1], view);
+        }
+      });
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("The transaction was rolled back: " + e.getMessage());
+    }
+    view.write("Committed " + staged.size() + " staged commands." + System.lineSeparator());
+  }
+}
@@ -0,0 +1,26 @@
+package controller;
+
+import model.CalendarModel;
+import view.CalendarView;
+
+/**
+ * Command to revert the most recent change to the calendar's events.
+ */
+public class UndoCmd implements CalendarCommand {
+
+  /**
+   * Execute this command by undoing the calendar's most recent change and telling the user.
+   *
+   * @param model             The CalendarModel to operate on.
+   * @param restOfCommand     The rest of the command-line arguments following the keyword of this
+   *                          command, which should be empty.
+   * @param view              The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    if (!restOfCommand.isBlank()) {
+      throw new IllegalArgumentException("Undo commands must be given as just 'undo'.");
+    }
+    model.undo();
+    view.write("Undid the last change." + System.lineSeparator());
+  }
+}
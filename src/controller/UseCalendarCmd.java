@@ -0,0 +1,60 @@
+package controller;
+
+import java.util.Scanner;
+import java.util.function.Consumer;
+
+import model.CalendarModel;
+import model.CalendarRegistry;
+import view.CalendarView;
+
+/**
+ * Command to switch which of a registry's named calendars later commands operate on.
+ */
+public class UseCalendarCmd implements CalendarCommand {
+
+  private final CalendarRegistry calendars;
+  private final Consumer<String> onSwitch;
+
+  /**
+   * Constructs a command that switches between the calendars of the given registry.
+   *
+   * @param calendars The registry holding the named calendars, or null if the controller only
+   *                  has one calendar.
+   * @param onSwitch  Called with the name of the calendar to switch to once it has been loaded.
+   */
+  public UseCalendarCmd(CalendarRegistry calendars, Consumer<String> onSwitch) {
+    this.calendars = calendars;
+    this.onSwitch = onSwitch;
+  }
+
+  /**
+   * Execute this command by loading the calendar named in the rest of the arguments, then
+   * making it the active calendar and telling the user.
+   *
+   * @param model             The CalendarModel to operate on.
+   * @param restOfCommand     The rest of the command-line arguments following the keyword of this
+   *                          command.
+   * @param view              The view object that any displayable output should be sent to.
+   */
+  public void execute(CalendarModel model, String restOfCommand, CalendarView view) {
+    if (calendars == null) {
+      throw new IllegalArgumentException("This program only has one calendar, so there are no " +
+              "other calendars to use.");
+    }
+    Scanner scan = new Scanner(restOfCommand);
+    String name;
+    try {
+      if (!scan.next().equalsIgnoreCase("calendar")) {
+        throw new IllegalArgumentException();
+      }
+      name = scan.next();
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Use commands must be formatted as 'use calendar "
+              + "<name>'.");
+    }
+
+    calendars.get(name);
+    onSwitch.accept(name);
+    view.write("Now using calendar " + name + "." + System.lineSeparator());
+  }
+}
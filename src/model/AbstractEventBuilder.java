@@ -1,6 +1,5 @@
 package model;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -50,7 +49,7 @@ public abstract class AbstractEventBuilder<T extends AbstractEventBuilder<T>>
   @Override
   public T start(String start) {
     if (start != null) {
-      this.start = LocalDateTime.parse(start);
+      this.start = DateTimes.parseDateTime(start);
     }
     return this.returnBuilder();
   }
@@ -58,7 +57,7 @@ public abstract class AbstractEventBuilder<T extends AbstractEventBuilder<T>>
   @Override
   public T end(String end) {
     if (end != null) {
-      this.end = LocalDateTime.parse(end);
+      this.end = DateTimes.parseDateTime(end);
     }
     return this.returnBuilder();
   }
@@ -66,8 +65,8 @@ public abstract class AbstractEventBuilder<T extends AbstractEventBuilder<T>>
   @Override
   public T onTime(String on) {
     if (on != null) {
-      this.start = LocalDate.parse(on).atTime(8, 0);
-      this.end = LocalDate.parse(on).atTime(17, 0);
+      this.start = DateTimes.parseDate(on).atTime(8, 0);
+      this.end = DateTimes.parseDate(on).atTime(17, 0);
     }
     return this.returnBuilder();
   }
@@ -0,0 +1,304 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Lets many threads use a calendar without waiting on each other. Creates and edits are put in a
+ * mailbox and applied in order by a single writer thread, which drains whatever has queued up
+ * and applies it as a batch, then publishes a snapshot of the calendar's events before
+ * completing the batch's futures. Queries never enter the mailbox, and are instead answered
+ * right away from the latest published snapshot, so a query made after a change's future has
+ * completed sees that change.
+ *
+ * <p>Each change is applied to the calendar on its own, exactly as if it were made directly, so
+ * a failing change fails only its own future, and each change can be undone separately. Should
+ * the writer thread ever stop before it is closed, the calendar closes to changes and every
+ * change still queued fails.</p>
+ */
+public class AsyncCalendarModel implements AutoCloseable {
+
+  // the most changes applied before the latest snapshot is published
+  private static final int MAX_BATCH = 256;
+
+  private final CalendarModelImpl calendar;
+
+  private final BlockingQueue<Change> mailbox;
+
+  private final Thread writer;
+
+  private volatile PublishedSchedule published;
+
+  private boolean closed;
+
+  /**
+   * Constructs an asynchronous view of the given calendar and starts its writer thread. The
+   * calendar should not be used directly once it has been wrapped.
+   *
+   * @param calendar the calendar to apply changes to
+   * @throws IllegalArgumentException if the calendar is null
+   */
+  public AsyncCalendarModel(CalendarModelImpl calendar) throws IllegalArgumentException {
+    if (calendar == null) {
+      throw new IllegalArgumentException("The calendar to wrap may not be null.");
+    }
+    this.calendar = calendar;
+    this.mailbox = new LinkedBlockingQueue<>();
+    this.published = calendar.publishSchedule();
+    this.closed = false;
+    this.writer = new Thread(this::write, "calendar-writer");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Queues the creation of an event or series, as documented by
+   * {@link CalendarModel#createEvent(Map)}.
+   *
+   * @param properties a map of property names to values used to construct the event
+   * @return a future completed once the event is created, or failed with the reason it was not
+   */
+  public CompletableFuture<Void> createEvent(Map<String, String> properties) {
+    return this.submit(model -> model.createEvent(properties));
+  }
+
+  /**
+   * Queues an edit, as documented by {@link CalendarModel#editEvent(String, String, Map, String)}.
+   *
+   * @param eventType        the type of event to edit, can be "event", "events", or "series"
+   * @param property         the property to change
+   * @param identifier       a map of identifying properties for the event
+   * @param newPropertyValue the new value to set for the specified property
+   * @return a future completed once the edit is made, or failed with the reason it was not
+   */
+  public CompletableFuture<Void> editEvent(String eventType, String property,
+                                           Map<String, String> identifier,
+                                           String newPropertyValue) {
+    return this.submit(model -> model.editEvent(eventType, property, identifier,
+            newPropertyValue));
+  }
+
+  /**
+   * Queues a batch of creates and edits to be applied as one change, as documented by
+   * {@link CalendarModel#transact(Consumer)}.
+   *
+   * @param changes the creates and edits to apply to the calendar they are given
+   * @return a future completed once every change is made, or failed if none of them were
+   */
+  public CompletableFuture<Void> transact(Consumer<CalendarModel> changes) {
+    return this.submit(model -> model.transact(changes));
+  }
+
+  /**
+   * Queues undoing the most recent change, as documented by {@link CalendarModel#undo()}.
+   *
+   * @return a future completed once the change is undone, or failed if there was none
+   */
+  public CompletableFuture<Void> undo() {
+    return this.submit(CalendarModel::undo);
+  }
+
+  /**
+   * Queues redoing the most recently undone change, as documented by
+   * {@link CalendarModel#redo()}.
+   *
+   * @return a future completed once the change is redone, or failed if there was none
+   */
+  public CompletableFuture<Void> redo() {
+    return this.submit(CalendarModel::redo);
+  }
+
+  /**
+   * Retrieves the events overlapping the given range as of the latest published snapshot, as
+   * with {@link CalendarModel#getSchedule(String, String)}.
+   *
+   * @param start the start date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @param end   the end date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @return a completed future of the schedule, or a failed one if the range is not valid
+   */
+  public CompletableFuture<List<Map<String, String>>> getSchedule(String start, String end) {
+    try {
+      return CompletableFuture.completedFuture(this.published.getSchedule(start, end));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Retrieves the events on the given day as of the latest published snapshot, as with
+   * {@link CalendarModel#getSchedule(String)}.
+   *
+   * @param day the day as a String in the format: YYYY-MM-DD
+   * @return a completed future of the schedule, or a failed one if the day is not valid
+   */
+  public CompletableFuture<List<Map<String, String>>> getSchedule(String day) {
+    try {
+      return CompletableFuture.completedFuture(this.published.getSchedule(day));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Retrieves the status of the user at the given date-time as of the latest published
+   * snapshot, as with {@link CalendarModel#getStatus(String)}.
+   *
+   * @param dateTime the date-time to check as a String in the format: YYYY-MM-DDThh:mm
+   * @return a completed future of "busy" or "available", or a failed one if the date-time is not
+   *         valid
+   */
+  public CompletableFuture<String> getStatus(String dateTime) {
+    try {
+      return CompletableFuture.completedFuture(this.published.getStatus(dateTime));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Returns the version of the calendar as of the latest published snapshot.
+   *
+   * @return the version queries are currently answered from
+   */
+  public long getVersion() {
+    return this.published.getVersion();
+  }
+
+  /**
+   * Stops accepting changes, waits for the writer thread to apply every change already queued,
+   * then stops it.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (this.closed) {
+        return;
+      }
+      this.closed = true;
+      this.mailbox.add(Change.STOP);
+    }
+    try {
+      this.writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Puts the given change in the mailbox.
+   *
+   * @param change the change to apply to the calendar
+   * @return a future completed once the change has been applied and published
+   */
+  private synchronized CompletableFuture<Void> submit(Consumer<CalendarModel> change) {
+    if (this.closed) {
+      return CompletableFuture.failedFuture(new IllegalStateException("This calendar has been "
+              + "closed to changes."));
+    }
+    Change queued = new Change(change);
+    this.mailbox.add(queued);
+    return queued.result;
+  }
+
+  /**
+   * Applies the changes in the mailbox, one batch at a time, until the calendar is closed. A
+   * change that throws anything at all fails only its own future. If the writer stops for any
+   * other reason, the calendar is closed and every change it will not apply is failed.
+   */
+  private void write() {
+    List<Change> batch = new ArrayList<>();
+    Throwable cause = null;
+    try {
+      boolean stopping = false;
+      while (!stopping) {
+        try {
+          batch.add(this.mailbox.take());
+        } catch (InterruptedException e) {
+          return;
+        }
+        this.mailbox.drainTo(batch, MAX_BATCH - 1);
+
+        List<Throwable> failures = new ArrayList<>(batch.size());
+        for (Change change : batch) {
+          Throwable failure = null;
+          if (change == Change.STOP) {
+            stopping = true;
+          } else {
+            try {
+              change.change.accept(this.calendar);
+            } catch (Throwable e) {
+              failure = e;
+            }
+          }
+          failures.add(failure);
+        }
+
+        this.published = this.calendar.publishSchedule();
+        for (int i = 0; i < batch.size(); i++) {
+          if (failures.get(i) == null) {
+            batch.get(i).result.complete(null);
+          } else {
+            batch.get(i).result.completeExceptionally(failures.get(i));
+          }
+        }
+        batch.clear();
+      }
+    } catch (Throwable e) {
+      cause = e;
+      throw e;
+    } finally {
+      this.abandon(batch, cause);
+    }
+  }
+
+  /**
+   * Closes this calendar to changes once the writer thread has stopped, and fails every change
+   * it did not finish, so that nothing waits on them forever.
+   *
+   * @param batch the changes the writer was applying when it stopped
+   * @param cause what stopped the writer, or null if it was closed or interrupted
+   */
+  private void abandon(List<Change> batch, Throwable cause) {
+    List<Change> unfinished;
+    synchronized (this) {
+      this.closed = true;
+      unfinished = new ArrayList<>(batch);
+      this.mailbox.drainTo(unfinished);
+    }
+    IllegalStateException stopped = new IllegalStateException("This calendar's writer has "
+            + "stopped.", cause);
+    for (Change change : unfinished) {
+      if (change != Change.STOP) {
+        change.result.completeExceptionally(stopped);
+      }
+    }
+  }
+
+  /**
+   * One change waiting in the mailbox, and the future to complete once it has been applied.
+   */
+  private static class Change {
+
+    // marks the end of the changes to apply
+    private static final Change STOP = new Change(model -> { });
+
+    private final Consumer<CalendarModel> change;
+
+    private final CompletableFuture<Void> result;
+
+    /**
+     * Constructs a change waiting to be applied.
+     *
+     * @param change the change to apply to the calendar
+     */
+    private Change(Consumer<CalendarModel> change) {
+      this.change = change;
+      this.result = new CompletableFuture<>();
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package model;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * This interface represents all the operations a Calendar model can perform, including creating,
@@ -16,7 +18,9 @@ public interface CalendarModel {
    * @param properties a map of property names to values used to construct the event.
    *                   Required fields depend on event type and could include:
    *                   "subject", "start", "end", "location", "description",
-   *                   "status", "weekdays", "nTimes", or "until".
+   *                   "status", "weekdays", "nTimes", or "until". A series may also
+   *                   give the "zone" its times and days are in, to be laid out in that zone
+   *                   and converted to UTC one occurrence at a time.
    * @throws IllegalArgumentException if required properties are missing or invalid
    */
   void createEvent(Map<String, String> properties);
@@ -28,7 +32,10 @@ public interface CalendarModel {
    * @param eventType        the type of event to edit, can be "event", "events", or "series"
    * @param property         the property to change (such as "location", "description")
    * @param identifier       a map of identifying properties for the event
-   * @param newPropertyValue the new value to set for the specified property
+   * @param newPropertyValue the new value to set for the specified property; a new start or end
+   *                         may be followed by a zone in square brackets, such as
+   *                         2025-06-05T20:00[America/New_York], to set each occurrence to that
+   *                         time of day on its own day in that zone
    * @throws IllegalArgumentException if the event cannot be identified or the change is invalid
    */
   void editEvent(String eventType, String property, Map<String, String> identifier,
@@ -46,6 +53,42 @@ public interface CalendarModel {
    */
   List<Map<String, String>> getSchedule(String start, String end);
 
+  /**
+   * Retrieves the events on or within the provided time range that meet every given criterion,
+   * as with {@link #getSchedule(String, String)}. The criteria are "location" and "status",
+   * which an event's must equal, "subject", which an event's must begin with, ignoring case, and
+   * "duration", the least number of minutes an event must last. Events are tested before their
+   * Maps are built, so filtering here costs less than filtering the whole schedule.
+   *
+   * @param start   the start date-time of the desired time frame as a String in the format:
+   *                YYYY-MM-DDThh:mm
+   * @param end     the end date-time of the desired time frame as a String in the format:
+   *                YYYY-MM-DDThh:mm
+   * @param filters the criteria, keyed by "location", "status", "subject" or "duration"
+   * @return a List of Maps containing all properties of the matching events, ordered by start
+   * @throws IllegalArgumentException if the start is after the end, or a criterion is unknown
+   *                                  or has an invalid value
+   */
+  List<Map<String, String>> getSchedule(String start, String end, Map<String, String> filters);
+
+  /**
+   * Retrieves one page of the events on or within the provided time range, in order of start
+   * time. The first page is retrieved without a cursor, and each page after that with the cursor
+   * of the page before it. Resuming from a cursor takes logarithmic time however far into the
+   * range it is, so callers can stop early and never hold more than one page at a time.
+   *
+   * @param start  the start date-time of the desired time frame as a String in the format:
+   *               YYYY-MM-DDThh:mm
+   * @param end    the end date-time of the desired time frame as a String in the format:
+   *               YYYY-MM-DDThh:mm
+   * @param cursor the cursor of the previous page, or null for the first page
+   * @param limit  the largest number of events to include in the page
+   * @return the page of events along with the cursor to the next page, if any
+   * @throws IllegalArgumentException if the start is after the end, the cursor is not one
+   *                                  returned by this calendar, or the limit is not positive
+   */
+  SchedulePage getSchedulePage(String start, String end, String cursor, int limit);
+
   /**
    * Retrieves all events on the given day as a List of Maps which contain the key and value for
    * each property of a found event.
@@ -64,4 +107,112 @@ public interface CalendarModel {
    */
   String getStatus(String dateTime);
 
+  /**
+   * Retrieves the total busy time and number of events from the first to the last given day,
+   * inclusive, such as for a day, a week or a month. Each event counts towards the day it starts
+   * on, its minutes count towards the days they fall on, and overlapping events each count in
+   * full. The totals take the same time to find however many events the range holds.
+   *
+   * @param firstDay the first day of the range as a String in the format: YYYY-MM-DD
+   * @param lastDay  the last day of the range as a String in the format: YYYY-MM-DD
+   * @return a map of "minutes" to the total busy minutes and "events" to the number of events
+   * @throws IllegalArgumentException if the first day is after the last day
+   */
+  Map<String, Long> getBusyTotals(String firstDay, String lastDay);
+
+  /**
+   * Retrieves the time slots in which the user is busy on or within the provided time range, one
+   * per event, in order of their start times. Slots are produced lazily as the iterator advances,
+   * so a caller that merges several calendars never needs their full schedules.
+   *
+   * @param start the start date-time of the desired time frame as a String in the format:
+   *              YYYY-MM-DDThh:mm
+   * @param end   the end date-time of the desired time frame as a String in the format:
+   *              YYYY-MM-DDThh:mm
+   * @return an Iterator over the busy TimeSlots overlapping the given range, ordered by start
+   * @throws IllegalArgumentException if the start time is after the end time
+   */
+  Iterator<TimeSlot> busySlots(String start, String end);
+
+  /**
+   * Retrieves the events whose subject or description contains every word of the given query,
+   * ignoring case and punctuation, as a List of Maps like those of a schedule. A query word
+   * ending in "*" matches any word beginning with the rest of it. The search can be limited to
+   * the events on or within a time range, and takes time proportional to the number of events
+   * containing the query's rarest word rather than to the size of the calendar.
+   *
+   * @param query the words to search for, such as "team meet*"
+   * @param start the start date-time of the range to search as a String in the format:
+   *              YYYY-MM-DDThh:mm, or null to search from the earliest event
+   * @param end   the end date-time of the range to search as a String in the format:
+   *              YYYY-MM-DDThh:mm, or null to search up to the latest event
+   * @return a List of Maps containing all properties of the matching events, ordered by start
+   * @throws IllegalArgumentException if the query has no words or the start is after the end
+   */
+  List<Map<String, String>> search(String query, String start, String end);
+
+  /**
+   * Estimates how much heap this calendar takes up, broken down by what it is spent on. The
+   * estimate is derived from counts kept up to date as events are added and removed, so it
+   * costs little to compute and does not walk the heap. The keys are, in order:
+   * "events" and "series", the number of stored events and of series with any of them;
+   * "eventBytes", "dateTimeBytes", "seriesBytes", "stringBytes" and "indexBytes", the bytes
+   * taken by event objects, their start and end times, the occurrence lists of series, distinct
+   * subjects and descriptions, and the structures that look events up; "totalBytes", the sum of
+   * those; and "sealedEvents" and "sealedDiskBytes", the events kept on disk instead, if any.
+   *
+   * @return the estimated memory use of this calendar, by component
+   */
+  Map<String, Long> getMemoryUsage();
+
+  /**
+   * Reverts the most recent change to the calendar's events, whether it was made by creating or
+   * editing events, by redoing, or by restoring a checkpoint. Every version of the calendar
+   * shares all but a few of its events with the next, so keeping the history costs little
+   * memory, and undoing a change takes time proportional to the number of events it touched.
+   *
+   * @throws IllegalStateException if there are no changes to undo
+   */
+  void undo();
+
+  /**
+   * Reapplies the most recently undone change, as long as no other change has been made since.
+   *
+   * @throws IllegalStateException if there are no undone changes to redo
+   */
+  void redo();
+
+  /**
+   * Remembers the calendar's current events under the given name, replacing any checkpoint
+   * with that name. Creating a checkpoint copies nothing.
+   *
+   * @param name the name of the checkpoint
+   * @throws IllegalArgumentException if the name is blank
+   */
+  void checkpoint(String name);
+
+  /**
+   * Brings the calendar's events back to those it had when the named checkpoint was created.
+   * Restoring a checkpoint is a change that can itself be undone.
+   *
+   * @param name the name of the checkpoint to restore
+   * @throws IllegalArgumentException if there is no checkpoint with that name
+   */
+  void restoreCheckpoint(String name);
+
+  /**
+   * Applies every create and edit the given changes make to the calendar they are given as one
+   * change. The changes see each other's events, but the rest of the calendar is only updated
+   * once, after the last of them, and they are published, versioned and undone together. If
+   * any of them fails, none of them are applied and the failure is rethrown. Queries made within
+   * the changes see the calendar as it was before them, and undoing, redoing and checkpoints are
+   * not allowed within them.
+   *
+   * @param changes the creates and edits to apply to the calendar they are given
+   * @throws IllegalArgumentException if any of the changes fails for that reason
+   * @throws IllegalStateException    if any of the changes fails for that reason, or this
+   *                                  calendar is already applying a batch of changes
+   */
+  void transact(Consumer<CalendarModel> changes);
+
 }
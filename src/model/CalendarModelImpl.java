@@ -1,12 +1,31 @@
 package model;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * This class represents one implementation of the CalendarModel which can create, edit, query
@@ -14,64 +33,656 @@ import java.util.TreeSet;
  */
 public class CalendarModelImpl implements CalendarModel {
 
-  private final Set<Event> events;
+  private final EventStore events;
+
+  // the approximate heap retained by each stored event beyond the event itself
+  private static final long ENTRY_BYTES = 40;
+
+  // the approximate heap taken by a series and its list of occurrences, besides the references
+  private static final long SERIES_BYTES = 56;
+
+  // the heap taken by each reference in a series' list of occurrences
+  private static final long OCCURRENCE_BYTES = 4;
+
+  // the number of recent changes kept for delta synchronization unless configured otherwise
+  private static final int CHANGE_LOG_CAPACITY = 10000;
+
+  // the number of changes that can be undone in a row
+  private static final int UNDO_LIMIT = 100;
+
+  // how long a replaced version stays queryable unless configured otherwise
+  private static final Duration VERSION_RETENTION = Duration.ofDays(7);
+
+  private long estimatedBytes;
+
+  // null unless this calendar was constructed with a day cache
+  private final DayCache dayCache;
+
+  private ConflictPolicy conflictPolicy;
+
+  private List<Map<String, String>> lastConflicts;
+
+  private final DayRollup rollup;
+
+  private final ChangeFeed feed;
+
+  private final TextIndex text;
+
+  private final TextDictionary dictionary;
+
+  // the number of stored occurrences of each series with any occurrence stored
+  private final Map<Event.EventSeries, Integer> seriesOccurrences;
+
+  // the series whose occurrences may have changed since they were last recorded or restored
+  private final Set<Event.EventSeries> staleSeries;
+
+  private final Deque<EventStore.Snapshot> undoHistory;
+
+  private final Deque<EventStore.Snapshot> redoHistory;
+
+  private final Map<String, EventStore.Snapshot> checkpoints;
+
+  private final VersionHistory history;
+
+  // the stored events before the batch of changes being applied, or null outside of a batch
+  private EventStore.Snapshot batchStart;
+
+  // the sealed past events, or null unless cold storage has been set up
+  private ColdTier cold;
+
+  private Path coldDirectory;
+
+  // how long ago an event must have ended for it to be sealed
+  private Duration sealingHorizon;
+
+  // no event may start before this time once earlier events are sealed, null if none are
+  private LocalDateTime sealedBefore;
 
   /**
-   * Constructs an empty CalendarModelImpl, initializing events as a new TreeSet.
+   * Constructs an empty CalendarModelImpl, initializing events as a new EventStore.
    */
   public CalendarModelImpl() {
-    this.events = new TreeSet<Event>();
+    this((DayCache) null);
+  }
+
+  /**
+   * Constructs an empty CalendarModelImpl that caches the schedules of up to the given number of
+   * recently queried days. A cached day is discarded only when an event touching that day is
+   * created, edited or removed, so repeated queries for unchanged days skip the search entirely.
+   * Schedules returned for a single day are immutable.
+   *
+   * @param cachedDays the maximum number of days whose schedules are cached
+   * @throws IllegalArgumentException if the number of cached days is not positive
+   */
+  public CalendarModelImpl(int cachedDays) throws IllegalArgumentException {
+    this(new DayCache(cachedDays));
+  }
+
+  /**
+   * Constructs an empty CalendarModelImpl with the given day cache.
+   *
+   * @param dayCache the cache of single-day schedules to use, or null to cache nothing
+   */
+  private CalendarModelImpl(DayCache dayCache) {
+    this.events = new EventStore();
+    this.estimatedBytes = 0;
+    this.dayCache = dayCache;
+    this.conflictPolicy = ConflictPolicy.ALLOW;
+    this.lastConflicts = new ArrayList<>();
+    this.rollup = new DayRollup();
+    this.feed = new ChangeFeed(CHANGE_LOG_CAPACITY);
+    this.text = new TextIndex();
+    this.dictionary = new TextDictionary();
+    this.seriesOccurrences = new IdentityHashMap<>();
+    this.staleSeries = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.undoHistory = new ArrayDeque<>();
+    this.redoHistory = new ArrayDeque<>();
+    this.checkpoints = new HashMap<>();
+    this.history = new VersionHistory(this.feed.version(), this.events.snapshot(),
+            VERSION_RETENTION, Clock.systemUTC());
+    this.cold = null;
+    this.coldDirectory = null;
+    this.sealingHorizon = null;
+    this.sealedBefore = null;
   }
 
   @Override
   public void createEvent(Map<String, String> properties) throws NullPointerException {
+    if (this.batchStart != null) {
+      try {
+        this.create(properties);
+      } catch (Throwable e) {
+        cleanUpAfter(e, this::recordSeries);
+        throw e;
+      }
+      this.recordSeries();
+      return;
+    }
+    EventStore.Snapshot before = this.events.snapshot();
+    try {
+      this.create(properties);
+    } catch (Throwable e) {
+      cleanUpAfter(e, () -> this.settle(before));
+      throw e;
+    }
+    this.settle(before);
+  }
+
+  /**
+   * Runs the given clean-up after a change that failed part way. A failure of the clean-up is
+   * attached to the failure of the change, which is the one the caller should see.
+   *
+   * @param failure the failure of the change
+   * @param cleanUp the clean-up to run
+   */
+  static void cleanUpAfter(Throwable failure, Runnable cleanUp) {
+    try {
+      cleanUp.run();
+    } catch (Throwable e) {
+      failure.addSuppressed(e);
+    }
+  }
 
+  /**
+   * Remembers and publishes whatever a create or edit changed, including one that failed.
+   *
+   * @param before the version of the stored events before the change
+   */
+  private void settle(EventStore.Snapshot before) {
+    this.remember(before);
+    this.publish();
+  }
+
+  /**
+   * Creates the event or series described by the given properties, as documented by
+   * {@link CalendarModel#createEvent(Map)}.
+   *
+   * @param properties a map of property names to values used to construct the event
+   */
+  private void create(Map<String, String> properties) {
     if (properties.containsKey("repeats") || properties.containsKey("for")
             || properties.containsKey("until")) {
-      Event.EventSeries series = new Event.EventSeries.EventSeriesBuilder(properties.get("event"),
+      Event.EventSeries series = new Event.EventSeries.EventSeriesBuilder(
+              this.dictionary.intern(properties.get("event")),
               properties.get("repeats"))
               .start(properties.get("from"))
               .end(properties.get("to"))
               .onTime(properties.get("on"))
-              .description(properties.get("description"))
+              .description(this.dictionary.intern(properties.get("description")))
               .location(properties.get("location"))
               .status(properties.get("status"))
               .nTimes(properties.get("for"))
-              .until(properties.get("until")).buildSeries();
+              .until(properties.get("until"))
+              .zone(properties.get("zone")).buildSeries();
 
-      for (Event e : series.asList()) {
+      List<Event> occurrences = series.asList();
+      this.checkNotSealed(occurrences);
+      this.checkConflicts(occurrences);
+      for (Event e : occurrences) {
         this.addEvent(e);
       }
       return;
     }
 
-    Event event = new Event.EventBuilder(properties.get("event"))
+    Event event = new Event.EventBuilder(this.dictionary.intern(properties.get("event")))
             .start(properties.get("from"))
             .end(properties.get("to"))
             .onTime(properties.get("on"))
-            .description(properties.get("description"))
+            .description(this.dictionary.intern(properties.get("description")))
             .location(properties.get("location"))
             .status(properties.get("status")).build();
 
+    this.checkNotSealed(List.of(event));
+    this.checkConflicts(List.of(event));
     this.addEvent(event);
   }
 
+  /**
+   * Sets how this calendar treats a created or edited event that overlaps an event it already
+   * holds. Calendars allow overlapping events unless told otherwise.
+   *
+   * @param policy the ConflictPolicy to apply to later creates and edits
+   * @throws IllegalArgumentException if the policy is null
+   */
+  public void setConflictPolicy(ConflictPolicy policy) throws IllegalArgumentException {
+    if (policy == null) {
+      throw new IllegalArgumentException("A conflict policy must be given.");
+    }
+    this.conflictPolicy = policy;
+  }
+
+  /**
+   * Retrieves every conflict found by the most recent create or edit, one map per pair of
+   * overlapping events. Each map holds the "event", "from" and "to" of the new occurrence and
+   * the "conflict", "conflictFrom" and "conflictTo" of the event it overlaps. Conflicts are only
+   * looked for when the conflict policy is WARN or REJECT.
+   *
+   * @return a List of Maps describing each conflicting occurrence, empty if there were none
+   */
+  public List<Map<String, String>> getConflicts() {
+    return new ArrayList<>(this.lastConflicts);
+  }
+
+  /**
+   * Looks up the events already in this calendar that each of the given new occurrences would
+   * overlap, unless conflicts are allowed. Each lookup walks the stored events' interval tree, so
+   * it visits only the events overlapping the occurrence and the paths to them. Events that meet
+   * end to start do not conflict.
+   *
+   * @param occurrences the new events about to be added
+   * @throws IllegalArgumentException if the conflict policy is REJECT and any occurrence
+   *                                  overlaps an existing event
+   */
+  private void checkConflicts(List<Event> occurrences) throws IllegalArgumentException {
+    this.lastConflicts = new ArrayList<>();
+    if (this.conflictPolicy == ConflictPolicy.ALLOW) {
+      return;
+    }
+
+    StringBuilder report = new StringBuilder();
+    for (Event occurrence : occurrences) {
+      Iterator<Event> found = this.overlapping(occurrence.start, occurrence.end);
+      while (found.hasNext()) {
+        Event existing = found.next();
+        if (existing.start.isBefore(occurrence.end) && occurrence.start.isBefore(existing.end)
+                || existing.start.isEqual(occurrence.start)) {
+          Map<String, String> conflict = new HashMap<>(occurrence.asScheduleItem());
+          conflict.put("conflict", existing.subject);
+          conflict.put("conflictFrom", existing.start.toString());
+          conflict.put("conflictTo", existing.end.toString());
+          this.lastConflicts.add(conflict);
+          report.append(System.lineSeparator()).append(occurrence.subject).append(" from ")
+                  .append(occurrence.start).append(" to ").append(occurrence.end)
+                  .append(" overlaps ").append(existing.subject).append(" from ")
+                  .append(existing.start).append(" to ").append(existing.end);
+        }
+      }
+    }
+
+    if (this.conflictPolicy == ConflictPolicy.REJECT && !this.lastConflicts.isEmpty()) {
+      throw new IllegalArgumentException("The event conflicts with events already in this "
+              + "calendar:" + report);
+    }
+  }
+
   /**
    * Adds the given event to this Calendar's set of events.
    * @param event the Event to add to this Calendar
    * @throws IllegalArgumentException if the event to be added already exists in this calendar
    */
   private void addEvent(Event event) throws IllegalArgumentException {
-    if (!this.events.add(event)) {
+    if (!this.store(event)) {
       throw new IllegalArgumentException("A duplicate event was found to an event in this " +
               "calendar. (shares the same subject and date/time frame.)");
     }
   }
 
+  /**
+   * Stores the given event in this Calendar's set of events. Everything else this calendar keeps
+   * track of is updated once the batch of changes is done, if one is being applied, or right
+   * away otherwise.
+   *
+   * @param event the Event to store
+   * @return true if the event was stored, false if an event with the same start already exists
+   */
+  private boolean store(Event event) {
+    if (!this.events.add(event)) {
+      return false;
+    }
+    this.markStale(event);
+    if (this.batchStart == null) {
+      this.indexAdded(event);
+    }
+    return true;
+  }
+
+  /**
+   * Updates everything this calendar keeps track of besides its stored events to account for
+   * the given newly stored event.
+   *
+   * @param event the Event that was stored
+   */
+  private void indexAdded(Event event) {
+    this.estimatedBytes += ENTRY_BYTES + event.estimatedBytes();
+    this.invalidateDays(event);
+    this.rollUp(event, 1);
+    this.text.add(event);
+    this.dictionary.retain(event.subject);
+    this.dictionary.retain(event.description);
+    this.countOccurrence(event, 1);
+    this.feed.added(event);
+  }
+
+  /**
+   * Removes the stored event that starts at the same time as the given event, if there is one.
+   * As with {@link #store(Event)}, everything else is updated at the end of a batch of changes.
+   *
+   * @param event an Event with the start time of the event to remove
+   */
+  private void discard(Event event) {
+    Event stored = this.events.find(event);
+    if (stored != null) {
+      this.events.remove(stored);
+      this.markStale(stored);
+      if (this.batchStart == null) {
+        this.indexRemoved(stored);
+      }
+    }
+  }
+
+  /**
+   * Updates everything this calendar keeps track of besides its stored events to account for
+   * the given event no longer being stored.
+   *
+   * @param event the Event that was removed
+   */
+  private void indexRemoved(Event event) {
+    this.estimatedBytes -= ENTRY_BYTES + event.estimatedBytes();
+    this.invalidateDays(event);
+    this.rollUp(event, -1);
+    this.text.remove(event);
+    this.dictionary.release(event.subject);
+    this.dictionary.release(event.description);
+    this.countOccurrence(event, -1);
+    this.feed.removed(event);
+  }
+
+  /**
+   * Adds the given event to, or removes it from, the count of stored occurrences of its series,
+   * if it has one.
+   *
+   * @param event the Event that was added or removed
+   * @param sign  1 if the event was added, -1 if it was removed
+   */
+  private void countOccurrence(Event event, int sign) {
+    if (event.series != null) {
+      this.seriesOccurrences.merge(event.series, sign, (a, b) -> a + b == 0 ? null : a + b);
+    }
+  }
+
+  /**
+   * Adds the given event to, or removes it from, the per-day busy totals. The event counts
+   * towards the day it starts on, and its minutes are split across each day it covers.
+   *
+   * @param event the Event that was added or removed
+   * @param sign  1 if the event was added, -1 if it was removed
+   */
+  private void rollUp(Event event, int sign) {
+    this.rollup.add(event.start.toLocalDate(), 0, sign);
+    LocalDateTime from = event.start;
+    while (from.isBefore(event.end)) {
+      LocalDateTime midnight = from.toLocalDate().plusDays(1).atStartOfDay();
+      LocalDateTime to = midnight.isBefore(event.end) ? midnight : event.end;
+      this.rollup.add(from.toLocalDate(), sign * Duration.between(from, to).toMinutes(), 0);
+      from = to;
+    }
+  }
+
+  /**
+   * Puts the given edited copy in the place of the stored event it was copied from, which has
+   * the same subject, start and end, without removing and re-adding it, and in its place among
+   * the occurrences of its series if the copy stays in that series. Copies of events that are
+   * no longer stored are ignored. As with {@link #store(Event)}, everything else is updated
+   * at the end of a batch of changes.
+   *
+   * @param edited the edited copy of a stored event
+   */
+  private void replace(Event edited) {
+    Event original = this.events.find(edited);
+    if (original == null || !original.equals(edited)
+            || !this.events.replace(original, edited)) {
+      return;
+    }
+    if (edited.series != null) {
+      edited.series.swap(original, edited);
+    }
+    this.markStale(original);
+    this.markStale(edited);
+    if (this.batchStart != null) {
+      return;
+    }
+    this.countOccurrence(original, -1);
+    this.countOccurrence(edited, 1);
+    this.invalidateDays(edited);
+    this.text.remove(original);
+    this.text.add(edited);
+    this.dictionary.retain(edited.description);
+    this.dictionary.release(original.description);
+    this.feed.edited(edited);
+  }
+
+  /**
+   * Notes that the occurrences of the given event's series, if it has one, may have changed.
+   *
+   * @param event the Event that was stored, removed or replaced
+   */
+  private void markStale(Event event) {
+    if (event.series != null) {
+      this.staleSeries.add(event.series);
+    }
+  }
+
+  /**
+   * Records the occurrences of every series that may have changed with the stored events, so
+   * that switching back to this version later restores them.
+   */
+  private void recordSeries() {
+    for (Event.EventSeries series : this.staleSeries) {
+      this.events.record(series);
+    }
+    this.staleSeries.clear();
+  }
+
+  /**
+   * Gives every series that may differ between the last version and the version just switched
+   * to the occurrences it was recorded with in that version. Edits split series and swap their
+   * occurrences for edited copies, so without this a series edited after an undo would still
+   * follow the undone occurrences.
+   */
+  private void relinkSeries() {
+    for (Event.EventSeries series : this.staleSeries) {
+      series.relink(this.events.recorded(series));
+    }
+    this.staleSeries.clear();
+  }
+
+  /**
+   * Discards any cached schedules of the days the given event touches.
+   *
+   * @param event the Event that was added or removed
+   */
+  private void invalidateDays(Event event) {
+    if (this.dayCache != null) {
+      this.dayCache.invalidate(event.start.toLocalDate(), event.end.toLocalDate());
+    }
+  }
+
   @Override
   public void editEvent(String eventType, String property, Map<String, String> identifier,
                         String newPropertyValue) {
-    List<Event> filtered = new ArrayList<>(this.events);
+    if (this.batchStart != null) {
+      try {
+        this.edit(eventType, property, identifier, this.dictionary.intern(newPropertyValue));
+      } catch (Throwable e) {
+        cleanUpAfter(e, this::recordSeries);
+        throw e;
+      }
+      this.recordSeries();
+      return;
+    }
+    EventStore.Snapshot before = this.events.snapshot();
+    try {
+      this.edit(eventType, property, identifier, this.dictionary.intern(newPropertyValue));
+    } catch (Throwable e) {
+      cleanUpAfter(e, () -> this.settle(before));
+      throw e;
+    }
+    this.settle(before);
+  }
+
+  /**
+   * Adds the given version of the stored events to the undo history if the events have changed
+   * since, forgetting any changes that were undone before.
+   *
+   * @param before the version of the stored events before a create or edit
+   */
+  private void remember(EventStore.Snapshot before) {
+    if (!this.events.differsFrom(before)) {
+      return;
+    }
+    this.undoHistory.push(before);
+    if (this.undoHistory.size() > UNDO_LIMIT) {
+      this.undoHistory.removeLast();
+    }
+    this.redoHistory.clear();
+  }
+
+  @Override
+  public void undo() throws IllegalStateException {
+    this.checkNotInBatch();
+    if (this.undoHistory.isEmpty()) {
+      throw new IllegalStateException("There are no changes to undo.");
+    }
+    EventStore.Snapshot current = this.events.snapshot();
+    this.switchTo(this.undoHistory.pop());
+    this.redoHistory.push(current);
+  }
+
+  @Override
+  public void redo() throws IllegalStateException {
+    this.checkNotInBatch();
+    if (this.redoHistory.isEmpty()) {
+      throw new IllegalStateException("There are no undone changes to redo.");
+    }
+    EventStore.Snapshot current = this.events.snapshot();
+    this.switchTo(this.redoHistory.pop());
+    this.undoHistory.push(current);
+  }
+
+  @Override
+  public void checkpoint(String name) throws IllegalArgumentException {
+    this.checkNotInBatch();
+    if (name == null || name.isBlank()) {
+      throw new IllegalArgumentException("A checkpoint must have a name.");
+    }
+    this.checkpoints.put(name, this.events.snapshot());
+  }
+
+  @Override
+  public void restoreCheckpoint(String name) throws IllegalArgumentException {
+    this.checkNotInBatch();
+    EventStore.Snapshot target = this.checkpoints.get(name);
+    if (target == null) {
+      throw new IllegalArgumentException("There is no checkpoint named " + name + ".");
+    }
+    EventStore.Snapshot before = this.events.snapshot();
+    this.switchTo(target);
+    this.remember(before);
+  }
+
+  @Override
+  public void transact(Consumer<CalendarModel> changes) throws IllegalStateException {
+    this.checkNotInBatch();
+    EventStore.Snapshot before = this.events.snapshot();
+    this.batchStart = before;
+    EventStore.Snapshot after;
+    try {
+      changes.accept(this);
+      after = this.events.snapshot();
+    } catch (Throwable e) {
+      cleanUpAfter(e, () -> this.endBatch(before));
+      throw e;
+    }
+    this.endBatch(before);
+    this.switchTo(after);
+    this.remember(before);
+  }
+
+  /**
+   * Puts the stored events back as they were before a batch of changes. The rest of this
+   * calendar has not seen any of the batch yet, but the series it changed have, so they are
+   * restored too.
+   *
+   * @param before the version of the stored events before the batch
+   */
+  private void endBatch(EventStore.Snapshot before) {
+    this.events.restore(before, this::markStale, this::markStale);
+    this.batchStart = null;
+    this.relinkSeries();
+  }
+
+  /**
+   * Rejects changes that cannot be part of a batch of changes while one is being applied.
+   *
+   * @throws IllegalStateException if a batch of changes is being applied
+   */
+  private void checkNotInBatch() throws IllegalStateException {
+    if (this.batchStart != null) {
+      throw new IllegalStateException("Undo, redo and checkpoints cannot be used while a batch "
+              + "of changes is being applied.");
+    }
+  }
+
+  /**
+   * Returns the stored events that queries should see, which are those from before the batch of
+   * changes being applied, if there is one.
+   *
+   * @return the visible version of the stored events
+   */
+  private EventStore.Snapshot visible() {
+    return this.batchStart != null ? this.batchStart : this.events.snapshot();
+  }
+
+  /**
+   * Makes the given version of the stored events current, updating everything else this
+   * calendar keeps track of for only the events that differ between the versions.
+   *
+   * @param target the version to switch to
+   */
+  private void switchTo(EventStore.Snapshot target) {
+    try {
+      this.events.restore(target, e -> {
+        this.markStale(e);
+        this.indexRemoved(e);
+      }, e -> {
+        this.markStale(e);
+        this.indexAdded(e);
+      });
+      this.relinkSeries();
+    } catch (Throwable e) {
+      cleanUpAfter(e, this::publish);
+      throw e;
+    }
+    this.publish();
+  }
+
+  /**
+   * Publishes the changes made since the last publish and, if any event changed, records the
+   * stored events under the new version so they can still be queried once later changes are made.
+   */
+  private void publish() {
+    this.recordSeries();
+    long previous = this.feed.version();
+    this.feed.publish();
+    long version = this.feed.version();
+    if (version != previous) {
+      this.history.record(version, this.events.snapshot());
+    }
+  }
+
+  /**
+   * Edits the identified event or events, as documented by
+   * {@link CalendarModel#editEvent(String, String, Map, String)}.
+   *
+   * @param eventType        the type of event to edit, can be "event", "events", or "series"
+   * @param property         the property to change
+   * @param identifier       a map of identifying properties for the event
+   * @param newPropertyValue the new value to set for the specified property
+   */
+  private void edit(String eventType, String property, Map<String, String> identifier,
+                    String newPropertyValue) {
+    List<Event> filtered = new ArrayList<>();
+    this.events.forEach(filtered::add);
 
     for (Map.Entry<String, String> id : identifier.entrySet()) {
       for (Event e : this.events) {
@@ -87,82 +698,739 @@ public class CalendarModelImpl implements CalendarModel {
               "event.");
     }
 
-    switch (eventType.toLowerCase()) {
+    String scope = eventType.toLowerCase();
+    if (Event.isDetail(property) && (scope.equals("event") || scope.equals("events")
+            || scope.equals("series"))) {
+      for (Event copy : filtered.get(0).updateDetails(scope, property, newPropertyValue)) {
+        this.replace(copy);
+      }
+      return;
+    }
+
+    List<Event> removed = new ArrayList<>();
+    Event edited;
+    switch (scope) {
       case "event":
-        Event baseEvent = filtered.get(0);
-        this.events.remove(filtered.get(0));
-        Event editedEvent = filtered.get(0).updateEvent(property, newPropertyValue);
-        this.events.add(editedEvent);
+        removed.add(filtered.get(0));
+        edited = filtered.get(0).updateEvent(property, newPropertyValue);
         break;
       case "events":
-        Event toRemove = filtered.get(0);
-        while (toRemove != null) {
-          this.events.remove(toRemove);
-          toRemove = toRemove.nextInSeries();
-        }
-        Event editedEvents = filtered.get(0).updateRestOfSeries(property, newPropertyValue);
-        while (editedEvents != null) {
-          this.events.add(editedEvents);
-          editedEvents = editedEvents.nextInSeries();
+        for (Event e = filtered.get(0); e != null; e = e.nextInSeries()) {
+          removed.add(e);
         }
+        edited = filtered.get(0).updateRestOfSeries(property, newPropertyValue);
         break;
       case "series":
-        Event toRemoveInSeries = filtered.get(0).startOfSeries();
-        while (toRemoveInSeries != null) {
-          this.events.remove(toRemoveInSeries);
-          toRemoveInSeries = toRemoveInSeries.nextInSeries();
-        }
-        Event editedSeries = filtered.get(0).updateFullSeries(property, newPropertyValue);
-        while (editedSeries != null) {
-          this.events.add(editedSeries);
-          editedSeries = editedSeries.nextInSeries();
+        for (Event e = filtered.get(0).startOfSeries(); e != null; e = e.nextInSeries()) {
+          removed.add(e);
         }
+        edited = filtered.get(0).updateFullSeries(property, newPropertyValue);
         break;
       default:
         throw new IllegalArgumentException("Edit commands must specify whether they should be " +
                 "executed on one event, multiple events, or an entire series.");
     }
+
+    List<Event> added = new ArrayList<>();
+    if (eventType.equalsIgnoreCase("event")) {
+      added.add(edited);
+    } else {
+      for (Event e = edited; e != null; e = e.nextInSeries()) {
+        added.add(e);
+      }
+    }
+
+    this.checkNotSealed(added);
+    for (Event e : removed) {
+      this.discard(e);
+    }
+    try {
+      this.checkConflicts(added);
+    } catch (IllegalArgumentException e) {
+      for (Event old : removed) {
+        this.store(old);
+      }
+      throw e;
+    }
+    for (Event e : added) {
+      this.store(e);
+    }
   }
 
   @Override
   public List<Map<String, String>> getSchedule(String start, String end) {
-    LocalDateTime startTime = LocalDateTime.parse(start);
-    LocalDateTime endTime = LocalDateTime.parse(end);
-    List<Map<String, String>> schedule = new ArrayList<>();
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
 
     if (startTime.isAfter(endTime)) {
       throw new IllegalArgumentException("Start time cannot be after end time.");
     }
 
-    for (Event e : this.events) {
-      if (e.includes(startTime)
-              || e.includes(endTime)
-              || e.isInRange(startTime, endTime)) {
-        schedule.add(e.asScheduleItem());
+    return withSealed(this.cold, startTime, endTime, e -> true,
+            scheduleAt(this.visible(), start, end));
+  }
+
+  /**
+   * Finds the events meeting the given criteria by walking the text index when a subject prefix
+   * gives it words to look up, since the index only visits events containing them, and by
+   * scanning the range otherwise.
+   */
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end,
+                                               Map<String, String> filters) {
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+    EventFilter filter = EventFilter.compile(filters);
+    Predicate<Event> wanted = filter.and(e -> e.includes(startTime) || e.includes(endTime)
+            || e.isInRange(startTime, endTime));
+
+    String query = filter.indexQuery();
+    if (query == null) {
+      return withSealed(this.cold, startTime, endTime, filter, this.visible().collect(
+              startTime, endTime, wanted, Event::asScheduleItem));
+    }
+    List<Map<String, String>> results = new ArrayList<>();
+    Iterator<Event> first = this.visible().overlapping(null, startTime, endTime);
+    if (!first.hasNext()) {
+      return withSealed(this.cold, startTime, endTime, filter, results);
+    }
+    // no overlapping event starts before the first one the interval tree finds
+    for (Event match : this.text.search(query, first.next().start, endTime, wanted)) {
+      results.add(match.asScheduleItem());
+    }
+    return withSealed(this.cold, startTime, endTime, filter, results);
+  }
+
+  @Override
+  public SchedulePage getSchedulePage(String start, String end, String cursor, int limit) {
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+    if (limit < 1) {
+      throw new IllegalArgumentException("A page must hold at least one event.");
+    }
+
+    // a cursor holds the start time and subject of the last event on the previous page
+    LocalDateTime after = null;
+    String tiebreaker = null;
+    if (cursor != null) {
+      String[] position = decodeCursor(cursor);
+      after = DateTimes.parseDateTime(position[0]);
+      tiebreaker = position[1];
+    }
+
+    Iterator<Event> candidates = this.sealedThen(startTime, endTime,
+            this.visible().overlapping(after, startTime, endTime));
+    List<Map<String, String>> items = new ArrayList<>();
+    Event last = null;
+    while (candidates.hasNext()) {
+      Event e = candidates.next();
+      if (after != null && (e.start.isBefore(after)
+              || e.start.equals(after) && e.subject.compareTo(tiebreaker) <= 0)) {
+        continue;
+      }
+      if (e.includes(startTime) || e.includes(endTime) || e.isInRange(startTime, endTime)) {
+        if (items.size() == limit) {
+          return new SchedulePage(items, encodeCursor(last));
+        }
+        items.add(e.asScheduleItem());
+        last = e;
       }
     }
+    return new SchedulePage(items, null);
+  }
 
-    return schedule;
+  /**
+   * Encodes the position just after the given event as an opaque cursor.
+   */
+  private static String encodeCursor(Event last) {
+    String position = last.start + " " + last.subject;
+    return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor into the start time and subject of the event it follows.
+   */
+  private static String[] decodeCursor(String cursor) throws IllegalArgumentException {
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(cursor),
+              StandardCharsets.UTF_8);
+      String[] parts = position.split(" ", 2);
+      DateTimes.parseDateTime(parts[0]);
+      if (parts.length == 2) {
+        return parts;
+      }
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("The given cursor was not returned by this calendar.");
   }
 
   @Override
   public List<Map<String, String>> getSchedule(String day) {
-    LocalDateTime start = LocalDate.parse(day).atTime(0, 0);
-    LocalDateTime end = LocalDate.parse(day).atTime(23, 59);
-    return this.getSchedule(start.toString(), end.toString());
+    LocalDate date = DateTimes.parseDate(day);
+    if (this.dayCache != null) {
+      List<Map<String, String>> cached = this.dayCache.get(date);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    LocalDateTime start = date.atTime(0, 0);
+    LocalDateTime end = date.atTime(23, 59);
+    List<Map<String, String>> schedule = this.getSchedule(start.toString(), end.toString());
+
+    if (this.dayCache != null) {
+      schedule = Collections.unmodifiableList(schedule);
+      this.dayCache.put(date, schedule);
+    }
+    return schedule;
   }
 
   @Override
   public String getStatus(String dateTime) {
-    LocalDateTime time = LocalDateTime.parse(dateTime);
+    return statusOf(this.cold, this.visible(), DateTimes.parseDateTime(dateTime));
+  }
+
+  /**
+   * Retrieves the schedule in the given range as it was at the given version of this calendar.
+   * Versions replaced longer ago than the version retention window are no longer available.
+   *
+   * @param version the version to query, as returned by {@link #getVersion()}
+   * @param start   the start date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @param end     the end date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @return the events of that version overlapping the range, as with
+   *         {@link #getSchedule(String, String)}
+   * @throws IllegalArgumentException if the version is not retained or has not happened yet, or
+   *                                  the start is after the end
+   */
+  public List<Map<String, String>> getScheduleAsOf(long version, String start, String end)
+          throws IllegalArgumentException {
+    EventStore.Snapshot snapshot = this.history.at(version);
+    return withSealed(this.cold, DateTimes.parseDateTime(start), DateTimes.parseDateTime(end),
+        e -> true, scheduleAt(snapshot, start, end));
+  }
+
+  /**
+   * Retrieves the schedule in the given range as it was at the given moment.
+   *
+   * @param time  the moment to query
+   * @param start the start date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @param end   the end date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @return the events current at that moment overlapping the range
+   * @throws IllegalArgumentException if the version current at that moment is not retained, or
+   *                                  the start is after the end
+   */
+  public List<Map<String, String>> getScheduleAsOf(Instant time, String start, String end)
+          throws IllegalArgumentException {
+    return this.getScheduleAsOf(this.history.versionAt(time), start, end);
+  }
+
+  /**
+   * Retrieves the status of the user at the given date-time as it was at the given version of
+   * this calendar.
+   *
+   * @param version  the version to query, as returned by {@link #getVersion()}
+   * @param dateTime the date-time to check as a String in the format: YYYY-MM-DDThh:mm
+   * @return "busy" or "available", as with {@link #getStatus(String)}
+   * @throws IllegalArgumentException if the version is not retained or has not happened yet
+   */
+  public String getStatusAsOf(long version, String dateTime) throws IllegalArgumentException {
+    return statusOf(this.cold, this.history.at(version), DateTimes.parseDateTime(dateTime));
+  }
+
+  /**
+   * Retrieves the status of the user at the given date-time as it was at the given moment.
+   *
+   * @param time     the moment to query
+   * @param dateTime the date-time to check as a String in the format: YYYY-MM-DDThh:mm
+   * @return "busy" or "available", as with {@link #getStatus(String)}
+   * @throws IllegalArgumentException if the version current at that moment is not retained
+   */
+  public String getStatusAsOf(Instant time, String dateTime) throws IllegalArgumentException {
+    return this.getStatusAsOf(this.history.versionAt(time), dateTime);
+  }
+
+  /**
+   * Sets how long a version of this calendar can still be queried after it has been replaced,
+   * forgetting any versions that are now too old. The current version is always kept.
+   *
+   * @param retention how long to keep replaced versions
+   * @throws IllegalArgumentException if the retention is null or negative
+   */
+  public void setVersionRetention(Duration retention) throws IllegalArgumentException {
+    if (retention == null || retention.isNegative()) {
+      throw new IllegalArgumentException("Versions must be retained for a non-negative time.");
+    }
+    this.history.setRetention(retention);
+  }
+
+  /**
+   * Sets up cold storage, in which events that ended longer ago than the given horizon can be
+   * sealed by {@link #sealPastEvents()}. Sealed events are kept in compressed, immutable files in
+   * the given directory rather than in memory, and are only read back by queries whose ranges
+   * overlap them. Calling this again changes the horizon.
+   *
+   * @param directory the directory to keep sealed events in, which must not hold any yet
+   * @param horizon   how long ago an event must have ended for it to be sealed
+   * @throws IllegalArgumentException if either is null, the horizon is negative, or the
+   *                                  directory cannot be used
+   * @throws IllegalStateException    if events are already sealed in another directory
+   */
+  public void setColdStorage(Path directory, Duration horizon)
+          throws IllegalArgumentException, IllegalStateException {
+    if (directory == null || horizon == null || horizon.isNegative()) {
+      throw new IllegalArgumentException("Cold storage needs a directory and a non-negative "
+              + "horizon.");
+    }
+    if (this.cold == null || !directory.equals(this.coldDirectory)) {
+      if (this.cold != null && this.cold.size() > 0) {
+        throw new IllegalStateException("Events are already sealed in " + this.coldDirectory
+                + ".");
+      }
+      this.cold = new ColdTier(directory);
+      this.coldDirectory = directory;
+    }
+    this.sealingHorizon = horizon;
+  }
+
+  /**
+   * Seals every month of events that ended before the cold storage horizon, oldest first,
+   * stopping at the first month still holding an event that ended too recently. Once sealed,
+   * events can be queried but not edited, and no event can be created or moved to start before
+   * the end of the last sealed month. Since earlier versions of this calendar would hold the
+   * sealed events in memory again, sealing forgets the undo and redo history, checkpoints, and
+   * versions kept for historical queries. Sealing is not a change, so the version of this
+   * calendar stays the same and subscribers are not notified.
+   *
+   * @return the number of events sealed
+   * @throws IllegalStateException if cold storage has not been set up, a batch of changes is
+   *                               being applied, or the events could not be written
+   */
+  public int sealPastEvents() throws IllegalStateException {
+    if (this.cold == null) {
+      throw new IllegalStateException("Cold storage has not been set up for this calendar.");
+    }
+    if (this.batchStart != null) {
+      throw new IllegalStateException("Events cannot be sealed while a batch of changes is "
+              + "being applied.");
+    }
+    LocalDateTime cutoff = LocalDateTime.now(Clock.systemUTC()).minus(this.sealingHorizon);
+
+    List<List<Event>> months = new ArrayList<>();
+    List<Event> month = new ArrayList<>();
+    LocalDateTime monthEnd = null;
     for (Event e : this.events) {
-      if (e.includes(time)) {
-        return Availability.BUSY.toString();
+      if (!month.isEmpty() && !e.start.isBefore(monthEnd)) {
+        months.add(month);
+        month = new ArrayList<>();
+      }
+      if (month.isEmpty()) {
+        monthEnd = e.start.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
       }
+      if (monthEnd.isAfter(cutoff) || !e.end.isBefore(cutoff)) {
+        month.clear();
+        break;
+      }
+      month.add(e);
+    }
+    if (!month.isEmpty()) {
+      months.add(month);
+    }
+
+    int sealed = 0;
+    for (List<Event> full : months) {
+      this.cold.seal(full);
+      for (Event e : full) {
+        this.events.remove(e);
+        this.estimatedBytes -= ENTRY_BYTES + e.estimatedBytes();
+        this.text.remove(e);
+        this.dictionary.release(e.subject);
+        this.dictionary.release(e.description);
+        if (e.series != null) {
+          this.countOccurrence(e, -1);
+          this.markStale(e);
+          e.removeFromSeries();
+        }
+      }
+      sealed += full.size();
+      this.sealedBefore = full.get(0).start.toLocalDate().withDayOfMonth(1).plusMonths(1)
+              .atStartOfDay();
+    }
+    this.recordSeries();
+    if (sealed > 0) {
+      this.undoHistory.clear();
+      this.redoHistory.clear();
+      this.checkpoints.clear();
+      this.history.restart(this.getVersion(), this.events.snapshot());
+    }
+    return sealed;
+  }
+
+  /**
+   * Rejects new or edited events that would start among the sealed events.
+   *
+   * @param occurrences the events about to be stored
+   * @throws IllegalArgumentException if any of them starts before the end of the sealed months
+   */
+  private void checkNotSealed(List<Event> occurrences) throws IllegalArgumentException {
+    if (this.sealedBefore == null) {
+      return;
+    }
+    for (Event e : occurrences) {
+      if (e.start.isBefore(this.sealedBefore)) {
+        throw new IllegalArgumentException("Events before " + this.sealedBefore
+                + " have been sealed and can no longer be changed.");
+      }
+    }
+  }
+
+  /**
+   * Puts the events of the given cold tier overlapping the given range that pass the given
+   * filter before the given schedule of stored events, which all start later than any sealed
+   * event.
+   */
+  static List<Map<String, String>> withSealed(ColdTier cold, LocalDateTime startTime,
+                                              LocalDateTime endTime, Predicate<Event> filter,
+                                              List<Map<String, String>> stored) {
+    List<Event> sealed = cold == null ? Collections.emptyList()
+            : cold.overlapping(startTime, endTime);
+    if (sealed.isEmpty()) {
+      return stored;
+    }
+    List<Map<String, String>> all = new ArrayList<>();
+    for (Event e : sealed) {
+      if (filter.test(e)) {
+        all.add(e.asScheduleItem());
+      }
+    }
+    all.addAll(stored);
+    return all;
+  }
+
+  /**
+   * Iterates over the sealed events overlapping the given range and then the given stored
+   * events.
+   */
+  private Iterator<Event> sealedThen(LocalDateTime startTime, LocalDateTime endTime,
+                                     Iterator<Event> stored) {
+    if (this.cold == null) {
+      return stored;
+    }
+    Iterator<Event> sealed = this.cold.overlapping(startTime, endTime).iterator();
+    return new Iterator<Event>() {
+      @Override
+      public boolean hasNext() {
+        return sealed.hasNext() || stored.hasNext();
+      }
+
+      @Override
+      public Event next() {
+        return sealed.hasNext() ? sealed.next() : stored.next();
+      }
+    };
+  }
+
+  /**
+   * Determines whether any event of the given cold tier or of the given version includes the
+   * given time, as with {@link #statusAt(EventStore.Snapshot, LocalDateTime)}.
+   */
+  static String statusOf(ColdTier cold, EventStore.Snapshot snapshot, LocalDateTime time) {
+    if (cold != null && !cold.overlapping(time, time).isEmpty()) {
+      return Availability.BUSY.toString();
+    }
+    return statusAt(snapshot, time);
+  }
+
+  /**
+   * Finds the events of the given version that overlap the given range through the version's
+   * interval tree.
+   */
+  static List<Map<String, String>> scheduleAt(EventStore.Snapshot snapshot, String start,
+                                              String end) {
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+
+    return snapshot.collect(startTime, endTime,
+            e -> e.includes(startTime) || e.includes(endTime) || e.isInRange(startTime, endTime),
+            Event::asScheduleItem);
+  }
+
+  /**
+   * Determines whether any event of the given version includes the given time, as with
+   * {@link #scheduleAt(EventStore.Snapshot, String, String)}.
+   */
+  static String statusAt(EventStore.Snapshot snapshot, LocalDateTime time) {
+    if (snapshot.overlapping(null, time, time).hasNext()) {
+      return Availability.BUSY.toString();
     }
     return Availability.AVAILABLE.toString();
   }
 
+  /**
+   * Subscribes the given listener to changes to the events overlapping the given window. After
+   * each create or edit that adds, edits or removes such events, the listener is sent the
+   * changed occurrences on a notification thread, so a slow listener does not delay changes to
+   * this calendar.
+   *
+   * @param start    the start date-time of the window as a String in the format:
+   *                 YYYY-MM-DDThh:mm
+   * @param end      the end date-time of the window as a String in the format:
+   *                 YYYY-MM-DDThh:mm
+   * @param listener the listener to notify of changes
+   * @return a Subscription that can be cancelled to stop the notifications
+   * @throws IllegalArgumentException if the listener is null or the start is after the end
+   */
+  public Subscription subscribe(String start, String end, ScheduleListener listener)
+          throws IllegalArgumentException {
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
+    if (listener == null) {
+      throw new IllegalArgumentException("A subscription needs a listener to notify.");
+    }
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+    return this.feed.subscribe(startTime, endTime, listener);
+  }
+
+  /**
+   * Captures the current events of this calendar, including those sealed so far, along with its
+   * version, so that they can be queried from other threads while this calendar goes on
+   * changing.
+   *
+   * @return an immutable view of the calendar's current events
+   */
+  PublishedSchedule publishSchedule() {
+    return new PublishedSchedule(this.events.snapshot(),
+            this.cold == null ? null : this.cold.sealedSoFar(), this.getVersion());
+  }
+
+  /**
+   * Returns the version of this calendar, which goes up by one with every create or edit that
+   * changes any event.
+   *
+   * @return the current version, 0 if no event has been changed yet
+   */
+  public long getVersion() {
+    return this.feed.version();
+  }
+
+  /**
+   * Retrieves the latest state of every occurrence created, edited or removed after the given
+   * version, so a client holding the schedule as of that version can catch up without
+   * downloading it again. If the oldest of those changes has been trimmed from this calendar's
+   * change log, the result instead asks the client to resynchronize from scratch.
+   *
+   * @param version the version the client last synchronized at, 0 for a new client
+   * @return the changes since that version along with the current version
+   * @throws IllegalArgumentException if the given version is after the current version
+   */
+  public ScheduleDelta changesSince(long version) throws IllegalArgumentException {
+    return this.feed.changesSince(version);
+  }
+
+  /**
+   * Sets how many recent changes this calendar keeps for {@link #changesSince(long)}. Clients
+   * further behind than that must resynchronize from scratch.
+   *
+   * @param capacity the maximum number of changes to keep
+   * @throws IllegalArgumentException if the capacity is negative
+   */
+  public void setChangeLogCapacity(int capacity) throws IllegalArgumentException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("The change log cannot have a negative capacity.");
+    }
+    this.feed.setLogCapacity(capacity);
+  }
+
+  @Override
+  public Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+    LocalDate first = DateTimes.parseDate(firstDay);
+    LocalDate last = DateTimes.parseDate(lastDay);
+    if (first.isAfter(last)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+
+    long[] sums = this.rollup.sum(first, last);
+    Map<String, Long> totals = new LinkedHashMap<>();
+    totals.put("minutes", sums[0]);
+    totals.put("events", sums[1]);
+    return totals;
+  }
+
+  @Override
+  public List<Map<String, String>> search(String query, String start, String end) {
+    if (query == null) {
+      throw new IllegalArgumentException("A search must include at least one word.");
+    }
+    LocalDateTime startTime = start == null ? LocalDateTime.MIN : DateTimes.parseDateTime(start);
+    LocalDateTime endTime = end == null ? LocalDateTime.MAX : DateTimes.parseDateTime(end);
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+
+    List<Map<String, String>> results = new ArrayList<>();
+    if (this.cold != null) {
+      // sealed events are not in the text index, so index the few that could match
+      TextIndex sealed = new TextIndex();
+      this.cold.overlapping(startTime, endTime).forEach(sealed::add);
+      for (Event match : sealed.search(query, LocalDateTime.MIN, LocalDateTime.MAX, e -> true)) {
+        results.add(match.asScheduleItem());
+      }
+    }
+    // no stored event overlapping the range starts before the first one the interval tree finds
+    LocalDateTime firstStart = startTime;
+    if (start != null) {
+      Iterator<Event> first = this.visible().overlapping(null, startTime, endTime);
+      firstStart = first.hasNext() ? first.next().start : endTime;
+    }
+    for (Event match : this.text.search(query, firstStart, endTime,
+        e -> start == null || e.includes(startTime) || e.includes(endTime)
+                || e.isInRange(startTime, endTime))) {
+      results.add(match.asScheduleItem());
+    }
+    return results;
+  }
+
+  @Override
+  public Iterator<TimeSlot> busySlots(String start, String end) {
+    LocalDateTime startTime = DateTimes.parseDateTime(start);
+    LocalDateTime endTime = DateTimes.parseDateTime(end);
+    if (startTime.isAfter(endTime)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+
+    Iterator<Event> found = this.sealedThen(startTime, endTime,
+            this.visible().overlapping(null, startTime, endTime));
+    return new Iterator<TimeSlot>() {
+      @Override
+      public boolean hasNext() {
+        return found.hasNext();
+      }
+
+      @Override
+      public TimeSlot next() {
+        Event e = found.next();
+        return new TimeSlot(e.start, e.end);
+      }
+    };
+  }
+
+  /**
+   * Lazily finds the events that start/end within or overlap the given range, in order of their
+   * start times. Only the overlapping events and the paths to them in the stored events'
+   * interval tree are visited, rather than every event in this calendar.
+   *
+   * @param startTime the beginning of the range
+   * @param endTime   the end of the range
+   * @return an Iterator over every event that includes some time in the range
+   */
+  private Iterator<Event> overlapping(LocalDateTime startTime, LocalDateTime endTime) {
+    return this.events.overlapping(startTime, endTime);
+  }
+
+  /**
+   * Retrieves the counts of hits, misses and evictions of this calendar's day cache, along with
+   * the number of days currently cached. Every count is zero if this calendar has no day cache.
+   *
+   * @return a map with the keys "hits", "misses", "evictions" and "size"
+   */
+  public Map<String, Long> getCacheStatistics() {
+    if (this.dayCache == null) {
+      Map<String, Long> none = new LinkedHashMap<>();
+      none.put("hits", 0L);
+      none.put("misses", 0L);
+      none.put("evictions", 0L);
+      none.put("size", 0L);
+      return none;
+    }
+    return this.dayCache.statistics();
+  }
+
+  @Override
+  public Map<String, Long> getMemoryUsage() {
+    long events = this.events.size();
+    long occurrences = 0;
+    for (int count : this.seriesOccurrences.values()) {
+      occurrences += count;
+    }
+    long series = this.seriesOccurrences.size();
+    long[] bytes = {events * Event.OBJECT_BYTES, events * 2 * Event.DATE_TIME_BYTES,
+        series * SERIES_BYTES + occurrences * OCCURRENCE_BYTES, this.dictionary.estimatedBytes(),
+        events * ENTRY_BYTES + this.text.estimatedBytes() + this.rollup.estimatedBytes()};
+
+    Map<String, Long> usage = new LinkedHashMap<>();
+    usage.put("events", events);
+    usage.put("series", series);
+    usage.put("eventBytes", bytes[0]);
+    usage.put("dateTimeBytes", bytes[1]);
+    usage.put("seriesBytes", bytes[2]);
+    usage.put("stringBytes", bytes[3]);
+    usage.put("indexBytes", bytes[4]);
+    usage.put("totalBytes", bytes[0] + bytes[1] + bytes[2] + bytes[3] + bytes[4]);
+    usage.put("sealedEvents", this.cold == null ? 0L : this.cold.size());
+    usage.put("sealedDiskBytes", this.cold == null ? 0L : this.cold.diskBytes());
+    return usage;
+  }
+
+  /**
+   * Estimates the number of bytes of heap retained by the events in this calendar, counting
+   * each distinct subject and description once. The estimate is kept up to date as events are
+   * added and removed rather than computed on request.
+   *
+   * @return the approximate retained size of this calendar in bytes
+   */
+  long estimatedBytes() {
+    return this.estimatedBytes + this.dictionary.estimatedBytes();
+  }
+
+  /**
+   * Writes every event in this calendar to the given stream in a compact binary form that can be
+   * read back with {@link #readFrom(InputStream)}. Sealed events are written too, and are read
+   * back into memory like the rest. The conflict policy is written first, as one byte.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing to the stream fails
+   */
+  void writeTo(OutputStream out) throws IOException {
+    out.write(this.conflictPolicy.ordinal());
+    List<Event> all = this.cold == null ? new ArrayList<>() : this.cold.all();
+    this.events.forEach(all::add);
+    EventCodec.write(all, out);
+  }
+
+  /**
+   * Constructs a calendar holding the events written to the given stream by
+   * {@link #writeTo(OutputStream)}.
+   *
+   * @param in the stream to read from
+   * @return a new CalendarModelImpl with the stored events and conflict policy
+   * @throws IOException if reading from the stream fails or it does not hold a calendar
+   */
+  static CalendarModelImpl readFrom(InputStream in) throws IOException {
+    int policy = in.read();
+    if (policy < 0 || policy >= ConflictPolicy.values().length) {
+      throw new IOException("The given stream does not hold a stored calendar.");
+    }
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.conflictPolicy = ConflictPolicy.values()[policy];
+    for (Event e : EventCodec.read(in)) {
+      calendar.store(e);
+    }
+    calendar.publish();
+    return calendar;
+  }
+
   /**
    * An enumeration representing the possible statuses of a user: busy or available.
    */
@@ -0,0 +1,452 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hosts many named calendars in one process. A calendar is loaded the first time it is asked
+ * for, and whenever the calendars held in memory are estimated to use more heap than the
+ * configured budget, the least recently used ones are written to a compact file in the storage
+ * directory and dropped until they are asked for again.
+ *
+ * <p>The calendars handed out are handles that find the named calendar again for every
+ * operation, loading it back if it was evicted, and keep it from being evicted until the
+ * operation is done. Handles can therefore be held on to, and shared between threads, without
+ * changes ever being made to a calendar that has already been written out. Operations on the
+ * calendars of one registry are run one at a time.</p>
+ *
+ * <p>A stored calendar keeps its events and its conflict policy. Its undo and redo history and
+ * its checkpoints are only kept while it is loaded, so they are lost when it is evicted.</p>
+ */
+public class CalendarRegistry {
+
+  private static final String EXTENSION = ".cal";
+
+  private final Path directory;
+
+  private final long heapBudget;
+
+  // access-ordered, so iteration starts from the least recently used calendar
+  private final Map<String, CalendarModelImpl> loaded;
+
+  // the number of operations under way on each calendar, which must not be evicted until done
+  private final Map<String, Integer> inUse;
+
+  /**
+   * Constructs a registry that stores evicted calendars in the given directory and keeps the
+   * calendars held in memory within the given estimated number of bytes.
+   *
+   * @param directory  the directory that evicted calendars are written to and loaded from
+   * @param heapBudget the approximate number of bytes the loaded calendars may use
+   * @throws IllegalArgumentException if the directory is null, cannot be created, or the budget
+   *                                  is not positive
+   */
+  public CalendarRegistry(Path directory, long heapBudget) throws IllegalArgumentException {
+    if (directory == null || heapBudget <= 0) {
+      throw new IllegalArgumentException("A registry needs a storage directory and a positive " +
+              "heap budget.");
+    }
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("The storage directory " + directory + " could not be " +
+              "created.");
+    }
+    this.directory = directory;
+    this.heapBudget = heapBudget;
+    this.loaded = new LinkedHashMap<>(16, 0.75f, true);
+    this.inUse = new HashMap<>();
+  }
+
+  /**
+   * Retrieves the calendar with the given name, loading it from storage if it was evicted or
+   * creating an empty one if it has never been used. The calendar returned finds the named
+   * calendar again for each operation, so it stays usable after being evicted.
+   *
+   * @param name the name of the calendar, made of letters, digits, '-' and '_'
+   * @return the calendar with the given name
+   * @throws IllegalArgumentException if the name is not valid
+   * @throws IllegalStateException    if the calendar could not be read from or written to storage
+   */
+  public synchronized CalendarModel get(String name) {
+    this.find(name);
+    return new Handle(name);
+  }
+
+  /**
+   * Sets how the named calendar treats a created or edited event that overlaps an event it
+   * already holds, as with {@link CalendarModelImpl#setConflictPolicy(ConflictPolicy)}. The
+   * policy is stored along with the calendar's events.
+   *
+   * @param name   the name of the calendar
+   * @param policy the ConflictPolicy to apply to later creates and edits
+   * @throws IllegalArgumentException if the name is not valid or the policy is null
+   * @throws IllegalStateException    if the calendar could not be read from or written to storage
+   */
+  public synchronized void setConflictPolicy(String name, ConflictPolicy policy) {
+    this.use(name, calendar -> {
+      calendar.setConflictPolicy(policy);
+      return null;
+    });
+  }
+
+  /**
+   * Determines whether the given text can name a calendar.
+   *
+   * @param name the name to check
+   * @return true if the name is made of letters, digits, '-' and '_'
+   */
+  public static boolean isValidName(String name) {
+    return name != null && name.matches("[A-Za-z0-9_-]+");
+  }
+
+  /**
+   * Retrieves the names of every calendar in this registry, whether it is loaded or stored.
+   *
+   * @return the names of the calendars, in no particular order
+   * @throws IllegalStateException if the storage directory could not be listed
+   */
+  public synchronized Set<String> names() {
+    Set<String> names = new HashSet<>(this.loaded.keySet());
+    try (DirectoryStream<Path> stored = Files.newDirectoryStream(this.directory,
+            "*" + EXTENSION)) {
+      for (Path file : stored) {
+        String fileName = file.getFileName().toString();
+        names.add(fileName.substring(0, fileName.length() - EXTENSION.length()));
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("The storage directory could not be listed: "
+              + e.getMessage());
+    }
+    return names;
+  }
+
+  /**
+   * Writes the named calendar in the compact form it is stored in, such as to move it to another
+   * registry with {@link #importCalendar(String, byte[])}.
+   *
+   * @param name the name of the calendar
+   * @return the stored form of the calendar
+   * @throws IllegalArgumentException if the name is not valid
+   * @throws IllegalStateException    if the calendar could not be read from storage
+   */
+  public synchronized byte[] exportCalendar(String name) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      this.find(name).writeTo(out);
+    } catch (IOException e) {
+      throw new IllegalStateException("The calendar " + name + " could not be written: "
+              + e.getMessage());
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Replaces the named calendar with one written by {@link #exportCalendar(String)}.
+   *
+   * @param name the name of the calendar
+   * @param data the stored form of the calendar
+   * @throws IllegalArgumentException if the name is not valid or the data is not a calendar
+   */
+  public synchronized void importCalendar(String name, byte[] data) {
+    if (!isValidName(name)) {
+      throw new IllegalArgumentException("Calendar names may only contain letters, digits, '-' " +
+              "and '_'.");
+    }
+    CalendarModelImpl calendar;
+    try {
+      calendar = CalendarModelImpl.readFrom(new ByteArrayInputStream(data));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("The data for calendar " + name + " is not a calendar: "
+              + e.getMessage());
+    }
+    this.loaded.put(name, calendar);
+    this.save(name, calendar);
+    this.evictOver(name);
+  }
+
+  /**
+   * Deletes the named calendar from memory and storage, such as once it has been moved to
+   * another registry.
+   *
+   * @param name the name of the calendar
+   * @throws IllegalStateException if the stored calendar could not be deleted
+   */
+  public synchronized void remove(String name) {
+    if (this.inUse.containsKey(name)) {
+      throw new IllegalStateException("The calendar " + name + " cannot be deleted while it is "
+              + "in use.");
+    }
+    this.loaded.remove(name);
+    try {
+      Files.deleteIfExists(this.directory.resolve(name + EXTENSION));
+    } catch (IOException e) {
+      throw new IllegalStateException("The calendar " + name + " could not be deleted: "
+              + e.getMessage());
+    }
+  }
+
+  /**
+   * Retrieves the approximate number of bytes used by each calendar currently held in memory.
+   *
+   * @return a map from the name of each loaded calendar to its estimated size in bytes
+   */
+  public synchronized Map<String, Long> memoryUsage() {
+    Map<String, Long> usage = new LinkedHashMap<>();
+    for (Map.Entry<String, CalendarModelImpl> entry : this.loaded.entrySet()) {
+      usage.put(entry.getKey(), entry.getValue().estimatedBytes());
+    }
+    return usage;
+  }
+
+  /**
+   * Writes every calendar held in memory to storage, such as before the program exits.
+   *
+   * @throws IllegalStateException if a calendar could not be written
+   */
+  public synchronized void flush() {
+    for (Map.Entry<String, CalendarModelImpl> entry : this.loaded.entrySet()) {
+      this.save(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Applies the given operation to the named calendar, keeping the calendar from being evicted
+   * until the operation is done, even if the operation uses other calendars of this registry.
+   *
+   * @param name      the name of the calendar
+   * @param operation the operation to apply
+   * @param <R>       the type of the operation's result
+   * @return the result of the operation
+   */
+  private synchronized <R> R use(String name, Function<CalendarModelImpl, R> operation) {
+    CalendarModelImpl calendar = this.find(name);
+    this.inUse.merge(name, 1, Integer::sum);
+    try {
+      return operation.apply(calendar);
+    } finally {
+      this.inUse.computeIfPresent(name, (key, count) -> count == 1 ? null : count - 1);
+    }
+  }
+
+  /**
+   * Retrieves the live calendar with the given name, loading it if it is not loaded.
+   */
+  private CalendarModelImpl find(String name) {
+    if (!isValidName(name)) {
+      throw new IllegalArgumentException("Calendar names may only contain letters, digits, '-' " +
+              "and '_'.");
+    }
+
+    CalendarModelImpl calendar = this.loaded.get(name);
+    if (calendar == null) {
+      calendar = this.load(name);
+      this.loaded.put(name, calendar);
+    }
+    this.evictOver(name);
+    return calendar;
+  }
+
+  /**
+   * Writes out and drops the least recently used calendars until the loaded calendars fit in the
+   * heap budget. The named calendar and the calendars in use are never evicted, even if they
+   * alone are over budget.
+   *
+   * @param keep the name of the calendar that must stay loaded
+   */
+  private void evictOver(String keep) {
+    long total = 0;
+    for (CalendarModelImpl calendar : this.loaded.values()) {
+      total += calendar.estimatedBytes();
+    }
+
+    Iterator<Map.Entry<String, CalendarModelImpl>> lru = this.loaded.entrySet().iterator();
+    while (total > this.heapBudget && lru.hasNext()) {
+      Map.Entry<String, CalendarModelImpl> coldest = lru.next();
+      if (coldest.getKey().equals(keep) || this.inUse.containsKey(coldest.getKey())) {
+        continue;
+      }
+      this.save(coldest.getKey(), coldest.getValue());
+      total -= coldest.getValue().estimatedBytes();
+      lru.remove();
+    }
+  }
+
+  /**
+   * Reads the named calendar from storage, or creates an empty one if it was never stored.
+   */
+  private CalendarModelImpl load(String name) {
+    Path file = this.directory.resolve(name + EXTENSION);
+    if (!Files.exists(file)) {
+      return new CalendarModelImpl();
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      return CalendarModelImpl.readFrom(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("The calendar " + name + " could not be loaded: "
+              + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the given calendar to storage under its name, replacing any earlier copy only once
+   * the new one is complete.
+   */
+  private void save(String name, CalendarModelImpl calendar) {
+    Path file = this.directory.resolve(name + EXTENSION);
+    Path partial = this.directory.resolve(name + EXTENSION + ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+        calendar.writeTo(out);
+      }
+      Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new IllegalStateException("The calendar " + name + " could not be stored: "
+              + e.getMessage());
+    }
+  }
+
+  /**
+   * A calendar of this registry that looks up the named calendar for every operation, so that
+   * it reaches the calendar loaded at the time rather than one that has since been evicted.
+   */
+  private final class Handle implements CalendarModel {
+
+    private final String name;
+
+    /**
+     * Constructs a handle on the named calendar.
+     *
+     * @param name the valid name of a calendar of this registry
+     */
+    private Handle(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void createEvent(Map<String, String> properties) {
+      use(this.name, calendar -> {
+        calendar.createEvent(properties);
+        return null;
+      });
+    }
+
+    @Override
+    public void editEvent(String eventType, String property, Map<String, String> identifier,
+                          String newPropertyValue) {
+      use(this.name, calendar -> {
+        calendar.editEvent(eventType, property, identifier, newPropertyValue);
+        return null;
+      });
+    }
+
+    @Override
+    public List<Map<String, String>> getSchedule(String start, String end) {
+      return use(this.name, calendar -> calendar.getSchedule(start, end));
+    }
+
+    @Override
+    public List<Map<String, String>> getSchedule(String start, String end,
+                                                 Map<String, String> filters) {
+      return use(this.name, calendar -> calendar.getSchedule(start, end, filters));
+    }
+
+    @Override
+    public SchedulePage getSchedulePage(String start, String end, String cursor, int limit) {
+      return use(this.name, calendar -> calendar.getSchedulePage(start, end, cursor, limit));
+    }
+
+    @Override
+    public List<Map<String, String>> getSchedule(String day) {
+      return use(this.name, calendar -> calendar.getSchedule(day));
+    }
+
+    @Override
+    public String getStatus(String dateTime) {
+      return use(this.name, calendar -> calendar.getStatus(dateTime));
+    }
+
+    @Override
+    public Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+      return use(this.name, calendar -> calendar.getBusyTotals(firstDay, lastDay));
+    }
+
+    /**
+     * Finds the busy slots as with {@link CalendarModel#busySlots(String, String)}. The slots
+     * come from the version of the calendar current when this is called, so they can be
+     * iterated over after the calendar is evicted.
+     */
+    @Override
+    public Iterator<TimeSlot> busySlots(String start, String end) {
+      return use(this.name, calendar -> calendar.busySlots(start, end));
+    }
+
+    @Override
+    public List<Map<String, String>> search(String query, String start, String end) {
+      return use(this.name, calendar -> calendar.search(query, start, end));
+    }
+
+    @Override
+    public Map<String, Long> getMemoryUsage() {
+      return use(this.name, CalendarModelImpl::getMemoryUsage);
+    }
+
+    @Override
+    public void undo() {
+      use(this.name, calendar -> {
+        calendar.undo();
+        return null;
+      });
+    }
+
+    @Override
+    public void redo() {
+      use(this.name, calendar -> {
+        calendar.redo();
+        return null;
+      });
+    }
+
+    @Override
+    public void checkpoint(String checkpoint) {
+      use(this.name, calendar -> {
+        calendar.checkpoint(checkpoint);
+        return null;
+      });
+    }
+
+    @Override
+    public void restoreCheckpoint(String checkpoint) {
+      use(this.name, calendar -> {
+        calendar.restoreCheckpoint(checkpoint);
+        return null;
+      });
+    }
+
+    @Override
+    public void transact(Consumer<CalendarModel> changes) {
+      use(this.name, calendar -> {
+        calendar.transact(changes);
+        return null;
+      });
+    }
+  }
+}
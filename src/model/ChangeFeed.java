@@ -0,0 +1,384 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collects the events a calendar adds, removes and edits during one create or edit, stamps them
+ * with a new version in a bounded log of recent changes, then notifies each subscribed listener
+ * of the changes within its window. Listeners are called on notification threads, one batch at a
+ * time per listener, so a slow listener never holds up the calendar. Changes that arrive while a
+ * listener is busy are coalesced into its next batch.
+ */
+final class ChangeFeed {
+
+  private final Map<Subscription, Window> windows;
+
+  private final List<Change> changes;
+
+  private ExecutorService dispatcher;
+
+  private long version;
+
+  private final Deque<LoggedChange> log;
+
+  private int logCapacity;
+
+  // clients at a version before this one have missed changes that were trimmed from the log
+  private long trimmedThrough;
+
+  /**
+   * Constructs a feed with no subscribers that remembers up to the given number of changes.
+   *
+   * @param logCapacity the maximum number of changes kept for delta synchronization
+   */
+  ChangeFeed(int logCapacity) {
+    this.windows = new ConcurrentHashMap<>();
+    this.changes = new ArrayList<>();
+    this.dispatcher = null;
+    this.version = 0;
+    this.log = new ArrayDeque<>();
+    this.logCapacity = logCapacity;
+    this.trimmedThrough = 0;
+  }
+
+  /**
+   * Subscribes the given listener to changes to events overlapping the given window.
+   *
+   * @param start    the start of the window
+   * @param end      the end of the window
+   * @param listener the listener to notify
+   * @return the handle on the new subscription
+   */
+  synchronized Subscription subscribe(LocalDateTime start, LocalDateTime end,
+                                      ScheduleListener listener) {
+    if (this.dispatcher == null) {
+      this.dispatcher = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "schedule-notifier");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    Subscription subscription = new Subscription(this);
+    this.windows.put(subscription, new Window(start, end, listener));
+    return subscription;
+  }
+
+  /**
+   * Stops notifying the listener of the given subscription.
+   *
+   * @param subscription the subscription to cancel
+   */
+  void cancel(Subscription subscription) {
+    this.windows.remove(subscription);
+  }
+
+  /**
+   * Records that the given event was added to the calendar.
+   *
+   * @param event the added event
+   */
+  void added(Event event) {
+    this.changes.add(new Change("created", event));
+  }
+
+  /**
+   * Records that the given event was removed from the calendar.
+   *
+   * @param event the removed event
+   */
+  void removed(Event event) {
+    this.changes.add(new Change("removed", event));
+  }
+
+  /**
+   * Records that the given edited copy took the place of an event in the calendar.
+   *
+   * @param event the edited event
+   */
+  void edited(Event event) {
+    this.changes.add(new Change("edited", event));
+  }
+
+  /**
+   * Logs the recorded changes under a new version and notifies every subscribed listener of the
+   * ones within its window, then forgets them. An event removed and then replaced by another
+   * starting at the same time counts as one edit, and an event removed and then put back
+   * unchanged does not count at all. Nothing is logged if nothing changed.
+   */
+  void publish() {
+    if (this.changes.isEmpty()) {
+      return;
+    }
+    List<Change> merged = this.merge();
+    this.changes.clear();
+    if (merged.isEmpty()) {
+      return;
+    }
+    this.log(merged);
+
+    for (Window window : this.windows.values()) {
+      List<Map<String, String>> relevant = new ArrayList<>();
+      for (Change change : merged) {
+        if (change.event.includes(window.start) || change.event.includes(window.end)
+                || change.event.isInRange(window.start, window.end)) {
+          Map<String, String> item = new HashMap<>(change.event.asScheduleItem());
+          item.put("change", change.kind);
+          relevant.add(item);
+        }
+      }
+      if (!relevant.isEmpty()) {
+        window.offer(relevant, this.dispatcher);
+      }
+    }
+  }
+
+  /**
+   * Returns the version of the most recent change.
+   *
+   * @return the current version, 0 if nothing has changed yet
+   */
+  synchronized long version() {
+    return this.version;
+  }
+
+  /**
+   * Changes how many changes are kept for delta synchronization, trimming the oldest if there
+   * are now too many.
+   *
+   * @param capacity the maximum number of changes to keep
+   */
+  synchronized void setLogCapacity(int capacity) {
+    this.logCapacity = capacity;
+    this.trim();
+  }
+
+  /**
+   * Finds the latest state of every occurrence changed after the given version. An occurrence
+   * created and then removed since that version is left out entirely, and one created and then
+   * edited is reported as created.
+   *
+   * @param since the version the client last synchronized at
+   * @return the changes since that version, or a delta requiring a resync if some were trimmed
+   * @throws IllegalArgumentException if the version is in the future
+   */
+  synchronized ScheduleDelta changesSince(long since) throws IllegalArgumentException {
+    if (since > this.version) {
+      throw new IllegalArgumentException("Version " + since + " has not happened yet. The latest " +
+              "version is " + this.version + ".");
+    }
+    if (since < this.trimmedThrough) {
+      return new ScheduleDelta(this.version, true, new ArrayList<>());
+    }
+
+    List<LoggedChange> recent = new ArrayList<>();
+    Iterator<LoggedChange> newestFirst = this.log.descendingIterator();
+    while (newestFirst.hasNext()) {
+      LoggedChange logged = newestFirst.next();
+      if (logged.version <= since) {
+        break;
+      }
+      recent.add(0, logged);
+    }
+
+    Map<LocalDateTime, String> firstKinds = new HashMap<>();
+    Map<LocalDateTime, Change> latest = new LinkedHashMap<>();
+    for (LoggedChange logged : recent) {
+      LocalDateTime key = logged.change.event.start;
+      firstKinds.putIfAbsent(key, logged.change.kind);
+      latest.remove(key);
+      latest.put(key, logged.change);
+    }
+
+    List<Map<String, String>> delta = new ArrayList<>();
+    for (Map.Entry<LocalDateTime, Change> entry : latest.entrySet()) {
+      boolean createdSince = firstKinds.get(entry.getKey()).equals("created");
+      String kind = entry.getValue().kind;
+      if (kind.equals("removed")) {
+        if (createdSince) {
+          continue;
+        }
+      } else {
+        kind = createdSince ? "created" : "edited";
+      }
+      Map<String, String> item = new HashMap<>(entry.getValue().event.asScheduleItem());
+      item.put("change", kind);
+      delta.add(item);
+    }
+    return new ScheduleDelta(this.version, false, delta);
+  }
+
+  /**
+   * Appends the given changes to the log under a new version.
+   */
+  private synchronized void log(List<Change> merged) {
+    this.version++;
+    for (Change change : merged) {
+      this.log.addLast(new LoggedChange(this.version, change));
+    }
+    this.trim();
+  }
+
+  /**
+   * Drops the oldest changes until the log is within its capacity.
+   */
+  private void trim() {
+    while (this.log.size() > this.logCapacity) {
+      this.trimmedThrough = this.log.removeFirst().version;
+    }
+  }
+
+  /**
+   * Pairs each removed event with an event added at the same start time during the same change.
+   */
+  private List<Change> merge() {
+    Map<LocalDateTime, Event> addedByStart = new HashMap<>();
+    for (Change change : this.changes) {
+      if (change.kind.equals("created")) {
+        addedByStart.put(change.event.start, change.event);
+      }
+    }
+
+    List<Change> merged = new ArrayList<>();
+    for (Change change : this.changes) {
+      switch (change.kind) {
+        case "removed":
+          Event replacement = addedByStart.remove(change.event.start);
+          if (replacement == null) {
+            merged.add(change);
+          } else if (replacement != change.event) {
+            merged.add(new Change("edited", replacement));
+          }
+          break;
+        case "created":
+          if (addedByStart.get(change.event.start) == change.event) {
+            merged.add(change);
+          }
+          break;
+        default:
+          merged.add(change);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * One recorded change to an event.
+   */
+  private static class Change {
+
+    private final String kind;
+
+    private final Event event;
+
+    /**
+     * Constructs a change of the given kind to the given event.
+     *
+     * @param kind  one of "created", "removed" or "edited"
+     * @param event the event that changed
+     */
+    private Change(String kind, Event event) {
+      this.kind = kind;
+      this.event = event;
+    }
+  }
+
+  /**
+   * A change kept in the log along with the version it was made in.
+   */
+  private static class LoggedChange {
+
+    private final long version;
+
+    private final Change change;
+
+    /**
+     * Constructs a logged change.
+     *
+     * @param version the version the change was made in
+     * @param change  the change
+     */
+    private LoggedChange(long version, Change change) {
+      this.version = version;
+      this.change = change;
+    }
+  }
+
+  /**
+   * A subscribed listener, its window, and the changes waiting to be delivered to it.
+   */
+  private static class Window {
+
+    private final LocalDateTime start;
+
+    private final LocalDateTime end;
+
+    private final ScheduleListener listener;
+
+    private List<Map<String, String>> pending;
+
+    private boolean delivering;
+
+    /**
+     * Constructs a window with nothing waiting to be delivered.
+     *
+     * @param start    the start of the window
+     * @param end      the end of the window
+     * @param listener the listener to notify
+     */
+    private Window(LocalDateTime start, LocalDateTime end, ScheduleListener listener) {
+      this.start = start;
+      this.end = end;
+      this.listener = listener;
+      this.pending = new ArrayList<>();
+      this.delivering = false;
+    }
+
+    /**
+     * Queues the given changes for delivery, starting a delivery if one is not already running.
+     *
+     * @param changes    the changes to deliver
+     * @param dispatcher the executor to deliver on
+     */
+    private synchronized void offer(List<Map<String, String>> changes,
+                                    ExecutorService dispatcher) {
+      this.pending.addAll(changes);
+      if (!this.delivering) {
+        this.delivering = true;
+        dispatcher.execute(this::deliver);
+      }
+    }
+
+    /**
+     * Delivers everything queued, one batch at a time, until nothing is left.
+     */
+    private void deliver() {
+      while (true) {
+        List<Map<String, String>> batch;
+        synchronized (this) {
+          if (this.pending.isEmpty()) {
+            this.delivering = false;
+            return;
+          }
+          batch = this.pending;
+          this.pending = new ArrayList<>();
+        }
+        try {
+          this.listener.scheduleChanged(batch);
+        } catch (RuntimeException e) {
+          // a failing listener only loses its own batch
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Past events sealed into immutable files on disk, one file per calendar month of their start
+ * times, each written in the compressed, delta-encoded form of EventCodec. Only the time bounds
+ * of each segment are kept in memory, so a query reads a segment from disk only when
+ * its range overlaps the segment's events, and reads none at all for ranges in the present.
+ * Segments are never cached, since sealed events are expected to be read rarely.
+ *
+ * <p>Sealing a segment replaces the map of segments rather than changing it, so a view of the
+ * segments sealed so far can be taken without copying and read from other threads.</p>
+ */
+final class ColdTier {
+
+  private static final String EXTENSION = ".seg";
+
+  private final Path directory;
+
+  // every sealed segment, by the start time of its first event, never changed once assigned
+  private volatile TreeMap<LocalDateTime, Segment> segments;
+
+  private int size;
+
+  private long diskBytes;
+
+  /**
+   * Constructs an empty tier that keeps its segments in the given directory, creating it if
+   * needed. The directory must not already hold segments, since the events in them belong to
+   * another calendar or an earlier run of this one.
+   *
+   * @param directory the directory to write segments to
+   * @throws IllegalArgumentException if the directory could not be created or holds segments
+   */
+  ColdTier(Path directory) throws IllegalArgumentException {
+    try {
+      Files.createDirectories(directory);
+      try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+        if (stale.iterator().hasNext()) {
+          throw new IllegalArgumentException("The directory " + directory + " already holds "
+                  + "sealed events.");
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("The directory " + directory + " could not be used "
+              + "for sealed events: " + e.getMessage());
+    }
+    this.directory = directory;
+    this.segments = new TreeMap<>();
+    this.size = 0;
+    this.diskBytes = 0;
+  }
+
+  /**
+   * Constructs a view of the given segments of a tier.
+   *
+   * @param directory the directory of the segments
+   * @param segments  the segments, which will not be changed
+   * @param size      the number of events in the segments
+   * @param diskBytes the total size of the segment files in bytes
+   */
+  private ColdTier(Path directory, TreeMap<LocalDateTime, Segment> segments, int size,
+                   long diskBytes) {
+    this.directory = directory;
+    this.segments = segments;
+    this.size = size;
+    this.diskBytes = diskBytes;
+  }
+
+  /**
+   * Returns an unchanging view of the segments sealed so far, which later seals do not affect.
+   *
+   * @return the segments sealed by now
+   */
+  ColdTier sealedSoFar() {
+    return new ColdTier(this.directory, this.segments, this.size, this.diskBytes);
+  }
+
+  /**
+   * Writes the given events, which must all start in the same month, after every event already
+   * sealed, as a new segment.
+   *
+   * @param events the events to seal, in order of start time
+   * @throws IllegalStateException if the segment could not be written
+   */
+  void seal(List<Event> events) throws IllegalStateException {
+    Event first = events.get(0);
+    LocalDateTime lastEnd = first.end;
+    for (Event e : events) {
+      if (e.end.isAfter(lastEnd)) {
+        lastEnd = e.end;
+      }
+    }
+    Path file = this.directory.resolve(String.format("%04d-%02d%s", first.start.getYear(),
+            first.start.getMonthValue(), EXTENSION));
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      EventCodec.write(events, out);
+    } catch (IOException e) {
+      throw new IllegalStateException("The events of " + first.start.toLocalDate()
+              .withDayOfMonth(1) + " onwards could not be sealed: " + e.getMessage());
+    }
+    long bytes;
+    try {
+      bytes = Files.size(file);
+    } catch (IOException e) {
+      bytes = 0;
+    }
+    TreeMap<LocalDateTime, Segment> sealed = new TreeMap<>(this.segments);
+    sealed.put(first.start, new Segment(file, lastEnd));
+    this.segments = sealed;
+    this.size += events.size();
+    this.diskBytes += bytes;
+  }
+
+  /**
+   * Finds, in order of start time, the sealed events that start/end within or overlap the given
+   * range. Only the segments whose first start and last end bracket part of the range are read.
+   *
+   * @param startTime the beginning of the range
+   * @param endTime   the end of the range
+   * @return the sealed events including some time in the range
+   * @throws IllegalStateException if a segment could not be read
+   */
+  List<Event> overlapping(LocalDateTime startTime, LocalDateTime endTime)
+          throws IllegalStateException {
+    TreeMap<LocalDateTime, Segment> sealed = this.segments;
+    if (sealed.isEmpty() || sealed.firstKey().isAfter(endTime)) {
+      return Collections.emptyList();
+    }
+    List<Event> found = new ArrayList<>();
+    for (Map.Entry<LocalDateTime, Segment> segment : sealed.headMap(endTime, true).entrySet()) {
+      if (segment.getValue().lastEnd.isBefore(startTime)) {
+        continue;
+      }
+      for (Event e : this.read(segment.getValue())) {
+        if (e.includes(startTime) || e.includes(endTime) || e.isInRange(startTime, endTime)) {
+          found.add(e);
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Reads back every sealed event, in order of start time.
+   *
+   * @return all the sealed events
+   * @throws IllegalStateException if a segment could not be read
+   */
+  List<Event> all() throws IllegalStateException {
+    List<Event> all = new ArrayList<>();
+    for (Segment segment : this.segments.values()) {
+      all.addAll(this.read(segment));
+    }
+    return all;
+  }
+
+  /**
+   * Returns the number of sealed events.
+   *
+   * @return the number of events in every segment
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of segments.
+   *
+   * @return the number of months sealed
+   */
+  int segmentCount() {
+    return this.segments.size();
+  }
+
+  /**
+   * Returns the space the segments take up on disk.
+   *
+   * @return the total size of the segment files in bytes
+   */
+  long diskBytes() {
+    return this.diskBytes;
+  }
+
+  /**
+   * Decodes the events of the given segment.
+   */
+  private List<Event> read(Segment segment) throws IllegalStateException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(segment.file))) {
+      return EventCodec.read(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("The sealed events in " + segment.file.getFileName()
+              + " could not be read: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The file of one sealed month along with the latest end time of its events.
+   */
+  private static class Segment {
+
+    private final Path file;
+
+    private final LocalDateTime lastEnd;
+
+    /**
+     * Constructs a segment.
+     *
+     * @param file    the file the events were written to
+     * @param lastEnd the latest end time of the events
+     */
+    private Segment(Path file, LocalDateTime lastEnd) {
+      this.file = file;
+      this.lastEnd = lastEnd;
+    }
+  }
+}
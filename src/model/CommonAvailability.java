@@ -0,0 +1,128 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the time that is free in every one of a group of calendars. The busy time of each
+ * calendar is streamed in start order and combined with a k-way merge, so no calendar has to
+ * build its full schedule for the requested window.
+ */
+public final class CommonAvailability {
+
+  /**
+   * This class only provides static operations and should not be constructed.
+   */
+  private CommonAvailability() {
+  }
+
+  /**
+   * Retrieves the slots within the given window in which none of the given calendars have any
+   * events, as a List of Maps which contain the "from" and "to" times of each free slot.
+   *
+   * @param calendars the calendars whose free time should be intersected
+   * @param start     the start date-time of the window as a String in the format:
+   *                  YYYY-MM-DDThh:mm
+   * @param end       the end date-time of the window as a String in the format:
+   *                  YYYY-MM-DDThh:mm
+   * @return a List of Maps, in chronological order, each holding the "from" and "to" of one slot
+   *     in which every calendar is available
+   * @throws IllegalArgumentException if no calendars are given or the start is after the end
+   */
+  public static List<Map<String, String>> findFreeSlots(List<CalendarModel> calendars,
+                                                        String start, String end)
+          throws IllegalArgumentException {
+    if (calendars == null || calendars.isEmpty()) {
+      throw new IllegalArgumentException("Must give at least one calendar to find free time in.");
+    }
+    LocalDateTime windowStart = DateTimes.parseDateTime(start);
+    LocalDateTime windowEnd = DateTimes.parseDateTime(end);
+    if (windowStart.isAfter(windowEnd)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+
+    PriorityQueue<BusyStream> streams = new PriorityQueue<>();
+    for (CalendarModel calendar : calendars) {
+      BusyStream stream = new BusyStream(calendar.busySlots(start, end));
+      if (stream.head != null) {
+        streams.add(stream);
+      }
+    }
+
+    List<Map<String, String>> free = new ArrayList<>();
+    LocalDateTime cursor = windowStart;
+    while (!streams.isEmpty() && cursor.isBefore(windowEnd)) {
+      BusyStream next = streams.poll();
+      TimeSlot busy = next.head;
+      if (busy.getStart().isAfter(cursor)) {
+        free.add(asFreeSlot(cursor, busy.getStart().isBefore(windowEnd)
+                ? busy.getStart() : windowEnd));
+      }
+      if (busy.getEnd().isAfter(cursor)) {
+        cursor = busy.getEnd();
+      }
+      if (next.advance()) {
+        streams.add(next);
+      }
+    }
+    if (cursor.isBefore(windowEnd)) {
+      free.add(asFreeSlot(cursor, windowEnd));
+    }
+    return free;
+  }
+
+  /**
+   * Represents a free slot as a map of its "from" and "to" times.
+   *
+   * @param from the start of the free slot
+   * @param to   the end of the free slot
+   * @return a map holding the slot's "from" and "to" times as Strings
+   */
+  private static Map<String, String> asFreeSlot(LocalDateTime from, LocalDateTime to) {
+    Map<String, String> slot = new HashMap<>();
+    slot.put("from", from.toString());
+    slot.put("to", to.toString());
+    return slot;
+  }
+
+  /**
+   * Wraps one calendar's busy slots so that the stream with the earliest upcoming slot can be
+   * chosen from a priority queue.
+   */
+  private static class BusyStream implements Comparable<BusyStream> {
+
+    private final Iterator<TimeSlot> slots;
+
+    private TimeSlot head;
+
+    /**
+     * Constructs a BusyStream positioned at the first of the given slots, if any.
+     *
+     * @param slots the busy slots of one calendar, in order of start time
+     */
+    private BusyStream(Iterator<TimeSlot> slots) {
+      this.slots = slots;
+      this.advance();
+    }
+
+    /**
+     * Moves this stream on to its next busy slot.
+     *
+     * @return true if there was another slot, false if this stream is exhausted
+     */
+    private boolean advance() {
+      this.head = this.slots.hasNext() ? this.slots.next() : null;
+      return this.head != null;
+    }
+
+    @Override
+    public int compareTo(BusyStream o) {
+      return this.head.getStart().compareTo(o.head.getStart());
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * An enumeration of the ways a calendar can treat a new or edited event that overlaps an event it
+ * already holds.
+ */
+public enum ConflictPolicy {
+  /**
+   * Overlapping events are added without being checked for.
+   */
+  ALLOW,
+
+  /**
+   * Overlapping events are added, and the conflicts are recorded for the caller to inspect.
+   */
+  WARN,
+
+  /**
+   * Overlapping events are refused, leaving the calendar unchanged.
+   */
+  REJECT
+}
@@ -0,0 +1,209 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the fixed date-time formats used throughout the calendar, YYYY-MM-DDThh:mm and
+ * YYYY-MM-DD, by reading their digits directly rather than going through a DateTimeFormatter.
+ * Text in these formats is validated field by field, including the number of days in its month,
+ * and rejected with the same exception LocalDateTime.parse throws. Other ISO-8601 text, such as
+ * a time with seconds, is handed to LocalDateTime.parse and LocalDate.parse as before.
+ */
+final class DateTimes {
+
+  // the number of days from 0000-01-01 to 1970-01-01
+  private static final long DAYS_0000_TO_1970 = 719528;
+
+  private static final long MINUTES_PER_DAY = 24 * 60;
+
+  /**
+   * This class only holds static methods.
+   */
+  private DateTimes() {
+  }
+
+  /**
+   * Parses a date-time such as 2025-06-05T10:00.
+   *
+   * @param text the text to parse
+   * @return the parsed date-time
+   * @throws DateTimeParseException if the text is not a valid ISO-8601 date-time
+   */
+  static LocalDateTime parseDateTime(String text) throws DateTimeParseException {
+    if (text.length() != 16) {
+      return LocalDateTime.parse(text);
+    }
+    int year = dateField(text, 0);
+    checkTime(text);
+    return LocalDateTime.of(year, field(text, 5, 7), field(text, 8, 10), field(text, 11, 13),
+            field(text, 14, 16));
+  }
+
+  /**
+   * Parses a date such as 2025-06-05.
+   *
+   * @param text the text to parse
+   * @return the parsed date
+   * @throws DateTimeParseException if the text is not a valid ISO-8601 date
+   */
+  static LocalDate parseDate(String text) throws DateTimeParseException {
+    if (text.length() != 10) {
+      return LocalDate.parse(text);
+    }
+    return LocalDate.of(dateField(text, 0), field(text, 5, 7), field(text, 8, 10));
+  }
+
+  /**
+   * Parses a date-time in the format YYYY-MM-DDThh:mm straight to the number of minutes since
+   * 1970-01-01T00:00, without creating any objects.
+   *
+   * @param text the text to parse
+   * @return the number of minutes since the epoch
+   * @throws DateTimeParseException if the text is not a valid date-time in that format
+   */
+  static long parseEpochMinute(CharSequence text) throws DateTimeParseException {
+    if (text.length() != 16) {
+      throw new DateTimeParseException("Text '" + text + "' is not of the form "
+              + "YYYY-MM-DDThh:mm.", text, 0);
+    }
+    long day = epochDay(dateField(text, 0), field(text, 5, 7), field(text, 8, 10));
+    checkTime(text);
+    return day * MINUTES_PER_DAY + field(text, 11, 13) * 60L + field(text, 14, 16);
+  }
+
+  /**
+   * Parses a date in the format YYYY-MM-DD straight to the number of days since 1970-01-01,
+   * without creating any objects.
+   *
+   * @param text the text to parse
+   * @return the number of days since the epoch
+   * @throws DateTimeParseException if the text is not a valid date in that format
+   */
+  static long parseEpochDay(CharSequence text) throws DateTimeParseException {
+    if (text.length() != 10) {
+      throw new DateTimeParseException("Text '" + text + "' is not of the form YYYY-MM-DD.",
+              text, 0);
+    }
+    return epochDay(dateField(text, 0), field(text, 5, 7), field(text, 8, 10));
+  }
+
+  /**
+   * Determines whether the given date-time is the one written in the given text, comparing
+   * epoch minutes when the text is in the format YYYY-MM-DDThh:mm.
+   *
+   * @param time the date-time to compare
+   * @param text the text of a date-time
+   * @return true if the text represents the given date-time
+   * @throws DateTimeParseException if the text is not a valid ISO-8601 date-time
+   */
+  static boolean matches(LocalDateTime time, String text) throws DateTimeParseException {
+    if (text.length() != 16) {
+      return time.isEqual(LocalDateTime.parse(text));
+    }
+    long minute = parseEpochMinute(text);
+    return time.getSecond() == 0 && time.getNano() == 0
+            && time.toLocalDate().toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60L
+                + time.getMinute() == minute;
+  }
+
+  /**
+   * Reads and validates the YYYY-MM-DD date at the given position, returning its year once the
+   * month and day are known to exist in it.
+   */
+  private static int dateField(CharSequence text, int from) throws DateTimeParseException {
+    expect(text, from + 4, '-');
+    expect(text, from + 7, '-');
+    int year = field(text, from, from + 4);
+    int month = field(text, from + 5, from + 7);
+    int day = field(text, from + 8, from + 10);
+    if (month < 1 || month > 12) {
+      throw new DateTimeParseException("Text '" + text + "' has an invalid month.", text,
+              from + 5);
+    }
+    if (day < 1 || day > lengthOfMonth(year, month)) {
+      throw new DateTimeParseException("Text '" + text + "' has an invalid day of the month.",
+              text, from + 8);
+    }
+    return year;
+  }
+
+  /**
+   * Checks the "Thh:mm" part of a date-time.
+   */
+  private static void checkTime(CharSequence text) throws DateTimeParseException {
+    expect(text, 10, 'T');
+    expect(text, 13, ':');
+    if (field(text, 11, 13) > 23) {
+      throw new DateTimeParseException("Text '" + text + "' has an invalid hour.", text, 11);
+    }
+    if (field(text, 14, 16) > 59) {
+      throw new DateTimeParseException("Text '" + text + "' has an invalid minute.", text, 14);
+    }
+  }
+
+  /**
+   * Reads the decimal digits from the first index to the last index, exclusive.
+   */
+  private static int field(CharSequence text, int from, int to) throws DateTimeParseException {
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new DateTimeParseException("Text '" + text + "' could not be parsed at index "
+                + i + ".", text, i);
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  /**
+   * Checks that the given separator is at the given index.
+   */
+  private static void expect(CharSequence text, int index, char separator)
+          throws DateTimeParseException {
+    if (text.charAt(index) != separator) {
+      throw new DateTimeParseException("Text '" + text + "' could not be parsed at index "
+              + index + ".", text, index);
+    }
+  }
+
+  /**
+   * Returns the number of days in the given month of the given year.
+   */
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * Determines whether the given year of the proleptic Gregorian calendar is a leap year.
+   */
+  private static boolean isLeapYear(long year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  /**
+   * Counts the days from 1970-01-01 to the given valid date of a year from 0 to 9999, the same
+   * way LocalDate.toEpochDay does.
+   */
+  private static long epochDay(int year, int month, int day) {
+    long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    total += (367L * month - 362) / 12 + day - 1;
+    if (month > 2) {
+      total -= isLeapYear(year) ? 1 : 2;
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+}
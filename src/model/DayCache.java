@@ -0,0 +1,104 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of the immutable schedules of single days. Days are
+ * invalidated individually, so a change to one event only discards the days that event touches.
+ * Counts of hits, misses and evictions are kept for monitoring.
+ */
+final class DayCache {
+
+  private final int capacity;
+
+  private final LinkedHashMap<LocalDate, List<Map<String, String>>> days;
+
+  private long hits;
+
+  private long misses;
+
+  private long evictions;
+
+  /**
+   * Constructs an empty cache that holds at most the given number of days.
+   *
+   * @param capacity the maximum number of days to cache
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  DayCache(int capacity) throws IllegalArgumentException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("A day cache must be able to hold at least one day.");
+    }
+    this.capacity = capacity;
+    this.days = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Retrieves the cached schedule of the given day, counting a hit or a miss.
+   *
+   * @param day the day to look up
+   * @return the cached schedule, or null if the day is not cached
+   */
+  synchronized List<Map<String, String>> get(LocalDate day) {
+    List<Map<String, String>> schedule = this.days.get(day);
+    if (schedule == null) {
+      this.misses++;
+    } else {
+      this.hits++;
+    }
+    return schedule;
+  }
+
+  /**
+   * Caches the given schedule for the given day, evicting the least recently used day if the
+   * cache is full.
+   *
+   * @param day      the day the schedule is for
+   * @param schedule the immutable schedule of that day
+   */
+  synchronized void put(LocalDate day, List<Map<String, String>> schedule) {
+    this.days.put(day, schedule);
+    if (this.days.size() > this.capacity) {
+      Iterator<LocalDate> eldest = this.days.keySet().iterator();
+      eldest.next();
+      eldest.remove();
+      this.evictions++;
+    }
+  }
+
+  /**
+   * Discards the cached schedules of every day from the first to the last day, inclusive.
+   *
+   * @param first the first day to discard
+   * @param last  the last day to discard
+   */
+  synchronized void invalidate(LocalDate first, LocalDate last) {
+    if (ChronoUnit.DAYS.between(first, last) >= this.days.size()) {
+      this.days.keySet().removeIf(day -> !day.isBefore(first) && !day.isAfter(last));
+      return;
+    }
+    for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+      this.days.remove(day);
+    }
+  }
+
+  /**
+   * Retrieves the counts of hits, misses and evictions so far, along with the current number of
+   * cached days.
+   *
+   * @return a map with the keys "hits", "misses", "evictions" and "size"
+   */
+  synchronized Map<String, Long> statistics() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("hits", this.hits);
+    stats.put("misses", this.misses);
+    stats.put("evictions", this.evictions);
+    stats.put("size", (long) this.days.size());
+    return stats;
+  }
+}
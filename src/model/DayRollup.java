@@ -0,0 +1,138 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps running per-day totals of busy minutes and event counts, so that both a single day's
+ * totals and the totals over any range of days can be updated and read quickly. The totals are
+ * kept in a pair of Fenwick trees for each year that has any, so a single day's update and the
+ * part of a range falling within one year take logarithmic time, and the years wholly inside a
+ * range are added up from their running totals. Years without events take no space, so events
+ * far apart in time cost no more than events close together.
+ */
+final class DayRollup {
+
+  // the bytes taken up by one year of totals, with the map entry holding it
+  private static final long YEAR_BYTES = 2 * (16 + 8L * (Year.DAYS + 1)) + 32 + 48;
+
+  private final TreeMap<Integer, Year> years;
+
+  /**
+   * Constructs an empty rollup.
+   */
+  DayRollup() {
+    this.years = new TreeMap<>();
+  }
+
+  /**
+   * Estimates the heap taken up by the totals, which grows with the number of years that have
+   * events rather than with the number of events.
+   *
+   * @return the approximate size of the totals in bytes
+   */
+  long estimatedBytes() {
+    return this.years.size() * YEAR_BYTES;
+  }
+
+  /**
+   * Adds the given number of busy minutes and events to the totals of the given day. Negative
+   * amounts remove what was added before.
+   *
+   * @param day     the day to update
+   * @param minutes the change in busy minutes on that day
+   * @param count   the change in the number of events starting that day
+   */
+  void add(LocalDate day, long minutes, long count) {
+    Year year = this.years.computeIfAbsent(day.getYear(), y -> new Year());
+    year.add(day.getDayOfYear(), minutes, count);
+    if (year.minutes == 0 && year.count == 0) {
+      // no day's totals are ever negative, so every day of the year is back to nothing
+      this.years.remove(day.getYear());
+    }
+  }
+
+  /**
+   * Retrieves the total busy minutes and number of events from the first to the last day,
+   * inclusive.
+   *
+   * @param first the first day of the range
+   * @param last  the last day of the range
+   * @return a two-element array of the total minutes followed by the total count
+   */
+  long[] sum(LocalDate first, LocalDate last) {
+    long[] totals = {0, 0};
+    if (last.isBefore(first)) {
+      return totals;
+    }
+    Map<Integer, Year> covered = this.years.subMap(first.getYear(), true, last.getYear(), true);
+    for (Map.Entry<Integer, Year> entry : covered.entrySet()) {
+      int year = entry.getKey();
+      Year totalsOfYear = entry.getValue();
+      int from = year == first.getYear() ? first.getDayOfYear() : 1;
+      int to = year == last.getYear() ? last.getDayOfYear() : Year.DAYS;
+      if (from == 1 && to == Year.DAYS) {
+        totals[0] += totalsOfYear.minutes;
+        totals[1] += totalsOfYear.count;
+      } else {
+        totalsOfYear.addRange(from, to, totals);
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * The totals of the days of one year, indexed by day of the year.
+   */
+  private static final class Year {
+
+    // the most days a year can have
+    private static final int DAYS = 366;
+
+    private final long[] minuteTree;
+
+    private final long[] countTree;
+
+    private long minutes;
+
+    private long count;
+
+    /**
+     * Constructs a year with no totals.
+     */
+    private Year() {
+      this.minuteTree = new long[DAYS + 1];
+      this.countTree = new long[DAYS + 1];
+      this.minutes = 0;
+      this.count = 0;
+    }
+
+    /**
+     * Adds the given amounts to the totals of the given day of this year.
+     */
+    private void add(int dayOfYear, long minutes, long count) {
+      this.minutes += minutes;
+      this.count += count;
+      for (int i = dayOfYear; i <= DAYS; i += i & -i) {
+        this.minuteTree[i] += minutes;
+        this.countTree[i] += count;
+      }
+    }
+
+    /**
+     * Adds the totals from the first to the last day of this year, inclusive, to the given
+     * pair of totals.
+     */
+    private void addRange(int first, int last, long[] totals) {
+      for (int i = last; i > 0; i -= i & -i) {
+        totals[0] += this.minuteTree[i];
+        totals[1] += this.countTree[i];
+      }
+      for (int i = first - 1; i > 0; i -= i & -i) {
+        totals[0] -= this.minuteTree[i];
+        totals[1] -= this.countTree[i];
+      }
+    }
+  }
+}
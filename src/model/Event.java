@@ -3,11 +3,13 @@ package model;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class represents an Event that can be created and appear on a Calendar.
@@ -17,6 +19,12 @@ import java.util.Objects;
  */
 class Event implements Comparable<Event>, IEvent {
 
+  // the object header and seven references of an event
+  static final long OBJECT_BYTES = 40;
+
+  // a LocalDateTime along with the LocalDate and LocalTime it holds
+  static final long DATE_TIME_BYTES = 72;
+
   protected final String subject;
 
   protected final LocalDateTime start;
@@ -83,9 +91,9 @@ class Event implements Comparable<Event>, IEvent {
       case "event":
         return this.subject.equals(id.getValue());
       case "from":
-        return this.start.isEqual(LocalDateTime.parse(id.getValue()));
+        return DateTimes.matches(this.start, id.getValue());
       case "to":
-        return this.end.isEqual(LocalDateTime.parse(id.getValue()));
+        return DateTimes.matches(this.end, id.getValue());
       case "description":
         return this.description != null && this.description.equals(id.getValue());
       case "location":
@@ -140,7 +148,7 @@ class Event implements Comparable<Event>, IEvent {
   /**
    * Removes this event from its series.
    */
-  private void removeFromSeries() {
+  void removeFromSeries() {
     this.series.removeItem(this);
   }
 
@@ -170,24 +178,22 @@ class Event implements Comparable<Event>, IEvent {
         builder.subject(newPropertyValue);
         break;
       case "start":
-        LocalDateTime oldStartDay;
+        LocalDateTime newStart;
         try {
-          oldStartDay = LocalDateTime.parse(newPropertyValue);
+          newStart = retime(this.start, newPropertyValue);
         } catch (Exception e) {
           throw new IllegalArgumentException("New start time was not in a valid format.");
         }
-        LocalDateTime newStartDay = oldStartDay.withDayOfYear(this.start.getDayOfYear());
-        builder.start(newStartDay.toString());
+        builder.start(newStart.toString());
         break;
       case "end":
-        LocalDateTime oldEndDay;
+        LocalDateTime newEnd;
         try {
-          oldEndDay = LocalDateTime.parse(newPropertyValue);
+          newEnd = retime(this.end, newPropertyValue);
         } catch (Exception e) {
           throw new IllegalArgumentException("New end time was not in a valid format.");
         }
-        LocalDateTime newEndDay = oldEndDay.withDayOfYear(this.end.getDayOfYear());
-        builder.end(newEndDay.toString());
+        builder.end(newEnd.toString());
         break;
       case "description":
         builder.description(newPropertyValue);
@@ -206,6 +212,103 @@ class Event implements Comparable<Event>, IEvent {
     return builder;
   }
 
+  /**
+   * Moves the given start or end of an occurrence to the time of day of the given new value,
+   * keeping the occurrence's day. A value such as 2025-06-05T20:00[America/New_York] names the
+   * zone its time of day is in, and the stored UTC time is then moved to that time on the day
+   * the occurrence falls on in that zone, so that every occurrence of a series edited from a
+   * zoned calendar keeps its own local day and offset.
+   *
+   * @param old   the stored start or end of an occurrence
+   * @param value the new date-time, optionally followed by a zone in square brackets
+   * @return the new stored start or end
+   */
+  private static LocalDateTime retime(LocalDateTime old, String value) {
+    int zoneAt = value.indexOf('[');
+    if (zoneAt < 0) {
+      return DateTimes.parseDateTime(value).withDayOfYear(old.getDayOfYear());
+    }
+    if (!value.endsWith("]")) {
+      throw new IllegalArgumentException("The zone of a date-time must be in square brackets.");
+    }
+    ZoneId zone = ZoneId.of(value.substring(zoneAt + 1, value.length() - 1));
+    LocalDateTime time = DateTimes.parseDateTime(value.substring(0, zoneAt));
+    ZoneConverter converter = new ZoneConverter(zone);
+    LocalDate day = converter.fromUtc(old).toLocalDate();
+    return converter.toUtc(day.atTime(time.toLocalTime()));
+  }
+
+  /**
+   * Determines whether the given property can be edited without changing how events are
+   * ordered or identified, so that edited events can keep their places.
+   *
+   * @param property the name of a property
+   * @return true if the property is "description", "location" or "status"
+   */
+  static boolean isDetail(String property) {
+    return property.equals("description") || property.equals("location")
+            || property.equals("status");
+  }
+
+  @Override
+  public List<Event> updateDetails(String scope, String property, String newPropertyValue) {
+    String newDescription = this.description;
+    Location newLocation = null;
+    EventStatus newStatus = null;
+    switch (property) {
+      case "description":
+        newDescription = newPropertyValue;
+        break;
+      case "location":
+        newLocation = Location.assign(newPropertyValue);
+        break;
+      case "status":
+        newStatus = EventStatus.assign(newPropertyValue);
+        break;
+      default:
+        throw new IllegalArgumentException("The property that is being edited in this event is " +
+                "not recognized.");
+    }
+
+    List<Event> updated = new ArrayList<>();
+    if (this.series == null || scope.equals("event")) {
+      // like any other edit of a single event, the copy no longer belongs to a series
+      updated.add(this.copyDetails(property, newDescription, newLocation, newStatus, null));
+      return updated;
+    }
+
+    int position = this.series.positionOf(this);
+    if (position < 0) {
+      throw new IllegalStateException("The event being edited is no longer one of the "
+              + "occurrences of its series.");
+    }
+    List<Event> occurrences = this.series.occurrences;
+    for (int i = scope.equals("series") ? 0 : position; i < occurrences.size(); i++) {
+      updated.add(occurrences.get(i).copyDetails(property, newDescription, newLocation,
+              newStatus, this.series));
+    }
+    return updated;
+  }
+
+  /**
+   * Copies this event, reusing every field except the one named by the given property.
+   *
+   * @param property    the name of the property being replaced
+   * @param description the description to use if the property is "description"
+   * @param location    the location to use if the property is "location"
+   * @param status      the status to use if the property is "status"
+   * @param series      the series the copy belongs to, if any
+   * @return a copy of this event with the one property replaced
+   */
+  private Event copyDetails(String property, String description, Location location,
+                            EventStatus status, EventSeries series) {
+    return new Event(this.subject, this.start, this.end,
+            property.equals("description") ? description : this.description,
+            property.equals("location") ? location : this.location,
+            property.equals("status") ? status : this.status,
+            series);
+  }
+
   @Override
   public Event updateFullSeries(String property, String newPropertyValue) {
     Event first = this.startOfSeries();
@@ -232,18 +335,19 @@ class Event implements Comparable<Event>, IEvent {
 
   @Override
   public Map<String, String> asScheduleItem() {
-    Map<String, String> eventProperties = new HashMap<>();
-    eventProperties.put("event", this.subject);
-    eventProperties.put("from", this.start.toString());
-    eventProperties.put("to", this.end.toString());
-    eventProperties.put("description", this.description);
-    if (this.location != null) {
-      eventProperties.put("location", this.location.toString());
-    }
-    if (this.status != null) {
-      eventProperties.put("status", this.status.toString());
-    }
-    return eventProperties;
+    return new ScheduleItem(this);
+  }
+
+  /**
+   * Estimates the number of bytes of heap this event retains: the event object itself and its
+   * start and end times. The text of its subject and description is shared through its
+   * calendar's dictionary, and enumerations and the series it may belong to are shared with
+   * other events, so none of them are counted.
+   *
+   * @return the approximate retained size of this event in bytes
+   */
+  long estimatedBytes() {
+    return OBJECT_BYTES + 2 * DATE_TIME_BYTES;
   }
 
   /**
@@ -414,6 +518,11 @@ class Event implements Comparable<Event>, IEvent {
    */
   protected static class EventSeries {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    // identifies this series among every series created, for storing its occurrences by series
+    private final long id = NEXT_ID.incrementAndGet();
+
     private final List<Event> occurrences;
 
     /**
@@ -436,6 +545,9 @@ class Event implements Comparable<Event>, IEvent {
      * @param nTimes      number of times the event should occur, null if until
      *                    is used
      * @param until       the final date to repeat until, null if nTimes is used
+     * @param zone        the zone the start, end, weekdays and until are in, whose local
+     *                    occurrences are each converted to UTC, or null if they are stored as
+     *                    given
      * @throws IllegalArgumentException if the event spans multiple days, no repeat weekdays are
      *                                  specified,
      *                                  or neither {@code nTimes} nor {@code until} is provided
@@ -443,7 +555,7 @@ class Event implements Comparable<Event>, IEvent {
 
     protected EventSeries(String subject, LocalDateTime start, LocalDateTime end,
                           String description, Location location, EventStatus status,
-                          String weekdays, Integer nTimes, LocalDate until)
+                          String weekdays, Integer nTimes, LocalDate until, ZoneId zone)
             throws IllegalArgumentException {
 
       if (!start.toLocalDate().isEqual(end.toLocalDate())) {
@@ -469,6 +581,24 @@ class Event implements Comparable<Event>, IEvent {
         throw new IllegalArgumentException("Must specify the duration that this event should " +
                 "repeat for.");
       }
+      if (zone != null) {
+        this.toUtc(new ZoneConverter(zone));
+      }
+    }
+
+    /**
+     * Replaces each occurrence, built in local time, with an occurrence at the UTC times of the
+     * same instants, so occurrences on either side of a change of offset keep their local times.
+     *
+     * @param converter the converter of the zone the occurrences were built in
+     */
+    private void toUtc(ZoneConverter converter) {
+      for (int i = 0; i < this.occurrences.size(); i++) {
+        Event local = this.occurrences.get(i);
+        this.occurrences.set(i, new Event(local.subject, converter.toUtc(local.start),
+                converter.toUtc(local.end), local.description, local.location, local.status,
+                this));
+      }
     }
 
     /**
@@ -585,12 +715,28 @@ class Event implements Comparable<Event>, IEvent {
               "neighbor of an event that is not in this series.");
     }
 
+    /**
+     * Finds the position of the given event among this series' occurrences by identity, without
+     * comparing subjects or times.
+     *
+     * @param event the event to find
+     * @return the index of the event in this series, or -1 if it is not one of its occurrences
+     */
+    private int positionOf(Event event) {
+      for (int i = 0; i < this.occurrences.size(); i++) {
+        if (this.occurrences.get(i) == event) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
     /**
      * Adds the given updated Event to this EventSeries' list of occurrences.
      *
      * @param updatedEvent the event to be added, which contains updated properties
      */
-    private void addEvent(Event updatedEvent) {
+    void addEvent(Event updatedEvent) {
       this.occurrences.add(updatedEvent);
     }
 
@@ -612,6 +758,49 @@ class Event implements Comparable<Event>, IEvent {
       this.occurrences.remove(event);
     }
 
+    /**
+     * Returns the number identifying this series, which no other series shares.
+     *
+     * @return the id of this series
+     */
+    long id() {
+      return this.id;
+    }
+
+    /**
+     * Returns an unchangeable copy of the occurrences of this series.
+     *
+     * @return the occurrences of this series, in order
+     */
+    List<Event> occurrences() {
+      return List.copyOf(this.occurrences);
+    }
+
+    /**
+     * Puts the given edited copy of one of this series' occurrences in the place of the
+     * occurrence it was copied from.
+     *
+     * @param original the occurrence that was edited
+     * @param edited   the edited copy, which must belong to this series
+     */
+    void swap(Event original, Event edited) {
+      int position = this.positionOf(original);
+      if (position >= 0) {
+        this.occurrences.set(position, edited);
+      }
+    }
+
+    /**
+     * Replaces the occurrences of this series with the given ones, which it was recorded with
+     * in a version of a calendar being restored.
+     *
+     * @param recorded the occurrences to restore
+     */
+    void relink(Collection<Event> recorded) {
+      this.occurrences.clear();
+      this.occurrences.addAll(recorded);
+    }
+
     /**
      * This inner class represents an EvenSeriesBuilder which helps build an EventSeries that can
      * either repeat n times or until a specified date.
@@ -624,6 +813,8 @@ class Event implements Comparable<Event>, IEvent {
 
       private LocalDate until;
 
+      private ZoneId zone;
+
       /**
        * Constructs an EventSeriesBuilder for building recurring event series.
        *
@@ -662,12 +853,28 @@ class Event implements Comparable<Event>, IEvent {
        */
       protected EventSeriesBuilder until(String until) {
         if (until != null) {
-          this.until = LocalDate.parse(until);
+          this.until = DateTimes.parseDate(until);
           this.nTimes = null;
         }
         return this.returnBuilder();
       }
 
+      /**
+       * Specifies the time zone the start, end, weekdays and until date of the series are in.
+       * Occurrences are then laid out in that zone and each converted to UTC, rather than all
+       * being stored at the offset of the first.
+       *
+       * @param zone the ID of a time zone (e.g. "America/New_York")
+       * @return this builder with the updated zone
+       * @throws java.time.DateTimeException if the zone ID is not a valid zone
+       */
+      protected EventSeriesBuilder zone(String zone) {
+        if (zone != null) {
+          this.zone = ZoneId.of(zone);
+        }
+        return this.returnBuilder();
+      }
+
       /**
        * Builds and returns the EventSeries instance with the set properties.
        *
@@ -678,7 +885,7 @@ class Event implements Comparable<Event>, IEvent {
        */
       protected EventSeries buildSeries() {
         return new EventSeries(this.subject, this.start, this.end, this.description,
-                this.location, this.status, this.weekdays, this.nTimes, this.until);
+                this.location, this.status, this.weekdays, this.nTimes, this.until, this.zone);
       }
 
       @Override
@@ -0,0 +1,222 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes a compact binary form of a list of events. Start times are delta-encoded
+ * against the previous event, lengths and references are written as variable-length integers,
+ * repeated text is written once and referred to by index, and the whole stream is deflated.
+ * Events that shared a series when written share a series again when read back.
+ */
+final class EventCodec {
+
+  private static final int MAGIC = 0x43414C31;
+
+  private static final int HAS_LOCATION = 1;
+
+  private static final int ONLINE = 2;
+
+  private static final int HAS_STATUS = 4;
+
+  private static final int PRIVATE = 8;
+
+  /**
+   * This class only provides static operations and should not be constructed.
+   */
+  private EventCodec() {
+  }
+
+  /**
+   * Writes the given events, which should be in order of their start times, to the given stream.
+   * The stream is finished but not closed.
+   *
+   * @param events the events to write
+   * @param out    the stream to write them to
+   * @throws IOException if writing to the stream fails
+   */
+  static void write(List<Event> events, OutputStream out) throws IOException {
+    DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+    DataOutputStream data = new DataOutputStream(deflater);
+    Map<String, Integer> strings = new HashMap<>();
+    Map<Event.EventSeries, Integer> series = new IdentityHashMap<>();
+
+    data.writeInt(MAGIC);
+    writeVarLong(data, events.size());
+    long previousStart = 0;
+    for (Event e : events) {
+      long start = e.start.toEpochSecond(ZoneOffset.UTC);
+      writeVarLong(data, zigZag(start - previousStart));
+      writeVarLong(data, e.end.toEpochSecond(ZoneOffset.UTC) - start);
+      previousStart = start;
+
+      int flags = 0;
+      if (e.location != null) {
+        flags |= HAS_LOCATION | (e.location == Event.Location.ONLINE ? ONLINE : 0);
+      }
+      if (e.status != null) {
+        flags |= HAS_STATUS | (e.status == Event.EventStatus.PRIVATE ? PRIVATE : 0);
+      }
+      data.writeByte(flags);
+      writeString(data, strings, e.subject);
+      writeString(data, strings, e.description);
+
+      if (e.series == null) {
+        writeVarLong(data, 0);
+      } else {
+        Integer id = series.get(e.series);
+        if (id == null) {
+          id = series.size() + 1;
+          series.put(e.series, id);
+        }
+        writeVarLong(data, id);
+      }
+    }
+    data.flush();
+    deflater.finish();
+  }
+
+  /**
+   * Reads back a list of events written by {@link #write(List, OutputStream)}, in the order they
+   * were written.
+   *
+   * @param in the stream to read from
+   * @return the events that were written to the stream
+   * @throws IOException if reading from the stream fails or it does not hold encoded events
+   */
+  static List<Event> read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(new InflaterInputStream(in));
+    List<String> strings = new ArrayList<>();
+    Map<Long, Event.EventSeries> series = new HashMap<>();
+
+    if (data.readInt() != MAGIC) {
+      throw new IOException("The given stream does not hold a stored calendar.");
+    }
+    long count = readVarLong(data);
+    List<Event> events = new ArrayList<>();
+    long previousStart = 0;
+    for (long i = 0; i < count; i++) {
+      long start = previousStart + unZigZag(readVarLong(data));
+      long end = start + readVarLong(data);
+      previousStart = start;
+
+      int flags = data.readUnsignedByte();
+      Event.Location location = null;
+      if ((flags & HAS_LOCATION) != 0) {
+        location = (flags & ONLINE) != 0 ? Event.Location.ONLINE : Event.Location.PHYSICAL;
+      }
+      Event.EventStatus status = null;
+      if ((flags & HAS_STATUS) != 0) {
+        status = (flags & PRIVATE) != 0 ? Event.EventStatus.PRIVATE : Event.EventStatus.PUBLIC;
+      }
+      String subject = readString(data, strings);
+      String description = readString(data, strings);
+
+      long seriesId = readVarLong(data);
+      Event.EventSeries owner = null;
+      if (seriesId != 0) {
+        owner = series.computeIfAbsent(seriesId, id -> new Event.EventSeries());
+      }
+
+      Event e = new Event(subject, LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC),
+              LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC), description, location,
+              status, owner);
+      if (owner != null) {
+        owner.addEvent(e);
+      }
+      events.add(e);
+    }
+    return events;
+  }
+
+  /**
+   * Writes a nullable String, writing its full text only the first time it is seen.
+   * A reference of 0 means null, and a reference one past the known strings introduces new text.
+   */
+  private static void writeString(DataOutputStream data, Map<String, Integer> strings,
+                                  String s) throws IOException {
+    if (s == null) {
+      writeVarLong(data, 0);
+      return;
+    }
+    Integer ref = strings.get(s);
+    if (ref != null) {
+      writeVarLong(data, ref);
+      return;
+    }
+    ref = strings.size() + 1;
+    strings.put(s, ref);
+    writeVarLong(data, ref);
+    data.writeUTF(s);
+  }
+
+  /**
+   * Reads a nullable String written by writeString.
+   */
+  private static String readString(DataInputStream data, List<String> strings)
+          throws IOException {
+    long ref = readVarLong(data);
+    if (ref == 0) {
+      return null;
+    }
+    if (ref == strings.size() + 1) {
+      strings.add(data.readUTF());
+    } else if (ref > strings.size()) {
+      throw new IOException("A stored calendar refers to text that was never written.");
+    }
+    return strings.get((int) ref - 1);
+  }
+
+  /**
+   * Writes a non-negative long in as few bytes as possible, seven bits at a time.
+   */
+  private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      data.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    data.writeByte((int) value);
+  }
+
+  /**
+   * Reads a long written by writeVarLong.
+   */
+  private static long readVarLong(DataInputStream data) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = data.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new EOFException("A stored calendar holds a malformed number.");
+  }
+
+  /**
+   * Maps a signed long onto a non-negative one so that small negative values stay small.
+   */
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Reverses zigZag.
+   */
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
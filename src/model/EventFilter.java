@@ -0,0 +1,170 @@
+package model;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A chain of tests on the details of events, compiled once from the criteria of a filtered
+ * schedule query. The tests are ordered so that the one expected to reject the most events runs
+ * first, and each event is only tested until one of them rejects it. Events are filtered before
+ * they are turned into schedule items, so rejected events never cost a map.
+ *
+ * <p>The criteria are "location" and "status", which must equal the given value, "subject",
+ * which the subject must begin with, ignoring case, and "duration", the least number of minutes
+ * an event must last.</p>
+ */
+final class EventFilter implements Predicate<Event> {
+
+  private final List<Criterion> chain;
+
+  private final String subjectPrefix;
+
+  /**
+   * Constructs a filter from the given tests, already in the order to run them.
+   *
+   * @param chain         the tests an event must pass
+   * @param subjectPrefix the prefix subjects must begin with, or null if any subject passes
+   */
+  private EventFilter(List<Criterion> chain, String subjectPrefix) {
+    this.chain = chain;
+    this.subjectPrefix = subjectPrefix;
+  }
+
+  /**
+   * Compiles the given criteria into a filter.
+   *
+   * @param criteria the criteria, keyed by "location", "status", "subject" or "duration"
+   * @return the filter passing only the events that meet every criterion
+   * @throws IllegalArgumentException if a criterion is unknown or its value is invalid
+   */
+  static EventFilter compile(Map<String, String> criteria) throws IllegalArgumentException {
+    if (criteria == null) {
+      throw new IllegalArgumentException("The criteria to filter by may not be null.");
+    }
+    List<Criterion> chain = new ArrayList<>();
+    String subjectPrefix = null;
+    for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+      String value = criterion.getValue();
+      if (value == null) {
+        throw new IllegalArgumentException("No value was given to filter by "
+                + criterion.getKey() + ".");
+      }
+      switch (criterion.getKey()) {
+        case "location":
+          Event.Location location = Event.Location.assign(value);
+          chain.add(new Criterion(1.0 / Event.Location.values().length,
+              e -> e.location == location));
+          break;
+        case "status":
+          Event.EventStatus status = Event.EventStatus.assign(value);
+          chain.add(new Criterion(1.0 / Event.EventStatus.values().length,
+              e -> e.status == status));
+          break;
+        case "subject":
+          String prefix = value;
+          subjectPrefix = prefix;
+          // every extra character of a prefix rules out more subjects
+          chain.add(new Criterion(1.0 / (2 + prefix.length()),
+              e -> e.subject.regionMatches(true, 0, prefix, 0, prefix.length())));
+          break;
+        case "duration":
+          Duration least = Duration.ofMinutes(parseMinutes(value));
+          chain.add(new Criterion(0.5,
+              e -> Duration.between(e.start, e.end).compareTo(least) >= 0));
+          break;
+        default:
+          throw new IllegalArgumentException("Events cannot be filtered by "
+                  + criterion.getKey() + ".");
+      }
+    }
+    chain.sort(Comparator.comparingDouble(c -> c.selectivity));
+    return new EventFilter(chain, subjectPrefix);
+  }
+
+  /**
+   * Determines whether the given event meets every criterion of this filter.
+   *
+   * @param event the event to test
+   * @return true if no test rejects the event
+   */
+  @Override
+  public boolean test(Event event) {
+    for (Criterion criterion : this.chain) {
+      if (!criterion.test.test(event)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Builds a query for a TextIndex that finds every event whose subject could begin with this
+   * filter's subject prefix, along with others that this filter rejects. Every complete word of
+   * the prefix must be in the event, and a word the prefix ends partway through must begin a
+   * word of the event.
+   *
+   * @return the query, or null if this filter has no subject prefix with a letter or digit
+   */
+  String indexQuery() {
+    if (this.subjectPrefix == null) {
+      return null;
+    }
+    StringBuilder query = new StringBuilder();
+    for (String word : this.subjectPrefix.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!word.isEmpty()) {
+        query.append(word).append(' ');
+      }
+    }
+    if (query.length() == 0) {
+      return null;
+    }
+    query.setLength(query.length() - 1);
+    int last = this.subjectPrefix.codePointBefore(this.subjectPrefix.length());
+    if (Character.isLetterOrDigit(last)) {
+      query.append('*');
+    }
+    return query.toString();
+  }
+
+  /**
+   * Parses a non-negative number of minutes.
+   */
+  private static long parseMinutes(String value) throws IllegalArgumentException {
+    try {
+      long minutes = Long.parseLong(value);
+      if (minutes >= 0) {
+        return minutes;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("A duration must be a non-negative number of minutes, "
+            + "not " + value + ".");
+  }
+
+  /**
+   * One test of a filter along with the estimated fraction of events that pass it.
+   */
+  private static class Criterion {
+
+    private final double selectivity;
+
+    private final Predicate<Event> test;
+
+    /**
+     * Constructs a test.
+     *
+     * @param selectivity the estimated fraction of events passing the test
+     * @param test        the test
+     */
+    private Criterion(double selectivity, Predicate<Event> test) {
+      this.selectivity = selectivity;
+      this.test = test;
+    }
+  }
+}
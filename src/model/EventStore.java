@@ -0,0 +1,461 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Stores events ordered by start time, partitioned into one segment per calendar month of their
+ * start times. Each segment maps start times to events, so at most one event may start at any
+ * given time, and an event can be swapped for an edited copy with the same start time in its
+ * existing slot. Ranges that cover many segments can be searched in parallel, one fork-join task
+ * per group of segments, with the results concatenated back in order.
+ *
+ * <p>The segments and the map of segments are persistent maps, so every change builds a new
+ * version of the store that shares all but a logarithmic number of nodes with the last one.
+ * Any earlier version can be taken as a snapshot, restored later, and compared with the current
+ * version in time proportional to their differences.
+ *
+ * <p>Both the segments and the map of segments keep the latest end time in each of their
+ * subtrees, which makes every version an interval tree as well: the events overlapping a range
+ * are found by walking the events that start before its end and skipping every subtree that
+ * ends before its start, so finding k overlapping events takes O((k + 1) log n) time however
+ * long the other events are.
+ *
+ * <p>The occurrences of each series are recorded in a persistent map of their own, so that
+ * every version also holds the series as they were, and undoing an edit that split or renamed
+ * part of a series restores which events belong to it.
+ */
+final class EventStore implements Iterable<Event> {
+
+  // ranges covering fewer segments than this are searched on the calling thread
+  private static final int PARALLEL_SEGMENTS = 12;
+
+  // the largest number of segments searched by a single fork-join task
+  private static final int SEGMENTS_PER_TASK = 4;
+
+  // a segment of no events, which keeps the latest end time of each of its subtrees
+  private static final PersistentTreeMap<LocalDateTime, Event> NO_EVENTS =
+          PersistentTreeMap.empty(e -> endOf(e.end));
+
+  private PersistentTreeMap<Integer, PersistentTreeMap<LocalDateTime, Event>> segments;
+
+  // the occurrences each series was last recorded with, by the id of the series
+  private PersistentTreeMap<Long, List<Event>> series;
+
+  private int size;
+
+  /**
+   * Constructs an empty store.
+   */
+  EventStore() {
+    this.segments = PersistentTreeMap.empty(PersistentTreeMap::measure);
+    this.series = PersistentTreeMap.empty();
+    this.size = 0;
+  }
+
+  /**
+   * Captures the current version of this store. Taking a snapshot copies nothing, since later
+   * changes build new versions rather than altering this one.
+   *
+   * @return the current version of the stored events
+   */
+  Snapshot snapshot() {
+    return new Snapshot(this.segments, this.series, this.size);
+  }
+
+  /**
+   * Makes the given version the current version of this store, reporting each event that is
+   * removed or added by the switch. An event replaced by an edited copy is reported as removed
+   * and then added.
+   *
+   * @param target  the version to switch to
+   * @param removed the action to take for each event the switch removes
+   * @param added   the action to take for each event the switch adds
+   */
+  void restore(Snapshot target, Consumer<Event> removed, Consumer<Event> added) {
+    diff(this.segments, target.segments, removed, added);
+    this.segments = target.segments;
+    this.series = target.series;
+    this.size = target.size;
+  }
+
+  /**
+   * Determines whether the current version of this store holds any event that the given
+   * version does not, or the other way around.
+   *
+   * @param other the version to compare with
+   * @return true if the versions hold different events
+   */
+  boolean differsFrom(Snapshot other) {
+    boolean[] differs = {false};
+    diff(other.segments, this.segments, e -> differs[0] = true, e -> differs[0] = true);
+    return differs[0];
+  }
+
+  /**
+   * Reports the events removed and added between two versions of the segments.
+   */
+  private static void diff(PersistentTreeMap<Integer, PersistentTreeMap<LocalDateTime, Event>>
+                               before,
+                           PersistentTreeMap<Integer, PersistentTreeMap<LocalDateTime, Event>>
+                               after,
+                           Consumer<Event> removed, Consumer<Event> added) {
+    PersistentTreeMap.diff(before, after, (month, beforeSegment, afterSegment) ->
+        PersistentTreeMap.diff(
+            beforeSegment == null ? PersistentTreeMap.empty() : beforeSegment,
+            afterSegment == null ? PersistentTreeMap.empty() : afterSegment,
+            (start, beforeEvent, afterEvent) -> {
+              if (beforeEvent != null) {
+                removed.accept(beforeEvent);
+              }
+              if (afterEvent != null) {
+                added.accept(afterEvent);
+              }
+            }));
+  }
+
+  /**
+   * Adds the given event unless an event with the same start time is already stored.
+   *
+   * @param event the event to add
+   * @return true if the event was added, false if it shares a start time with a stored event
+   */
+  boolean add(Event event) {
+    int key = segmentOf(event.start);
+    PersistentTreeMap<LocalDateTime, Event> segment = this.segments.get(key);
+    if (segment == null) {
+      segment = NO_EVENTS;
+    } else if (segment.get(event.start) != null) {
+      return false;
+    }
+    this.segments = this.segments.put(key, segment.put(event.start, event));
+    this.size++;
+    return true;
+  }
+
+  /**
+   * Puts the given edited event in the slot of the stored event it was copied from, which must
+   * have the same start time. Nothing is replaced if that event is no longer stored.
+   *
+   * @param original the stored event that was edited
+   * @param edited   the edited copy to store in its place
+   * @return true if the original was replaced, false if it was not stored
+   */
+  boolean replace(Event original, Event edited) {
+    int key = segmentOf(original.start);
+    PersistentTreeMap<LocalDateTime, Event> segment = this.segments.get(key);
+    if (segment == null || !original.equals(segment.get(original.start))) {
+      return false;
+    }
+    this.segments = this.segments.put(key, segment.put(original.start, edited));
+    return true;
+  }
+
+  /**
+   * Finds the stored event that starts at the same time as the given event.
+   *
+   * @param event an event with the start time to look for
+   * @return the stored event with that start time, or null if there is none
+   */
+  Event find(Event event) {
+    PersistentTreeMap<LocalDateTime, Event> segment = this.segments.get(segmentOf(event.start));
+    return segment == null ? null : segment.get(event.start);
+  }
+
+  /**
+   * Removes the given stored event.
+   *
+   * @param event the stored event to remove
+   */
+  void remove(Event event) {
+    int key = segmentOf(event.start);
+    PersistentTreeMap<LocalDateTime, Event> segment = this.segments.get(key);
+    if (segment != null && event.equals(segment.get(event.start))) {
+      this.size--;
+      segment = segment.remove(event.start);
+      this.segments = segment.isEmpty() ? this.segments.remove(key)
+              : this.segments.put(key, segment);
+    }
+  }
+
+  /**
+   * Records the current occurrences of the given series as part of this version of the store.
+   *
+   * @param series the series whose occurrences changed
+   */
+  void record(Event.EventSeries series) {
+    List<Event> occurrences = series.occurrences();
+    this.series = occurrences.isEmpty() ? this.series.remove(series.id())
+            : this.series.put(series.id(), occurrences);
+  }
+
+  /**
+   * Returns the occurrences the given series was last recorded with in this version.
+   *
+   * @param series the series to look up
+   * @return the recorded occurrences of that series, or an empty list if none are recorded
+   */
+  List<Event> recorded(Event.EventSeries series) {
+    List<Event> occurrences = this.series.get(series.id());
+    return occurrences == null ? Collections.emptyList() : occurrences;
+  }
+
+  /**
+   * Returns the number of stored events.
+   *
+   * @return the number of events in this store
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Iterates over every stored event in order of start time.
+   *
+   * @return an iterator over all stored events
+   */
+  @Override
+  public Iterator<Event> iterator() {
+    List<Iterable<Event>> all = new ArrayList<>();
+    for (PersistentTreeMap<LocalDateTime, Event> segment : this.segments.values(null, null)) {
+      all.add(segment.values(null, null));
+    }
+    return new SegmentIterator(all.iterator());
+  }
+
+  /**
+   * Iterates, in order of start time, over the stored events that overlap the given range,
+   * meaning they start no later than its end and end no earlier than its start.
+   *
+   * @param startTime the beginning of the range
+   * @param endTime   the end of the range
+   * @return an iterator over the events overlapping the range
+   */
+  Iterator<Event> overlapping(LocalDateTime startTime, LocalDateTime endTime) {
+    return this.snapshot().overlapping(null, startTime, endTime);
+  }
+
+  /**
+   * Filters and maps the events of the given segment slices on the calling thread.
+   */
+  private static <R> List<R> collectSlices(List<Iterable<Event>> slices,
+                                           Predicate<Event> filter,
+                                           Function<Event, R> mapper) {
+    List<R> results = new ArrayList<>();
+    for (Iterable<Event> slice : slices) {
+      for (Event e : slice) {
+        if (filter.test(e)) {
+          results.add(mapper.apply(e));
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Finds the segment that events starting at the given time belong to.
+   *
+   * @param time a start time
+   * @return the number of months between year 0 and the month of the given time, limited to
+   *         the range of an int for times such as LocalDateTime.MAX that bound open ranges
+   */
+  private static int segmentOf(LocalDateTime time) {
+    long month = time.getYear() * 12L + time.getMonthValue() - 1;
+    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, month));
+  }
+
+  /**
+   * Measures an end time for the segments, in whole seconds since the epoch rounded down, so
+   * that an end measuring less than a time's measure is always before that time.
+   *
+   * @param end an end time, or the start of a range
+   * @return the number of seconds from the epoch to that time, rounded down
+   */
+  private static long endOf(LocalDateTime end) {
+    return end.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /**
+   * One version of the stored events, which stays unchanged however the store changes later.
+   */
+  static final class Snapshot {
+
+    private final PersistentTreeMap<Integer, PersistentTreeMap<LocalDateTime, Event>> segments;
+
+    private final PersistentTreeMap<Long, List<Event>> series;
+
+    private final int size;
+
+    /**
+     * Constructs a snapshot of the given version.
+     *
+     * @param segments the segments of that version
+     * @param series   the recorded occurrences of each series in that version
+     * @param size     the number of events in that version
+     */
+    private Snapshot(PersistentTreeMap<Integer, PersistentTreeMap<LocalDateTime, Event>> segments,
+                     PersistentTreeMap<Long, List<Event>> series,
+                     int size) {
+      this.segments = segments;
+      this.series = series;
+      this.size = size;
+    }
+
+    /**
+     * Returns the number of events in this version.
+     *
+     * @return the number of stored events when this snapshot was taken
+     */
+    int size() {
+      return this.size;
+    }
+
+    /**
+     * Iterates, in order of start time, over the events of this version that overlap the given
+     * range, meaning they start no later than its end and end no earlier than its start, and
+     * that start no earlier than the given first time.
+     *
+     * @param first     the earliest start time to include, or null to include any
+     * @param startTime the beginning of the range
+     * @param endTime   the end of the range
+     * @return an iterator over the events overlapping the range
+     */
+    Iterator<Event> overlapping(LocalDateTime first, LocalDateTime startTime,
+                                LocalDateTime endTime) {
+      return new SegmentIterator(this.slices(first, startTime, endTime).iterator());
+    }
+
+    /**
+     * Collects, in order of start time, the result of the given mapping for every event of this
+     * version overlapping the given range that passes the given filter. When the overlapping
+     * events fall in many segments, groups of segments are searched and mapped in parallel.
+     *
+     * @param startTime the beginning of the range
+     * @param endTime   the end of the range
+     * @param filter    the test an event must pass to be included
+     * @param mapper    the conversion applied to each included event
+     * @param <R>       the type of each result
+     * @return the mapped results in order of the events' start times
+     */
+    <R> List<R> collect(LocalDateTime startTime, LocalDateTime endTime, Predicate<Event> filter,
+                        Function<Event, R> mapper) {
+      List<Iterable<Event>> slices = this.slices(null, startTime, endTime);
+      if (slices.size() < PARALLEL_SEGMENTS) {
+        return collectSlices(slices, filter, mapper);
+      }
+      return ForkJoinPool.commonPool().invoke(new CollectTask<>(slices, filter, mapper));
+    }
+
+    /**
+     * Finds, in order, the parts of each segment holding events that start from the first time
+     * to the end of the range and end no earlier than its start. Segments and subtrees whose
+     * events all end before the range are skipped.
+     */
+    private List<Iterable<Event>> slices(LocalDateTime first, LocalDateTime startTime,
+                                         LocalDateTime endTime) {
+      if (endTime.isBefore(startTime) || first != null && endTime.isBefore(first)) {
+        return Collections.emptyList();
+      }
+      long ends = endOf(startTime);
+      List<Iterable<Event>> slices = new ArrayList<>();
+      for (PersistentTreeMap<LocalDateTime, Event> segment : this.segments.values(
+              first == null ? null : segmentOf(first), segmentOf(endTime), ends)) {
+        slices.add(segment.values(first, endTime, ends));
+      }
+      return slices;
+    }
+  }
+
+  /**
+   * Iterates through a sequence of segments, or parts of segments, one after the other.
+   */
+  private static class SegmentIterator implements Iterator<Event> {
+
+    private final Iterator<Iterable<Event>> segments;
+
+    private Iterator<Event> current;
+
+    /**
+     * Constructs an iterator over the events of the given segments, in order.
+     *
+     * @param segments the segments to iterate through
+     */
+    private SegmentIterator(Iterator<Iterable<Event>> segments) {
+      this.segments = segments;
+      this.current = Collections.emptyIterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!this.current.hasNext() && this.segments.hasNext()) {
+        this.current = this.segments.next().iterator();
+      }
+      return this.current.hasNext();
+    }
+
+    @Override
+    public Event next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException("No more events in this store.");
+      }
+      return this.current.next();
+    }
+  }
+
+  /**
+   * Filters and maps a run of segment slices, splitting the run in half until each task has
+   * only a few segments to search, then joining the halves' results in order.
+   *
+   * @param <R> the type of each result
+   */
+  @SuppressWarnings("serial")
+  private static class CollectTask<R> extends RecursiveTask<List<R>> {
+
+    private final List<Iterable<Event>> slices;
+
+    private final Predicate<Event> filter;
+
+    private final Function<Event, R> mapper;
+
+    /**
+     * Constructs a task over the given slices.
+     *
+     * @param slices the segment slices to search, in order
+     * @param filter the test an event must pass to be included
+     * @param mapper the conversion applied to each included event
+     */
+    private CollectTask(List<Iterable<Event>> slices, Predicate<Event> filter,
+                        Function<Event, R> mapper) {
+      this.slices = slices;
+      this.filter = filter;
+      this.mapper = mapper;
+    }
+
+    @Override
+    protected List<R> compute() {
+      if (this.slices.size() <= SEGMENTS_PER_TASK) {
+        return collectSlices(this.slices, this.filter, this.mapper);
+      }
+      int middle = this.slices.size() / 2;
+      CollectTask<R> left = new CollectTask<>(this.slices.subList(0, middle), this.filter,
+              this.mapper);
+      CollectTask<R> right = new CollectTask<>(this.slices.subList(middle, this.slices.size()),
+              this.filter, this.mapper);
+      left.fork();
+      List<R> results = right.compute();
+      List<R> joined = left.join();
+      joined.addAll(results);
+      return joined;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -40,6 +41,26 @@ interface IEvent {
    */
   Event updateFullSeries(String property, String newPropertyValue);
 
+  /**
+   * Updates a property that does not affect how events are ordered or identified (one of:
+   * "description", "location", "status") by copying the affected events field by field, so no
+   * times are reformatted or reparsed. Copies of several events of a series stay in that series,
+   * to take the places of the events they were copied from once they are stored, so the series
+   * is not rebuilt. As with any other edit of a single event, a copy of only this event no
+   * longer belongs to a series. Nothing is changed until the copies are stored.
+   *
+   * @param scope            which events to update: "event" for only this event, "events" for
+   *                         this and the following events of its series, or "series" for every
+   *                         event of its series
+   * @param property         the name of the property to update
+   * @param newPropertyValue the new value to set
+   * @return the updated copies, in series order
+   * @throws IllegalArgumentException if the property or its new value is not valid
+   * @throws IllegalStateException    if several events of a series are to be updated but this
+   *                                  event is no longer one of its occurrences
+   */
+  List<Event> updateDetails(String scope, String property, String newPropertyValue);
+
   /**
    * Returns the first event in this event's series. Returns null if this event is not part of
    * a series.
@@ -88,8 +109,10 @@ interface IEvent {
   /**
    * Returns this event as a schedule item represented by a map of its properties.
    * The map includes keys such as "event", "from", "to", "description", "location", and "status".
+   * The map is a read-only view backed by this event, so callers that need to add to it must
+   * copy it first.
    *
-   * @return a map representing this event's key properties
+   * @return a read-only map representing this event's key properties
    */
   Map<String, String> asScheduleItem();
 
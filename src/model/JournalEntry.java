@@ -0,0 +1,261 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One change in the journal a ReplicationPrimary ships to its followers. A create or edit is
+ * recorded as the arguments it was made with, so followers make the very same change, and a
+ * batch of them as the list of its creates and edits. A change that cannot be repeated from its
+ * arguments, such as an undo, is recorded as the whole stored form of the calendar it left
+ * behind. A tick records no change, and only tells followers how far the journal has got.
+ */
+final class JournalEntry {
+
+  private static final byte TICK = 0;
+
+  private static final byte CREATE = 1;
+
+  private static final byte EDIT = 2;
+
+  private static final byte BATCH = 3;
+
+  private static final byte RESET = 4;
+
+  private final byte kind;
+
+  // the properties of a create, or the identifier of an edit
+  private final Map<String, String> properties;
+
+  // the event type, property and new value of an edit
+  private final String[] edit;
+
+  private final List<JournalEntry> batch;
+
+  private final byte[] calendar;
+
+  /**
+   * Constructs an entry of the given kind with the given parts, any of which may be null if the
+   * kind does not use it.
+   */
+  private JournalEntry(byte kind, Map<String, String> properties, String[] edit,
+                       List<JournalEntry> batch, byte[] calendar) {
+    this.kind = kind;
+    this.properties = properties;
+    this.edit = edit;
+    this.batch = batch;
+    this.calendar = calendar;
+  }
+
+  /**
+   * Returns an entry recording no change.
+   *
+   * @return a tick
+   */
+  static JournalEntry tick() {
+    return new JournalEntry(TICK, null, null, null, null);
+  }
+
+  /**
+   * Returns an entry recording a create made with the given properties.
+   *
+   * @param properties the properties the event or series was created with
+   * @return the entry
+   */
+  static JournalEntry create(Map<String, String> properties) {
+    return new JournalEntry(CREATE, new HashMap<>(properties), null, null, null);
+  }
+
+  /**
+   * Returns an entry recording an edit made with the given arguments.
+   *
+   * @param eventType        the type of event edited
+   * @param property         the property changed
+   * @param identifier       the identifying properties of the event
+   * @param newPropertyValue the new value of the property
+   * @return the entry
+   */
+  static JournalEntry edit(String eventType, String property, Map<String, String> identifier,
+                           String newPropertyValue) {
+    return new JournalEntry(EDIT, new HashMap<>(identifier),
+            new String[] {eventType, property, newPropertyValue}, null, null);
+  }
+
+  /**
+   * Returns an entry recording the given creates and edits, applied as one transaction.
+   *
+   * @param changes the entries of the creates and edits
+   * @return the entry
+   */
+  static JournalEntry batch(List<JournalEntry> changes) {
+    return new JournalEntry(BATCH, null, null, new ArrayList<>(changes), null);
+  }
+
+  /**
+   * Returns an entry recording the given calendar as it now is.
+   *
+   * @param calendar the calendar whose events should replace those of every follower
+   * @return the entry
+   * @throws IOException if the calendar could not be written
+   */
+  static JournalEntry reset(CalendarModelImpl calendar) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    calendar.writeTo(out);
+    return new JournalEntry(RESET, null, null, null, out.toByteArray());
+  }
+
+  /**
+   * Determines whether this entry records no change.
+   *
+   * @return true if this entry is a tick
+   */
+  boolean isTick() {
+    return this.kind == TICK;
+  }
+
+  /**
+   * Determines whether this entry replaces every event rather than making one change.
+   *
+   * @return true if this entry holds a whole calendar
+   */
+  boolean isReset() {
+    return this.kind == RESET;
+  }
+
+  /**
+   * Makes the change this entry records to the given calendar.
+   *
+   * @param target the calendar to change
+   * @return the changed calendar, which is a new calendar if this entry replaces every event
+   * @throws IOException if this entry holds a calendar that could not be read
+   */
+  CalendarModelImpl applyTo(CalendarModelImpl target) throws IOException {
+    switch (this.kind) {
+      case CREATE:
+        target.createEvent(this.properties);
+        return target;
+      case EDIT:
+        target.editEvent(this.edit[0], this.edit[1], this.properties, this.edit[2]);
+        return target;
+      case BATCH:
+        target.transact(model -> {
+          for (JournalEntry change : this.batch) {
+            if (change.kind == CREATE) {
+              model.createEvent(change.properties);
+            } else {
+              model.editEvent(change.edit[0], change.edit[1], change.properties, change.edit[2]);
+            }
+          }
+        });
+        return target;
+      case RESET:
+        return CalendarModelImpl.readFrom(new ByteArrayInputStream(this.calendar));
+      default:
+        return target;
+    }
+  }
+
+  /**
+   * Writes this entry to the given stream.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  void write(DataOutputStream out) throws IOException {
+    out.writeByte(this.kind);
+    switch (this.kind) {
+      case CREATE:
+        writeMap(out, this.properties);
+        break;
+      case EDIT:
+        writeMap(out, this.properties);
+        for (String part : this.edit) {
+          writeString(out, part);
+        }
+        break;
+      case BATCH:
+        out.writeInt(this.batch.size());
+        for (JournalEntry change : this.batch) {
+          change.write(out);
+        }
+        break;
+      case RESET:
+        out.writeInt(this.calendar.length);
+        out.write(this.calendar);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Reads an entry written by {@link #write(DataOutputStream)}.
+   *
+   * @param in the stream to read from
+   * @return the entry
+   * @throws IOException if reading fails or the stream does not hold an entry
+   */
+  static JournalEntry read(DataInputStream in) throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case TICK:
+        return tick();
+      case CREATE:
+        return new JournalEntry(CREATE, readMap(in), null, null, null);
+      case EDIT:
+        Map<String, String> identifier = readMap(in);
+        String[] edit = {readString(in), readString(in), readString(in)};
+        return new JournalEntry(EDIT, identifier, edit, null, null);
+      case BATCH:
+        int size = in.readInt();
+        List<JournalEntry> changes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          changes.add(read(in));
+        }
+        return new JournalEntry(BATCH, null, null, Collections.unmodifiableList(changes), null);
+      case RESET:
+        byte[] calendar = new byte[in.readInt()];
+        in.readFully(calendar);
+        return new JournalEntry(RESET, null, null, null, calendar);
+      default:
+        throw new IOException("Unknown journal entry kind " + kind + ".");
+    }
+  }
+
+  private static void writeMap(DataOutputStream out, Map<String, String> map)
+          throws IOException {
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  private static Map<String, String> readMap(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    Map<String, String> map = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readString(in));
+    }
+    return map;
+  }
+
+  private static void writeString(DataOutputStream out, String text) throws IOException {
+    out.writeBoolean(text != null);
+    if (text != null) {
+      out.writeUTF(text);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
@@ -0,0 +1,486 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * An immutable sorted map kept as an AVL tree. Adding or removing a key copies only the nodes on
+ * the path to it and returns a new map that shares every other node with the old one, so both
+ * versions stay usable and keeping many versions costs little more than keeping one. Two
+ * versions of the same map can be compared in time proportional to their differences, since
+ * subtrees they share are skipped without being visited.
+ *
+ * <p>A map may also be given a measure of its values, such as the end time of an event. Each
+ * node then keeps the largest measure in its subtree, so a range of keys can be searched for
+ * the values measuring at least some amount while skipping every subtree that measures less,
+ * which finds k such values in O((k + 1) log n) time however many others the range holds.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class PersistentTreeMap<K extends Comparable<? super K>, V> {
+
+  private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null, null);
+
+  private final Node<K, V> root;
+
+  // measures each value for the largest measure kept by each node, or null if not measured
+  private final ToLongFunction<? super V> measure;
+
+  /**
+   * Constructs a map with the given tree.
+   *
+   * @param root    the root of the tree, or null for an empty map
+   * @param measure the measure of the values, or null if they are not measured
+   */
+  private PersistentTreeMap(Node<K, V> root, ToLongFunction<? super V> measure) {
+    this.root = root;
+    this.measure = measure;
+  }
+
+  /**
+   * Returns the empty map.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @return a map with no entries
+   */
+  @SuppressWarnings("unchecked")
+  static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+    return (PersistentTreeMap<K, V>) EMPTY;
+  }
+
+  /**
+   * Returns an empty map whose values are measured by the given function, as are the values of
+   * every map made from it.
+   *
+   * @param measure the measure of each value
+   * @param <K>     the type of the keys
+   * @param <V>     the type of the values
+   * @return a measured map with no entries
+   */
+  static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty(
+          ToLongFunction<? super V> measure) {
+    return new PersistentTreeMap<>(null, measure);
+  }
+
+  /**
+   * Returns the largest measure of the values of this map.
+   *
+   * @return the largest measure, or Long.MIN_VALUE if this map is empty or not measured
+   */
+  long measure() {
+    return max(this.root);
+  }
+
+  /**
+   * Returns the number of entries in this map.
+   *
+   * @return the size of this map
+   */
+  int size() {
+    return size(this.root);
+  }
+
+  /**
+   * Determines whether this map has no entries.
+   *
+   * @return true if this map is empty
+   */
+  boolean isEmpty() {
+    return this.root == null;
+  }
+
+  /**
+   * Finds the value of the given key.
+   *
+   * @param key the key to look up
+   * @return the value of the key, or null if it is not in this map
+   */
+  V get(K key) {
+    Node<K, V> n = this.root;
+    while (n != null) {
+      int c = key.compareTo(n.key);
+      if (c == 0) {
+        return n.value;
+      }
+      n = c < 0 ? n.left : n.right;
+    }
+    return null;
+  }
+
+  /**
+   * Returns a map with the given key set to the given value and every other entry of this map.
+   *
+   * @param key   the key to set
+   * @param value the value to set it to
+   * @return the new map, or this map if the key already had that exact value
+   */
+  PersistentTreeMap<K, V> put(K key, V value) {
+    Node<K, V> updated = put(this.root, key, value, this.measure);
+    return updated == this.root ? this : new PersistentTreeMap<>(updated, this.measure);
+  }
+
+  /**
+   * Returns a map with every entry of this map except the one of the given key.
+   *
+   * @param key the key to remove
+   * @return the new map, or this map if the key was not in it
+   */
+  PersistentTreeMap<K, V> remove(K key) {
+    Node<K, V> updated = remove(this.root, key, this.measure);
+    return updated == this.root ? this : new PersistentTreeMap<>(updated, this.measure);
+  }
+
+  /**
+   * Iterates, in order of their keys, over the values of the keys from the first key to the
+   * last key, inclusive. The values are found as the iterator advances.
+   *
+   * @param first the smallest key to include, or null to start from the smallest key
+   * @param last  the largest key to include, or null to continue to the largest key
+   * @return the values in the given range
+   */
+  Iterable<V> values(K first, K last) {
+    return this.values(first, last, Long.MIN_VALUE);
+  }
+
+  /**
+   * Iterates, in order of their keys, over the values of the keys from the first key to the
+   * last key, inclusive, that measure at least the given amount. Subtrees that measure less are
+   * skipped without being visited.
+   *
+   * @param first   the smallest key to include, or null to start from the smallest key
+   * @param last    the largest key to include, or null to continue to the largest key
+   * @param atLeast the smallest measure to include, which must be Long.MIN_VALUE if this map
+   *                is not measured
+   * @return the values in the given range measuring at least the given amount
+   */
+  Iterable<V> values(K first, K last, long atLeast) {
+    return () -> new RangeIterator<>(this.root, first, last, atLeast, this.measure);
+  }
+
+  /**
+   * Reports every key whose value differs between the given versions of a map, in order of
+   * their keys. Values are compared by identity, and subtrees the versions share are skipped.
+   *
+   * @param before   the earlier version
+   * @param after    the later version
+   * @param listener the listener to report each difference to
+   * @param <K>      the type of the keys
+   * @param <V>      the type of the values
+   */
+  static <K extends Comparable<? super K>, V> void diff(PersistentTreeMap<K, V> before,
+                                                         PersistentTreeMap<K, V> after,
+                                                         DiffListener<K, V> listener) {
+    Deque<Object> left = new ArrayDeque<>();
+    Deque<Object> right = new ArrayDeque<>();
+    pushSubtree(left, before.root);
+    pushSubtree(right, after.root);
+
+    while (!left.isEmpty() || !right.isEmpty()) {
+      Object l = left.peek();
+      Object r = right.peek();
+      if (l != null && same(l, r)) {
+        // the same subtree, or the same entry, is next in both versions
+        left.pop();
+        right.pop();
+      } else if (l instanceof Subtree || r instanceof Subtree) {
+        // open the taller pending subtree, in the hope that part of it is shared
+        if (!(r instanceof Subtree) || (l instanceof Subtree
+                && ((Subtree<?, ?>) l).node.height >= ((Subtree<?, ?>) r).node.height)) {
+          expand(left);
+        } else {
+          expand(right);
+        }
+      } else {
+        Node<K, V> ln = cast(l);
+        Node<K, V> rn = cast(r);
+        int c = ln == null ? 1 : rn == null ? -1 : ln.key.compareTo(rn.key);
+        if (c < 0) {
+          listener.changed(ln.key, ln.value, null);
+          left.pop();
+        } else if (c > 0) {
+          listener.changed(rn.key, null, rn.value);
+          right.pop();
+        } else {
+          if (ln.value != rn.value) {
+            listener.changed(ln.key, ln.value, rn.value);
+          }
+          left.pop();
+          right.pop();
+        }
+      }
+    }
+  }
+
+  /**
+   * Receives the differences between two versions of a map.
+   *
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   */
+  interface DiffListener<K, V> {
+
+    /**
+     * Reports that the given key has a different value in the later version.
+     *
+     * @param key    the key whose value differs
+     * @param before the value in the earlier version, or null if the key was added
+     * @param after  the value in the later version, or null if the key was removed
+     */
+    void changed(K key, V before, V after);
+  }
+
+  /**
+   * Determines whether two items of the diff stacks are the same subtree or the same entry.
+   */
+  private static boolean same(Object l, Object r) {
+    if (l instanceof Subtree && r instanceof Subtree) {
+      return ((Subtree<?, ?>) l).node == ((Subtree<?, ?>) r).node;
+    }
+    return l == r;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K extends Comparable<? super K>, V> Node<K, V> cast(Object entry) {
+    return (Node<K, V>) entry;
+  }
+
+  /**
+   * Pushes a pending subtree onto a diff stack, unless it is empty.
+   */
+  private static void pushSubtree(Deque<Object> stack, Node<?, ?> node) {
+    if (node != null) {
+      stack.push(new Subtree<>(node));
+    }
+  }
+
+  /**
+   * Replaces the pending subtree on top of a diff stack with its left subtree, its own entry
+   * and its right subtree, in that order from the top.
+   */
+  private static void expand(Deque<Object> stack) {
+    Node<?, ?> node = ((Subtree<?, ?>) stack.pop()).node;
+    pushSubtree(stack, node.right);
+    stack.push(node);
+    pushSubtree(stack, node.left);
+  }
+
+  private static int size(Node<?, ?> n) {
+    return n == null ? 0 : n.size;
+  }
+
+  private static int height(Node<?, ?> n) {
+    return n == null ? 0 : n.height;
+  }
+
+  private static long max(Node<?, ?> n) {
+    return n == null ? Long.MIN_VALUE : n.max;
+  }
+
+  /**
+   * Measures the given value, or returns Long.MIN_VALUE if there is no measure.
+   */
+  private static <V> long measureOf(V value, ToLongFunction<? super V> measure) {
+    return measure == null ? Long.MIN_VALUE : measure.applyAsLong(value);
+  }
+
+  /**
+   * Sets the given key in the given tree, copying the path to it.
+   */
+  private static <K extends Comparable<? super K>, V> Node<K, V> put(
+          Node<K, V> n, K key, V value, ToLongFunction<? super V> measure) {
+    if (n == null) {
+      return new Node<>(key, value, null, null, measure);
+    }
+    int c = key.compareTo(n.key);
+    if (c < 0) {
+      Node<K, V> left = put(n.left, key, value, measure);
+      return left == n.left ? n : balance(n.key, n.value, left, n.right, measure);
+    } else if (c > 0) {
+      Node<K, V> right = put(n.right, key, value, measure);
+      return right == n.right ? n : balance(n.key, n.value, n.left, right, measure);
+    }
+    return n.value == value ? n : new Node<>(key, value, n.left, n.right, measure);
+  }
+
+  /**
+   * Removes the given key from the given tree, copying the path to it.
+   */
+  private static <K extends Comparable<? super K>, V> Node<K, V> remove(
+          Node<K, V> n, K key, ToLongFunction<? super V> measure) {
+    if (n == null) {
+      return null;
+    }
+    int c = key.compareTo(n.key);
+    if (c < 0) {
+      Node<K, V> left = remove(n.left, key, measure);
+      return left == n.left ? n : balance(n.key, n.value, left, n.right, measure);
+    } else if (c > 0) {
+      Node<K, V> right = remove(n.right, key, measure);
+      return right == n.right ? n : balance(n.key, n.value, n.left, right, measure);
+    }
+    if (n.left == null) {
+      return n.right;
+    }
+    if (n.right == null) {
+      return n.left;
+    }
+    Node<K, V> successor = n.right;
+    while (successor.left != null) {
+      successor = successor.left;
+    }
+    return balance(successor.key, successor.value, n.left,
+            remove(n.right, successor.key, measure), measure);
+  }
+
+  /**
+   * Builds a node from the given parts, rotating once or twice if one side is too tall.
+   */
+  private static <K extends Comparable<? super K>, V> Node<K, V> balance(
+          K key, V value, Node<K, V> left, Node<K, V> right, ToLongFunction<? super V> measure) {
+    int leftHeight = height(left);
+    int rightHeight = height(right);
+    if (leftHeight > rightHeight + 1) {
+      if (height(left.left) < height(left.right)) {
+        left = rotateLeft(left.key, left.value, left.left, left.right, measure);
+      }
+      return new Node<>(left.key, left.value, left.left,
+              new Node<>(key, value, left.right, right, measure), measure);
+    }
+    if (rightHeight > leftHeight + 1) {
+      if (height(right.right) < height(right.left)) {
+        right = rotateRight(right.key, right.value, right.left, right.right, measure);
+      }
+      return new Node<>(right.key, right.value,
+              new Node<>(key, value, left, right.left, measure), right.right, measure);
+    }
+    return new Node<>(key, value, left, right, measure);
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> rotateLeft(
+          K key, V value, Node<K, V> left, Node<K, V> right, ToLongFunction<? super V> measure) {
+    return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left, measure),
+            right.right, measure);
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> rotateRight(
+          K key, V value, Node<K, V> left, Node<K, V> right, ToLongFunction<? super V> measure) {
+    return new Node<>(left.key, left.value, left.left,
+            new Node<>(key, value, left.right, right, measure), measure);
+  }
+
+  /**
+   * One immutable node of the tree, which records the height, size and largest measure of its
+   * subtree.
+   */
+  private static final class Node<K, V> {
+
+    private final K key;
+
+    private final V value;
+
+    private final Node<K, V> left;
+
+    private final Node<K, V> right;
+
+    private final int height;
+
+    private final int size;
+
+    private final long max;
+
+    private Node(K key, V value, Node<K, V> left, Node<K, V> right,
+                 ToLongFunction<? super V> measure) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(PersistentTreeMap.height(left), PersistentTreeMap.height(right)) + 1;
+      this.size = PersistentTreeMap.size(left) + PersistentTreeMap.size(right) + 1;
+      this.max = Math.max(measureOf(value, measure),
+              Math.max(PersistentTreeMap.max(left), PersistentTreeMap.max(right)));
+    }
+  }
+
+  /**
+   * A subtree waiting to be compared, as opposed to a single entry, on a diff stack.
+   */
+  private static final class Subtree<K, V> {
+
+    private final Node<K, V> node;
+
+    private Subtree(Node<K, V> node) {
+      this.node = node;
+    }
+  }
+
+  /**
+   * Iterates in order over the values of a range of keys that measure at least some amount,
+   * keeping the path to the next node and leaving out subtrees that measure less.
+   */
+  private static final class RangeIterator<K extends Comparable<? super K>, V>
+          implements Iterator<V> {
+
+    private final Deque<Node<K, V>> path;
+
+    private final K last;
+
+    private final long atLeast;
+
+    private final ToLongFunction<? super V> measure;
+
+    private RangeIterator(Node<K, V> root, K first, K last, long atLeast,
+                          ToLongFunction<? super V> measure) {
+      this.path = new ArrayDeque<>();
+      this.last = last;
+      this.atLeast = atLeast;
+      this.measure = measure;
+      Node<K, V> n = root;
+      while (n != null && n.max >= atLeast) {
+        if (first == null || first.compareTo(n.key) <= 0) {
+          this.path.push(n);
+          n = n.left;
+        } else {
+          n = n.right;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!this.path.isEmpty()
+              && (this.last == null || this.path.peek().key.compareTo(this.last) <= 0)) {
+        if (measureOf(this.path.peek().value, this.measure) >= this.atLeast) {
+          return true;
+        }
+        // only a subtree of this node measures enough
+        this.descendRight(this.path.pop());
+      }
+      return false;
+    }
+
+    @Override
+    public V next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException("No more entries in this range.");
+      }
+      Node<K, V> n = this.path.pop();
+      this.descendRight(n);
+      return n.value;
+    }
+
+    /**
+     * Pushes the path to the first node after the given node that may measure enough.
+     */
+    private void descendRight(Node<K, V> n) {
+      for (Node<K, V> child = n.right; child != null && child.max >= this.atLeast;
+           child = child.left) {
+        this.path.push(child);
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of a calendar's events at one version, including the events it had sealed
+ * by then. Since the events are a snapshot of a persistent store and the sealed segments are
+ * never changed, the view copies nothing and can be queried from any thread while the calendar
+ * goes on changing.
+ */
+final class PublishedSchedule {
+
+  private final EventStore.Snapshot events;
+
+  // the sealed events, or null if the calendar has no cold storage
+  private final ColdTier sealed;
+
+  private final long version;
+
+  /**
+   * Constructs a view of the given events.
+   *
+   * @param events  the events at this version
+   * @param sealed  the events sealed by this version, or null if there is no cold storage
+   * @param version the version of the calendar the events are from
+   */
+  PublishedSchedule(EventStore.Snapshot events, ColdTier sealed, long version) {
+    this.events = events;
+    this.sealed = sealed;
+    this.version = version;
+  }
+
+  /**
+   * Returns the version of the calendar this view shows.
+   *
+   * @return the version the events are from
+   */
+  long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Retrieves the events overlapping the given range, as with
+   * {@link CalendarModel#getSchedule(String, String)}.
+   *
+   * @param start the start date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @param end   the end date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @return the events of this view overlapping the range, ordered by start
+   * @throws IllegalArgumentException if the start is after the end
+   */
+  List<Map<String, String>> getSchedule(String start, String end)
+          throws IllegalArgumentException {
+    return CalendarModelImpl.withSealed(this.sealed, DateTimes.parseDateTime(start),
+            DateTimes.parseDateTime(end), e -> true,
+            CalendarModelImpl.scheduleAt(this.events, start, end));
+  }
+
+  /**
+   * Retrieves the events on the given day, as with {@link CalendarModel#getSchedule(String)}.
+   *
+   * @param day the day as a String in the format: YYYY-MM-DD
+   * @return the events of this view on that day, ordered by start
+   */
+  List<Map<String, String>> getSchedule(String day) {
+    LocalDate date = DateTimes.parseDate(day);
+    return this.getSchedule(date.atTime(0, 0).toString(), date.atTime(23, 59).toString());
+  }
+
+  /**
+   * Retrieves the status of the user at the given date-time, as with
+   * {@link CalendarModel#getStatus(String)}.
+   *
+   * @param dateTime the date-time to check as a String in the format: YYYY-MM-DDThh:mm
+   * @return "busy" or "available"
+   */
+  String getStatus(String dateTime) {
+    return CalendarModelImpl.statusOf(this.sealed, this.events,
+            DateTimes.parseDateTime(dateTime));
+  }
+}
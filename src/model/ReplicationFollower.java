@@ -0,0 +1,251 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read replica of the calendar of a ReplicationPrimary. The follower keeps its own copy of the
+ * calendar, connects to the primary over a local socket, and applies each journal entry it is
+ * shipped, in order, on a background thread. If it is disconnected it keeps reconnecting,
+ * resuming from the last entry it applied, so the primary sends it only what it missed, or the
+ * whole calendar if it missed too much. An entry that cannot be applied means the copy no longer
+ * matches the primary's calendar, so the follower keeps the failure to be inspected and
+ * reconnects asking for a fresh copy of the primary's whole calendar.
+ *
+ * <p>Queries are answered from an immutable view of the copy that is published once every
+ * entry in a shipment has been applied, so they never wait on the background thread. The
+ * follower is as current as the primary was when it last received a shipment after which it
+ * had applied every entry, and its staleness is the time since then. Queries fail rather than
+ * answer from a copy staler than the configured bound.</p>
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+  // the staleness beyond which queries fail, unless configured otherwise
+  private static final Duration MAX_STALENESS = Duration.ofSeconds(5);
+
+  // how long to wait before reconnecting to the primary
+  private static final long RECONNECT_MILLIS = 200;
+
+  // the entry to resume after that makes the primary send its whole calendar
+  private static final long RESYNC = -1;
+
+  private final String host;
+
+  private final int port;
+
+  private final Thread receiver;
+
+  private volatile PublishedSchedule published;
+
+  private volatile long applied;
+
+  // the System.nanoTime() at which this follower was last known to be current
+  private volatile long currentAt;
+
+  private volatile Duration maxStaleness;
+
+  private volatile boolean closed;
+
+  // why the last entry that could not be applied failed, or null if every entry was applied
+  private volatile RuntimeException failure;
+
+  private Socket connection;
+
+  /**
+   * Constructs a follower of the primary listening on the given host and port, and starts
+   * following it. Until the first shipment arrives, the follower has no events and is as stale
+   * as the time since it was constructed.
+   *
+   * @param host the host of the primary
+   * @param port the port the primary listens for followers on
+   */
+  public ReplicationFollower(String host, int port) {
+    this.host = host;
+    this.port = port;
+    this.published = new CalendarModelImpl().publishSchedule();
+    this.applied = 0;
+    this.currentAt = System.nanoTime();
+    this.maxStaleness = MAX_STALENESS;
+    this.closed = false;
+    this.failure = null;
+    this.receiver = new Thread(this::follow, "replication-follower");
+    this.receiver.setDaemon(true);
+    this.receiver.start();
+  }
+
+  /**
+   * Retrieves the events overlapping the given range, as with
+   * {@link CalendarModel#getSchedule(String, String)}.
+   *
+   * @param start the start date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @param end   the end date-time of the range as a String in the format: YYYY-MM-DDThh:mm
+   * @return the events of this follower's copy overlapping the range, ordered by start
+   * @throws IllegalArgumentException if the start is after the end
+   * @throws IllegalStateException    if this follower is staler than its bound
+   */
+  public List<Map<String, String>> getSchedule(String start, String end) {
+    return this.current().getSchedule(start, end);
+  }
+
+  /**
+   * Retrieves the events on the given day, as with {@link CalendarModel#getSchedule(String)}.
+   *
+   * @param day the day as a String in the format: YYYY-MM-DD
+   * @return the events of this follower's copy on that day, ordered by start
+   * @throws IllegalStateException if this follower is staler than its bound
+   */
+  public List<Map<String, String>> getSchedule(String day) {
+    return this.current().getSchedule(day);
+  }
+
+  /**
+   * Retrieves the status of the user at the given date-time, as with
+   * {@link CalendarModel#getStatus(String)}.
+   *
+   * @param dateTime the date-time to check as a String in the format: YYYY-MM-DDThh:mm
+   * @return "busy" or "available"
+   * @throws IllegalStateException if this follower is staler than its bound
+   */
+  public String getStatus(String dateTime) {
+    return this.current().getStatus(dateTime);
+  }
+
+  /**
+   * Returns the number of the last journal entry this follower has applied and published to
+   * queries.
+   *
+   * @return the primary's sequence number that queries to this follower reflect
+   */
+  public long getAppliedSequence() {
+    return this.applied;
+  }
+
+  /**
+   * Returns why the last journal entry this follower could not apply failed. Each such failure
+   * made the follower copy the primary's whole calendar again.
+   *
+   * @return the failure of the last entry that could not be applied, or null if there was none
+   */
+  public RuntimeException getLastFailure() {
+    return this.failure;
+  }
+
+  /**
+   * Returns how long it has been since this follower was last known to have applied every
+   * change the primary had made.
+   *
+   * @return the staleness of this follower's copy
+   */
+  public Duration getStaleness() {
+    return Duration.ofNanos(System.nanoTime() - this.currentAt);
+  }
+
+  /**
+   * Sets how stale this follower's copy may be for queries to still be answered.
+   *
+   * @param bound the greatest staleness to answer queries at
+   * @throws IllegalArgumentException if the bound is null or negative
+   */
+  public void setMaxStaleness(Duration bound) throws IllegalArgumentException {
+    if (bound == null || bound.isNegative()) {
+      throw new IllegalArgumentException("The staleness bound must be a non-negative time.");
+    }
+    this.maxStaleness = bound;
+  }
+
+  /**
+   * Stops following the primary.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    synchronized (this) {
+      if (this.connection != null) {
+        try {
+          this.connection.close();
+        } catch (IOException e) {
+          // the connection is being abandoned either way
+        }
+      }
+    }
+    this.receiver.interrupt();
+  }
+
+  /**
+   * Returns the published view of this follower's copy, as long as it is fresh enough.
+   */
+  private PublishedSchedule current() {
+    Duration staleness = this.getStaleness();
+    if (staleness.compareTo(this.maxStaleness) > 0) {
+      throw new IllegalStateException("This replica is " + staleness.toMillis() + " ms stale, "
+              + "more than its bound of " + this.maxStaleness.toMillis() + " ms.");
+    }
+    return this.published;
+  }
+
+  /**
+   * Follows the primary until this follower is closed, reconnecting whenever the connection is
+   * lost.
+   */
+  private void follow() {
+    CalendarModelImpl copy = new CalendarModelImpl();
+    // the last entry applied to the copy, which may not have been published yet
+    long last = 0;
+    while (!this.closed) {
+      try (Socket socket = this.connect()) {
+        socket.setTcpNoDelay(true);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.writeLong(last);
+        out.flush();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                socket.getInputStream()));
+        while (!this.closed) {
+          long sequence = in.readLong();
+          JournalEntry entry = JournalEntry.read(in);
+          if (entry.isTick()) {
+            this.published = copy.publishSchedule();
+            this.applied = last;
+            if (last >= sequence) {
+              this.currentAt = System.nanoTime();
+            }
+          } else if (entry.isReset() || sequence == last + 1) {
+            try {
+              copy = entry.applyTo(copy);
+            } catch (RuntimeException e) {
+              // the primary made this change, so the copy has drifted from its calendar
+              this.failure = e;
+              copy = new CalendarModelImpl();
+              last = RESYNC;
+              break;
+            }
+            last = sequence;
+          }
+        }
+      } catch (IOException e) {
+        // the primary is unreachable or went away, so try again shortly
+      }
+      try {
+        Thread.sleep(RECONNECT_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Connects to the primary, remembering the connection so that closing can break it.
+   */
+  private synchronized Socket connect() throws IOException {
+    if (this.closed) {
+      throw new IOException("This follower has been closed.");
+    }
+    this.connection = new Socket(this.host, this.port);
+    return this.connection;
+  }
+}
@@ -0,0 +1,435 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Makes a calendar the primary of a group of read replicas. Every create and edit that changes
+ * the calendar is recorded in a journal, numbered in order, and shipped over a local socket to
+ * each connected ReplicationFollower, which makes the same change to its own copy. A change that
+ * cannot be repeated from its arguments, such as an undo or a create that failed part way, is
+ * shipped as the whole calendar it left behind instead.
+ *
+ * <p>A follower says which journal entry it applied last when it connects. If the journal still
+ * holds every entry after that one, the follower is sent just those, and otherwise it is sent
+ * the whole calendar followed by the entries after it, as is a follower that asks to resume
+ * from before the first entry. An entry holding the whole calendar replaces everything
+ * journaled before it, so those entries are dropped, and the journal holds at most one copy of
+ * the calendar however often changes are undone. Followers are sent a tick when nothing has
+ * changed for a while, so that they can tell how current they are.</p>
+ *
+ * <p>The calendar may be used from many threads, but changes are made one at a time.</p>
+ */
+public class ReplicationPrimary implements CalendarModel, AutoCloseable {
+
+  // the number of most recent entries kept for followers catching up
+  private static final int JOURNAL_CAPACITY = 10000;
+
+  // how long a follower waits for a change before being sent a tick
+  private static final long TICK_MILLIS = 100;
+
+  private final CalendarModelImpl calendar;
+
+  private final ServerSocket socket;
+
+  private final Deque<Shipment> journal;
+
+  private final List<Socket> followers;
+
+  private long sequence;
+
+  // the creates and edits made so far by the changes being applied as one, or null
+  private List<JournalEntry> recording;
+
+  // the calendar the changes being applied as one are given, or null
+  private CalendarModel batch;
+
+  private boolean batchFailed;
+
+  /**
+   * Constructs a primary for the given calendar, listening for followers on the given port of
+   * the loopback address. The calendar should not be used directly once it has been wrapped.
+   *
+   * @param calendar the calendar to replicate
+   * @param port     the port to listen on, or 0 to pick any free port
+   * @throws IllegalArgumentException if the calendar is null
+   * @throws IllegalStateException    if the port could not be listened on
+   */
+  public ReplicationPrimary(CalendarModelImpl calendar, int port) {
+    if (calendar == null) {
+      throw new IllegalArgumentException("The calendar to replicate may not be null.");
+    }
+    this.calendar = calendar;
+    this.journal = new ArrayDeque<>();
+    this.followers = new ArrayList<>();
+    this.sequence = 0;
+    try {
+      this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not listen on port " + port + ": " + e.getMessage());
+    }
+    // the journal starts from the calendar as it was given, so that new followers copy it
+    synchronized (this) {
+      this.append(this.snapshot());
+    }
+    Thread acceptor = new Thread(this::accept, "replication-primary");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the port this primary is listening for followers on.
+   *
+   * @return the local port number
+   */
+  public int getPort() {
+    return this.socket.getLocalPort();
+  }
+
+  /**
+   * Returns the number of the last journal entry, which goes up by one with every change. The
+   * first entry is the calendar as it was when this primary was constructed.
+   *
+   * @return the number of entries journaled
+   */
+  public synchronized long getSequence() {
+    return this.sequence;
+  }
+
+  @Override
+  public synchronized void createEvent(Map<String, String> properties) {
+    if (this.batch != null) {
+      this.record(() -> this.batch.createEvent(properties), JournalEntry.create(properties));
+      return;
+    }
+    this.journaled(() -> this.calendar.createEvent(properties),
+            JournalEntry.create(properties));
+  }
+
+  @Override
+  public synchronized void editEvent(String eventType, String property,
+                                     Map<String, String> identifier, String newPropertyValue) {
+    JournalEntry entry = JournalEntry.edit(eventType, property, identifier, newPropertyValue);
+    if (this.batch != null) {
+      this.record(() -> this.batch.editEvent(eventType, property, identifier, newPropertyValue),
+              entry);
+      return;
+    }
+    this.journaled(() -> this.calendar.editEvent(eventType, property, identifier,
+            newPropertyValue), entry);
+  }
+
+  /**
+   * Applies the given changes as one change, journaling them as one entry. The changes are given
+   * this primary, so that each create and edit they make is recorded.
+   */
+  @Override
+  public synchronized void transact(Consumer<CalendarModel> changes) {
+    if (this.batch != null) {
+      throw new IllegalStateException("A batch of changes is already being applied.");
+    }
+    this.recording = new ArrayList<>();
+    this.batchFailed = false;
+    try {
+      this.journaled(() -> this.calendar.transact(model -> {
+        this.batch = model;
+        changes.accept(this);
+      }), null);
+    } finally {
+      this.batch = null;
+      this.recording = null;
+    }
+  }
+
+  @Override
+  public synchronized void undo() {
+    this.journaled(this.calendar::undo, null);
+  }
+
+  @Override
+  public synchronized void redo() {
+    this.journaled(this.calendar::redo, null);
+  }
+
+  @Override
+  public synchronized void checkpoint(String name) {
+    this.calendar.checkpoint(name);
+  }
+
+  @Override
+  public synchronized void restoreCheckpoint(String name) {
+    this.journaled(() -> this.calendar.restoreCheckpoint(name), null);
+  }
+
+  @Override
+  public synchronized List<Map<String, String>> getSchedule(String start, String end) {
+    return this.calendar.getSchedule(start, end);
+  }
+
+  @Override
+  public synchronized List<Map<String, String>> getSchedule(String start, String end,
+                                                            Map<String, String> filters) {
+    return this.calendar.getSchedule(start, end, filters);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getMemoryUsage() {
+    return this.calendar.getMemoryUsage();
+  }
+
+  @Override
+  public synchronized SchedulePage getSchedulePage(String start, String end, String cursor,
+                                                   int limit) {
+    return this.calendar.getSchedulePage(start, end, cursor, limit);
+  }
+
+  @Override
+  public synchronized List<Map<String, String>> getSchedule(String day) {
+    return this.calendar.getSchedule(day);
+  }
+
+  @Override
+  public synchronized String getStatus(String dateTime) {
+    return this.calendar.getStatus(dateTime);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+    return this.calendar.getBusyTotals(firstDay, lastDay);
+  }
+
+  @Override
+  public synchronized List<Map<String, String>> search(String query, String start,
+                                                       String end) {
+    return this.calendar.search(query, start, end);
+  }
+
+  /**
+   * Retrieves the busy slots overlapping the given range. The slots are collected before
+   * returning, since the calendar may change once other threads are let in.
+   */
+  @Override
+  public synchronized Iterator<TimeSlot> busySlots(String start, String end) {
+    List<TimeSlot> slots = new ArrayList<>();
+    this.calendar.busySlots(start, end).forEachRemaining(slots::add);
+    return slots.iterator();
+  }
+
+  /**
+   * Stop accepting followers and disconnect the ones connected.
+   */
+  @Override
+  public void close() {
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+    synchronized (this) {
+      for (Socket follower : this.followers) {
+        try {
+          follower.close();
+        } catch (IOException e) {
+          // the follower is being abandoned either way
+        }
+      }
+      this.notifyAll();
+    }
+  }
+
+  /**
+   * Makes a change to the calendar and journals it if it changed any event. A change that
+   * failed after changing events is journaled as the calendar it left behind.
+   *
+   * @param change the change to make
+   * @param entry  the entry recording the change, or null to record the calendar it leaves
+   */
+  private void journaled(Runnable change, JournalEntry entry) {
+    long before = this.calendar.getVersion();
+    try {
+      change.run();
+    } catch (Throwable e) {
+      CalendarModelImpl.cleanUpAfter(e, () -> this.journalSince(before, null, true));
+      throw e;
+    }
+    this.journalSince(before, entry, false);
+  }
+
+  /**
+   * Journals the change made since the calendar was at the given version, if there was one.
+   *
+   * @param before the version of the calendar before the change
+   * @param entry  the entry recording the change, or null to record the calendar it left
+   * @param failed whether the change failed, so that the calendar it left must be recorded
+   */
+  private void journalSince(long before, JournalEntry entry, boolean failed) {
+    if (this.calendar.getVersion() == before) {
+      return;
+    }
+    if (entry == null && this.recording != null && !this.batchFailed) {
+      entry = JournalEntry.batch(this.recording);
+    }
+    this.append(failed || entry == null ? this.snapshot() : entry);
+  }
+
+  /**
+   * Makes one create or edit of the batch of changes being applied, recording it if it
+   * succeeds.
+   *
+   * @param change the create or edit to make
+   * @param entry  the entry recording it
+   */
+  private void record(Runnable change, JournalEntry entry) {
+    try {
+      change.run();
+      this.recording.add(entry);
+    } catch (RuntimeException e) {
+      // the batch may go on after a failed change, but is then journaled as the calendar
+      this.batchFailed = true;
+      throw e;
+    }
+  }
+
+  /**
+   * Returns an entry recording the whole calendar as it now is.
+   */
+  private JournalEntry snapshot() {
+    try {
+      return JournalEntry.reset(this.calendar);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Adds the given entry to the journal, dropping the oldest if it is full, or every earlier
+   * entry if it holds the whole calendar, and wakes the followers waiting for it. Followers that
+   * had not applied the dropped entries are sent the calendar instead, which is all they would
+   * have ended up with.
+   */
+  private void append(JournalEntry entry) {
+    if (entry.isReset()) {
+      this.journal.clear();
+    }
+    this.sequence++;
+    this.journal.addLast(new Shipment(this.sequence, entry));
+    if (this.journal.size() > JOURNAL_CAPACITY) {
+      this.journal.removeFirst();
+    }
+    this.notifyAll();
+  }
+
+  /**
+   * Accepts followers until this primary is closed, shipping the journal to each one.
+   */
+  private void accept() {
+    while (!this.socket.isClosed()) {
+      Socket follower;
+      try {
+        follower = this.socket.accept();
+      } catch (IOException e) {
+        // the socket was closed while waiting for a follower
+        break;
+      }
+      synchronized (this) {
+        this.followers.add(follower);
+      }
+      Thread shipper = new Thread(() -> this.ship(follower), "replication-shipper");
+      shipper.setDaemon(true);
+      shipper.start();
+    }
+  }
+
+  /**
+   * Ships the journal to the given follower, starting after the entry it says it applied last,
+   * until it disconnects or this primary is closed.
+   *
+   * @param follower the connection to the follower
+   */
+  private void ship(Socket follower) {
+    try (Socket connection = follower) {
+      connection.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(connection.getInputStream());
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+              connection.getOutputStream()));
+      long shipped = in.readLong();
+      while (!this.socket.isClosed()) {
+        List<Shipment> due = new ArrayList<>();
+        long latest;
+        synchronized (this) {
+          if (this.sequence == shipped) {
+            this.wait(TICK_MILLIS);
+          }
+          latest = this.sequence;
+          if (shipped < 0 || shipped > latest || this.missed(shipped)) {
+            // the follower is too far behind, has drifted and asks to start over, or is ahead of
+            // a primary that was restarted
+            due.add(new Shipment(latest, this.snapshot()));
+          } else {
+            for (Shipment s : this.journal) {
+              if (s.sequence > shipped) {
+                due.add(s);
+              }
+            }
+          }
+        }
+        for (Shipment s : due) {
+          out.writeLong(s.sequence);
+          s.entry.write(out);
+        }
+        out.writeLong(latest);
+        JournalEntry.tick().write(out);
+        out.flush();
+        shipped = latest;
+      }
+    } catch (IOException | InterruptedException e) {
+      // a failed follower only loses its own connection, and can reconnect to catch up
+    } finally {
+      synchronized (this) {
+        this.followers.remove(follower);
+      }
+    }
+  }
+
+  /**
+   * Determines whether entries after the given one have been dropped from the journal.
+   */
+  private boolean missed(long shipped) {
+    return shipped < this.sequence
+            && (this.journal.isEmpty() || this.journal.peekFirst().sequence > shipped + 1);
+  }
+
+  /**
+   * A journal entry and its number.
+   */
+  private static class Shipment {
+
+    private final long sequence;
+
+    private final JournalEntry entry;
+
+    /**
+     * Constructs a numbered entry.
+     *
+     * @param sequence the number of the entry
+     * @param entry    the entry
+     */
+    private Shipment(long sequence, JournalEntry entry) {
+      this.sequence = sequence;
+      this.entry = entry;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes a calendar has gone through since a version a client last synchronized at, or a
+ * signal that the changes are no longer known and the client must download the schedule again.
+ */
+public final class ScheduleDelta {
+
+  private final long version;
+
+  private final boolean resyncRequired;
+
+  private final List<Map<String, String>> changes;
+
+  /**
+   * Constructs a delta bringing a client up to the given version.
+   *
+   * @param version        the calendar's version once the changes are applied
+   * @param resyncRequired whether the changes are no longer known
+   * @param changes        the changed occurrences, empty if a resync is required
+   */
+  ScheduleDelta(long version, boolean resyncRequired, List<Map<String, String>> changes) {
+    this.version = version;
+    this.resyncRequired = resyncRequired;
+    this.changes = Collections.unmodifiableList(changes);
+  }
+
+  /**
+   * Returns the version of the calendar this delta brings a client up to, which the client
+   * should ask for changes since next time.
+   *
+   * @return the calendar's current version
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Determines whether the calendar no longer remembers every change since the requested
+   * version, in which case the client must download the full schedule again.
+   *
+   * @return true if the client must resynchronize from scratch
+   */
+  public boolean isResyncRequired() {
+    return this.resyncRequired;
+  }
+
+  /**
+   * Returns the changed occurrences, each represented by the same map of properties a schedule
+   * would hold, plus a "change" key of "created", "edited" or "removed". Only the latest state
+   * of each occurrence is included.
+   *
+   * @return the changes since the requested version, in the order they last changed
+   */
+  public List<Map<String, String>> getChanges() {
+    return this.changes;
+  }
+}
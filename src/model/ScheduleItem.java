@@ -0,0 +1,123 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only map view of one event's properties as they appear in a schedule, backed directly
+ * by the event. The keys are "event", "from", "to" and "description", plus "location" and
+ * "status" when the event has them, and each value is looked up, or its time formatted, only
+ * when it is read. Since events never change once built, the view never changes either.
+ */
+final class ScheduleItem extends AbstractMap<String, String> {
+
+  // every key a schedule item may hold, in the order they are iterated
+  private static final String[] KEYS = {"event", "from", "to", "description", "location",
+    "status"};
+
+  private final Event event;
+
+  /**
+   * Constructs a view of the given event.
+   *
+   * @param event the event to present
+   */
+  ScheduleItem(Event event) {
+    this.event = event;
+  }
+
+  @Override
+  public String get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    switch ((String) key) {
+      case "event":
+        return this.event.subject;
+      case "from":
+        return this.event.start.toString();
+      case "to":
+        return this.event.end.toString();
+      case "description":
+        return this.event.description;
+      case "location":
+        return this.event.location == null ? null : this.event.location.toString();
+      case "status":
+        return this.event.status == null ? null : this.event.status.toString();
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (!(key instanceof String)) {
+      return false;
+    }
+    switch ((String) key) {
+      case "event":
+      case "from":
+      case "to":
+      case "description":
+        return true;
+      case "location":
+        return this.event.location != null;
+      case "status":
+        return this.event.status != null;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public int size() {
+    return 4 + (this.event.location == null ? 0 : 1) + (this.event.status == null ? 0 : 1);
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return new Iterator<>() {
+          private int next = this.advance(0);
+
+          @Override
+          public boolean hasNext() {
+            return this.next < KEYS.length;
+          }
+
+          @Override
+          public Map.Entry<String, String> next() {
+            if (!this.hasNext()) {
+              throw new NoSuchElementException("No more properties in this schedule item.");
+            }
+            String key = KEYS[this.next];
+            this.next = this.advance(this.next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(key, ScheduleItem.this.get(key));
+          }
+
+          /**
+           * Finds the index of the first key from the given one that this item holds.
+           */
+          private int advance(int from) {
+            int i = from;
+            while (i < KEYS.length && !ScheduleItem.this.containsKey(KEYS[i])) {
+              i++;
+            }
+            return i;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return ScheduleItem.this.size();
+      }
+    };
+  }
+}
@@ -0,0 +1,21 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives notice of changes to the events within a window of a calendar's schedule.
+ */
+public interface ScheduleListener {
+
+  /**
+   * Handles a batch of changes to events in the window this listener subscribed to. Changes
+   * made while an earlier batch was still being handled are coalesced into the next batch.
+   * This is called on a notification thread, never on the thread that changed the calendar.
+   *
+   * @param changes the changed occurrences in the order they happened, each represented by the
+   *                same map of properties a schedule would hold, plus a "change" key of
+   *                "created", "edited" or "removed"
+   */
+  void scheduleChanged(List<Map<String, String>> changes);
+}
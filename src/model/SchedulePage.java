@@ -0,0 +1,55 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a schedule, along with a cursor from which the next page can be retrieved.
+ */
+public final class SchedulePage {
+
+  private final List<Map<String, String>> items;
+
+  private final String cursor;
+
+  /**
+   * Constructs a page of the given events.
+   *
+   * @param items  the events on this page
+   * @param cursor the cursor to the next page, or null if this is the last page
+   */
+  public SchedulePage(List<Map<String, String>> items, String cursor) {
+    this.items = Collections.unmodifiableList(items);
+    this.cursor = cursor;
+  }
+
+  /**
+   * Returns the events on this page, each represented by the same map of properties a schedule
+   * would hold, in order of start time.
+   *
+   * @return the events on this page
+   */
+  public List<Map<String, String>> getItems() {
+    return this.items;
+  }
+
+  /**
+   * Returns an opaque cursor to pass back for the page after this one. The cursor records where
+   * this page ended, so it stays valid however the calendar changes in the meantime.
+   *
+   * @return the cursor to the next page, or null if there are no more events in the range
+   */
+  public String getCursor() {
+    return this.cursor;
+  }
+
+  /**
+   * Determines whether there may be more events in the range after this page.
+   *
+   * @return true if this page has a cursor to another page
+   */
+  public boolean hasNext() {
+    return this.cursor != null;
+  }
+}
@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * A handle on a listener's subscription to changes in a window of a calendar's schedule.
+ */
+public final class Subscription {
+
+  private final ChangeFeed feed;
+
+  /**
+   * Constructs a handle on a subscription to the given feed.
+   *
+   * @param feed the feed the subscription belongs to
+   */
+  Subscription(ChangeFeed feed) {
+    this.feed = feed;
+  }
+
+  /**
+   * Stops notifying the listener of this subscription. Changes already being delivered may still
+   * arrive.
+   */
+  public void cancel() {
+    this.feed.cancel(this);
+  }
+}
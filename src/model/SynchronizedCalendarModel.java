@@ -0,0 +1,208 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Makes a calendar safe to share between threads. Any number of threads may query the calendar
+ * at once, while creating or editing events waits for every query to finish and holds off new
+ * ones until it is done.
+ */
+public class SynchronizedCalendarModel implements CalendarModel {
+
+  private final CalendarModel delegate;
+
+  private final ReadWriteLock lock;
+
+  /**
+   * Constructs a thread-safe view of the given calendar. The calendar should not be used
+   * directly once it has been wrapped.
+   *
+   * @param delegate the calendar to guard
+   * @throws IllegalArgumentException if the calendar is null
+   */
+  public SynchronizedCalendarModel(CalendarModel delegate) throws IllegalArgumentException {
+    if (delegate == null) {
+      throw new IllegalArgumentException("The calendar to synchronize may not be null.");
+    }
+    this.delegate = delegate;
+    this.lock = new ReentrantReadWriteLock();
+  }
+
+  @Override
+  public void createEvent(Map<String, String> properties) {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.createEvent(properties);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void editEvent(String eventType, String property, Map<String, String> identifier,
+                        String newPropertyValue) {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.editEvent(eventType, property, identifier, newPropertyValue);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getSchedule(start, end);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end,
+                                               Map<String, String> filters) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getSchedule(start, end, filters);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public SchedulePage getSchedulePage(String start, String end, String cursor, int limit) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getSchedulePage(start, end, cursor, limit);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String day) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getSchedule(day);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public String getStatus(String dateTime) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getStatus(dateTime);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getBusyTotals(firstDay, lastDay);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Map<String, String>> search(String query, String start, String end) {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.search(query, start, end);
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Retrieves the busy slots overlapping the given range. Unlike the wrapped calendar, the slots
+   * are collected before returning, since the calendar may change once the lock is released.
+   */
+  @Override
+  public Iterator<TimeSlot> busySlots(String start, String end) {
+    this.lock.readLock().lock();
+    try {
+      List<TimeSlot> slots = new ArrayList<>();
+      this.delegate.busySlots(start, end).forEachRemaining(slots::add);
+      return slots.iterator();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<String, Long> getMemoryUsage() {
+    this.lock.readLock().lock();
+    try {
+      return this.delegate.getMemoryUsage();
+    } finally {
+      this.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void undo() {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.undo();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void redo() {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.redo();
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void checkpoint(String name) {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.checkpoint(name);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void restoreCheckpoint(String name) {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.restoreCheckpoint(name);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Applies the given changes as one change, holding off every other thread until they are
+   * done, so other threads never see only some of them.
+   */
+  @Override
+  public void transact(Consumer<CalendarModel> changes) {
+    this.lock.writeLock().lock();
+    try {
+      this.delegate.transact(changes);
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one copy of each distinct subject and description among all the events of a calendar.
+ * Text is looked up before events are built, so that events with the same subject refer to the
+ * same string, and every stored event holds a reference to its text so that text no event uses
+ * any more is dropped.
+ */
+final class TextDictionary {
+
+  // the approximate heap retained by each distinct text beyond the string itself
+  private static final long ENTRY_BYTES = 64;
+
+  private final Map<String, Entry> entries;
+
+  private long estimatedBytes;
+
+  /**
+   * Constructs an empty dictionary.
+   */
+  TextDictionary() {
+    this.entries = new HashMap<>();
+    this.estimatedBytes = 0;
+  }
+
+  /**
+   * Returns the shared copy of the given text, or the text itself if no stored event uses it.
+   *
+   * @param text the text to look up, may be null
+   * @return the shared copy equal to the given text
+   */
+  String intern(String text) {
+    if (text == null) {
+      return null;
+    }
+    Entry entry = this.entries.get(text);
+    return entry == null ? text : entry.text;
+  }
+
+  /**
+   * Records that a stored event uses the given text, making it the shared copy if it is new.
+   *
+   * @param text the text a stored event uses, may be null
+   */
+  void retain(String text) {
+    if (text == null) {
+      return;
+    }
+    Entry entry = this.entries.get(text);
+    if (entry == null) {
+      this.entries.put(text, new Entry(text));
+      this.estimatedBytes += ENTRY_BYTES + 40 + text.length();
+    } else {
+      entry.references++;
+    }
+  }
+
+  /**
+   * Records that a stored event no longer uses the given text, dropping the text once no stored
+   * event uses it.
+   *
+   * @param text the text an event used, may be null
+   */
+  void release(String text) {
+    if (text == null) {
+      return;
+    }
+    Entry entry = this.entries.get(text);
+    if (entry != null && --entry.references == 0) {
+      this.entries.remove(text);
+      this.estimatedBytes -= ENTRY_BYTES + 40 + text.length();
+    }
+  }
+
+  /**
+   * Returns the number of distinct texts in use.
+   *
+   * @return the number of shared texts
+   */
+  int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Estimates the number of bytes of heap held by the shared texts and this dictionary.
+   *
+   * @return the approximate retained size of the dictionary in bytes
+   */
+  long estimatedBytes() {
+    return this.estimatedBytes;
+  }
+
+  /**
+   * A shared text and the number of stored events that use it.
+   */
+  private static class Entry {
+
+    private final String text;
+
+    private int references;
+
+    /**
+     * Constructs an entry used by one event.
+     *
+     * @param text the shared text
+     */
+    private Entry(String text) {
+      this.text = text;
+      this.references = 1;
+    }
+  }
+}
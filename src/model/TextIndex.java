@@ -0,0 +1,189 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * An inverted index from the words of each event's subject and description to the events that
+ * contain them. Words are split at anything that is not a letter or digit and folded to lower
+ * case. Each word's posting list is ordered by start time, which identifies an event within a
+ * calendar, so queries can be limited to a range of start times without looking at the rest.
+ */
+final class TextIndex {
+
+  // the approximate heap taken by one entry of a posting list
+  private static final long POSTING_BYTES = 40;
+
+  // the approximate heap taken by a word and its empty posting list, beyond its characters
+  private static final long WORD_BYTES = 128;
+
+  private final NavigableMap<String, NavigableMap<LocalDateTime, Event>> postings;
+
+  // the number of entries in every posting list, and of characters in every word
+  private long postingCount;
+
+  private long wordChars;
+
+  /**
+   * Constructs an empty index.
+   */
+  TextIndex() {
+    this.postings = new TreeMap<>();
+    this.postingCount = 0;
+    this.wordChars = 0;
+  }
+
+  /**
+   * Adds the given event to the posting list of every word in its subject and description.
+   *
+   * @param event the event to index
+   */
+  void add(Event event) {
+    for (String term : termsOf(event)) {
+      NavigableMap<LocalDateTime, Event> posting = this.postings.get(term);
+      if (posting == null) {
+        posting = new TreeMap<>();
+        this.postings.put(term, posting);
+        this.wordChars += term.length();
+      }
+      if (posting.put(event.start, event) == null) {
+        this.postingCount++;
+      }
+    }
+  }
+
+  /**
+   * Removes the given event from the posting list of every word in its subject and description.
+   *
+   * @param event the indexed event to remove
+   */
+  void remove(Event event) {
+    for (String term : termsOf(event)) {
+      NavigableMap<LocalDateTime, Event> posting = this.postings.get(term);
+      if (posting != null && posting.remove(event.start, event)) {
+        this.postingCount--;
+        if (posting.isEmpty()) {
+          this.postings.remove(term);
+          this.wordChars -= term.length();
+        }
+      }
+    }
+  }
+
+  /**
+   * Estimates the heap taken up by this index, from counts kept up to date as events are added
+   * and removed.
+   *
+   * @return the approximate size of the words and posting lists in bytes
+   */
+  long estimatedBytes() {
+    return this.postingCount * POSTING_BYTES + this.postings.size() * WORD_BYTES
+            + this.wordChars;
+  }
+
+  /**
+   * Finds, in order of start time, the events that start from the first time to the last time
+   * and contain every word of the given query. A query word ending in "*" matches any word that
+   * begins with the rest of it.
+   *
+   * @param query  the words to look for, separated by anything but letters, digits and "*"
+   * @param first  the earliest start time to include
+   * @param last   the latest start time to include
+   * @param filter the test an event must also pass to be included
+   * @return the matching events
+   * @throws IllegalArgumentException if the query has no words
+   */
+  List<Event> search(String query, LocalDateTime first, LocalDateTime last,
+                     Predicate<Event> filter) throws IllegalArgumentException {
+    List<String> words = new ArrayList<>();
+    for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}*]+")) {
+      if (!word.replace("*", "").isEmpty()) {
+        words.add(word);
+      }
+    }
+    if (words.isEmpty()) {
+      throw new IllegalArgumentException("A search must include at least one word.");
+    }
+    if (last.isBefore(first)) {
+      return Collections.emptyList();
+    }
+
+    List<NavigableMap<LocalDateTime, Event>> matches = new ArrayList<>();
+    for (String word : words) {
+      matches.add(this.postingsOf(word, first, last));
+    }
+
+    // walk the shortest posting list and probe the others
+    matches.sort(Comparator.comparingInt(Map::size));
+    List<Event> results = new ArrayList<>();
+    for (Event candidate : matches.get(0).values()) {
+      boolean inAll = filter.test(candidate);
+      for (int i = 1; inAll && i < matches.size(); i++) {
+        inAll = matches.get(i).containsKey(candidate.start);
+      }
+      if (inAll) {
+        results.add(candidate);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Finds the events starting within the given times that contain the given query word,
+   * merging the posting lists of every indexed word it is a prefix of if it ends in "*".
+   */
+  private NavigableMap<LocalDateTime, Event> postingsOf(String word, LocalDateTime first,
+                                                        LocalDateTime last) {
+    String stem = word.replace("*", "");
+    if (!word.endsWith("*")) {
+      NavigableMap<LocalDateTime, Event> posting = this.postings.get(stem);
+      return posting == null ? Collections.emptyNavigableMap()
+              : posting.subMap(first, true, last, true);
+    }
+
+    NavigableMap<String, NavigableMap<LocalDateTime, Event>> words =
+            this.postings.subMap(stem, true, stem + Character.MAX_VALUE, false);
+    if (words.size() == 1) {
+      return words.firstEntry().getValue().subMap(first, true, last, true);
+    }
+    NavigableMap<LocalDateTime, Event> merged = new TreeMap<>();
+    for (NavigableMap<LocalDateTime, Event> posting : words.values()) {
+      merged.putAll(posting.subMap(first, true, last, true));
+    }
+    return merged;
+  }
+
+  /**
+   * Splits the subject and description of the given event into distinct, lower-case words.
+   */
+  private static Set<String> termsOf(Event event) {
+    Set<String> terms = new HashSet<>();
+    addTerms(event.subject, terms);
+    addTerms(event.description, terms);
+    return terms;
+  }
+
+  /**
+   * Adds the lower-case words of the given text to the given set.
+   */
+  private static void addTerms(String text, Set<String> terms) {
+    if (text == null) {
+      return;
+    }
+    for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!term.isEmpty()) {
+        terms.add(term);
+      }
+    }
+  }
+}
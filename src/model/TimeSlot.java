@@ -0,0 +1,73 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Represents an immutable interval of time with a start and an end, such as the span during which
+ * a user is busy in a calendar.
+ */
+public final class TimeSlot {
+
+  private final LocalDateTime start;
+
+  private final LocalDateTime end;
+
+  /**
+   * Constructs a TimeSlot spanning the given start and end times.
+   *
+   * @param start the start of this time slot
+   * @param end   the end of this time slot
+   * @throws IllegalArgumentException if either time is null or the end is before the start
+   */
+  public TimeSlot(LocalDateTime start, LocalDateTime end) throws IllegalArgumentException {
+    if (start == null || end == null) {
+      throw new IllegalArgumentException("A time slot must have a start and an end.");
+    }
+    if (end.isBefore(start)) {
+      throw new IllegalArgumentException("A time slot cannot end before it begins.");
+    }
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Returns the start of this time slot.
+   *
+   * @return the start time as a LocalDateTime
+   */
+  public LocalDateTime getStart() {
+    return this.start;
+  }
+
+  /**
+   * Returns the end of this time slot.
+   *
+   * @return the end time as a LocalDateTime
+   */
+  public LocalDateTime getEnd() {
+    return this.end;
+  }
+
+  @Override
+  public boolean equals(Object that) {
+    if (this == that) {
+      return true;
+    }
+    if (!(that instanceof TimeSlot)) {
+      return false;
+    }
+    TimeSlot o = (TimeSlot) that;
+    return this.start.equals(o.start) && this.end.equals(o.end);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.start, this.end);
+  }
+
+  @Override
+  public String toString() {
+    return this.start + " to " + this.end;
+  }
+}
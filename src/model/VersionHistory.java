@@ -0,0 +1,153 @@
+package model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Remembers each version of a calendar's events, along with when it was made, for as long as a
+ * retention window. Since every version is a snapshot of a persistent store, an event that is
+ * unchanged across many versions is kept only once, and a version stops holding on to the events
+ * it replaced as soon as it is forgotten. Versions are forgotten as new ones are recorded, once
+ * the version after them is older than the retention window.
+ */
+final class VersionHistory {
+
+  private final NavigableMap<Long, Version> versions;
+
+  private final NavigableMap<Instant, Long> versionsByTime;
+
+  private final Clock clock;
+
+  private Duration retention;
+
+  /**
+   * Constructs a history starting with the given version.
+   *
+   * @param version   the number of the first version
+   * @param snapshot  the events of the first version
+   * @param retention how long a version is kept once it has been replaced
+   * @param clock     the clock to timestamp versions with
+   */
+  VersionHistory(long version, EventStore.Snapshot snapshot, Duration retention, Clock clock) {
+    this.versions = new TreeMap<>();
+    this.versionsByTime = new TreeMap<>();
+    this.clock = clock;
+    this.retention = retention;
+    this.record(version, snapshot);
+  }
+
+  /**
+   * Records a new version made now, then forgets any versions that have been replaced for
+   * longer than the retention window.
+   *
+   * @param version  the number of the new version
+   * @param snapshot the events of the new version
+   */
+  synchronized void record(long version, EventStore.Snapshot snapshot) {
+    Instant now = this.clock.instant();
+    this.versions.put(version, new Version(snapshot, now));
+    this.versionsByTime.put(now, version);
+    this.prune(now);
+  }
+
+  /**
+   * Forgets every version, then records the given version as the only one.
+   *
+   * @param version  the number of the version to keep
+   * @param snapshot the events of that version
+   */
+  synchronized void restart(long version, EventStore.Snapshot snapshot) {
+    this.versions.clear();
+    this.versionsByTime.clear();
+    this.record(version, snapshot);
+  }
+
+  /**
+   * Changes how long versions are kept once they have been replaced, forgetting any that are
+   * now too old.
+   *
+   * @param retention the new retention window
+   */
+  synchronized void setRetention(Duration retention) {
+    this.retention = retention;
+    this.prune(this.clock.instant());
+  }
+
+  /**
+   * Finds the events of the given version.
+   *
+   * @param version the number of the version
+   * @return the events of that version
+   * @throws IllegalArgumentException if the version has not happened or is no longer retained
+   */
+  synchronized EventStore.Snapshot at(long version) throws IllegalArgumentException {
+    if (version > this.versions.lastKey()) {
+      throw new IllegalArgumentException("Version " + version + " has not happened yet. The "
+              + "latest version is " + this.versions.lastKey() + ".");
+    }
+    Map.Entry<Long, Version> found = this.versions.floorEntry(version);
+    if (found == null) {
+      throw new IllegalArgumentException("Version " + version + " is no longer retained. The "
+              + "oldest retained version is " + this.versions.firstKey() + ".");
+    }
+    return found.getValue().snapshot;
+  }
+
+  /**
+   * Finds the version that was current at the given time.
+   *
+   * @param time the time to look up
+   * @return the number of the latest version made at or before that time
+   * @throws IllegalArgumentException if that version is no longer retained
+   */
+  synchronized long versionAt(Instant time) throws IllegalArgumentException {
+    Map.Entry<Instant, Long> found = this.versionsByTime.floorEntry(time);
+    if (found == null) {
+      throw new IllegalArgumentException("No version from " + time + " is retained. The oldest "
+              + "retained version is from " + this.versionsByTime.firstKey() + ".");
+    }
+    return found.getValue();
+  }
+
+  /**
+   * Forgets every version replaced by a version older than the retention window, always keeping
+   * the version that was current at the start of the window.
+   */
+  private void prune(Instant now) {
+    Instant cutoff = now.minus(this.retention);
+    while (this.versions.size() > 1) {
+      Map.Entry<Long, Version> oldest = this.versions.firstEntry();
+      Version replacement = this.versions.higherEntry(oldest.getKey()).getValue();
+      if (replacement.made.isAfter(cutoff)) {
+        return;
+      }
+      this.versions.pollFirstEntry();
+      this.versionsByTime.remove(oldest.getValue().made, oldest.getKey());
+    }
+  }
+
+  /**
+   * One version of the events and when it was made.
+   */
+  private static class Version {
+
+    private final EventStore.Snapshot snapshot;
+
+    private final Instant made;
+
+    /**
+     * Constructs a version.
+     *
+     * @param snapshot the events of the version
+     * @param made     when the version was made
+     */
+    private Version(EventStore.Snapshot snapshot, Instant made) {
+      this.snapshot = snapshot;
+      this.made = made;
+    }
+  }
+}
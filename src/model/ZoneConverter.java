@@ -0,0 +1,104 @@
+package model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converts between UTC and local date-times of one time zone. The zone's rules are looked up
+ * once, and the offset found by the last lookup is kept along with the span of time until the
+ * zone's next transition, so converting times that fall between the same two transitions, as
+ * almost every schedule does, only takes a range check and an addition.
+ */
+final class ZoneConverter {
+
+  private final ZoneRules rules;
+
+  // the offset in effect from validFrom to validUntil, as seconds since the epoch in UTC
+  private long offset;
+
+  private long validFrom;
+
+  private long validUntil;
+
+  // the local times, as seconds since the epoch, that map to exactly one time in that span
+  private long localFrom;
+
+  private long localUntil;
+
+  /**
+   * Constructs a converter for the given zone.
+   *
+   * @param zone the time zone of local date-times
+   */
+  ZoneConverter(ZoneId zone) {
+    this.rules = zone.getRules();
+    this.validFrom = 0;
+    this.validUntil = 0;
+    this.localFrom = 0;
+    this.localUntil = 0;
+  }
+
+  /**
+   * Converts the given local date-time to the UTC date-time of the same instant. A local time
+   * skipped by a transition is moved forward by the length of the gap, and a local time
+   * repeated by a transition is taken to be the earlier of the two.
+   *
+   * @param local a date-time in this converter's zone
+   * @return the UTC date-time of the same instant
+   */
+  synchronized LocalDateTime toUtc(LocalDateTime local) {
+    long seconds = local.toEpochSecond(ZoneOffset.UTC);
+    if (seconds >= this.localFrom && seconds < this.localUntil) {
+      return local.minusSeconds(this.offset);
+    }
+    // the offset before a transition gives the instant ZonedDateTime would pick for a gap too
+    long utc = seconds - this.rules.getOffset(local).getTotalSeconds();
+    this.cache(Instant.ofEpochSecond(utc));
+    return LocalDateTime.ofEpochSecond(utc, local.getNano(), ZoneOffset.UTC);
+  }
+
+  /**
+   * Converts the given UTC date-time to the local date-time of the same instant.
+   *
+   * @param utc a date-time in UTC
+   * @return the date-time of the same instant in this converter's zone
+   */
+  synchronized LocalDateTime fromUtc(LocalDateTime utc) {
+    long seconds = utc.toEpochSecond(ZoneOffset.UTC);
+    if (seconds < this.validFrom || seconds >= this.validUntil) {
+      this.cache(Instant.ofEpochSecond(seconds));
+    }
+    return utc.plusSeconds(this.offset);
+  }
+
+  /**
+   * Remembers the offset in effect at the given instant and the span it stays in effect for.
+   */
+  private void cache(Instant instant) {
+    this.offset = this.rules.getOffset(instant).getTotalSeconds();
+    // transitions fall on whole seconds, so this finds one at the instant itself too
+    ZoneOffsetTransition previous = this.rules.previousTransition(instant.plusSeconds(1));
+    ZoneOffsetTransition next = this.rules.nextTransition(instant);
+
+    if (previous == null) {
+      this.validFrom = Long.MIN_VALUE;
+      this.localFrom = Long.MIN_VALUE;
+    } else {
+      this.validFrom = previous.toEpochSecond();
+      this.localFrom = Math.max(previous.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC),
+              previous.getDateTimeAfter().toEpochSecond(ZoneOffset.UTC));
+    }
+    if (next == null) {
+      this.validUntil = Long.MAX_VALUE;
+      this.localUntil = Long.MAX_VALUE;
+    } else {
+      this.validUntil = next.toEpochSecond();
+      this.localUntil = Math.min(next.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC),
+              next.getDateTimeAfter().toEpochSecond(ZoneOffset.UTC));
+    }
+  }
+}
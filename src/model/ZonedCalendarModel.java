@@ -0,0 +1,266 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Presents a calendar that stores every time in UTC as a calendar in a particular time zone.
+ * Date-times given to this calendar are taken to be in its zone and converted to UTC before
+ * they reach the stored calendar, and date-times it returns are converted back, so the stored
+ * events never change with the zone they are viewed in. The same stored calendar can be viewed
+ * in several zones at once, and calendars viewed in different zones can be compared directly
+ * through their shared UTC storage.
+ *
+ * <p>A series is laid out in this zone by the stored calendar and each occurrence converted to
+ * UTC on its own, so occurrences on either side of a change of the zone's offset keep their
+ * local time and days. Likewise, a new start or end is passed on with this zone, so that each
+ * edited occurrence is moved to the new time of day on the day it falls on in this zone.
+ */
+public class ZonedCalendarModel implements CalendarModel {
+
+  private final CalendarModel delegate;
+
+  private final ZoneId zone;
+
+  private final ZoneConverter converter;
+
+  /**
+   * Constructs a view of the given UTC calendar in the given time zone.
+   *
+   * @param delegate the calendar whose times are stored in UTC
+   * @param zone     the time zone to take and return times in
+   * @throws IllegalArgumentException if the calendar or zone is null
+   */
+  public ZonedCalendarModel(CalendarModel delegate, ZoneId zone)
+          throws IllegalArgumentException {
+    if (delegate == null || zone == null) {
+      throw new IllegalArgumentException("The calendar and time zone may not be null.");
+    }
+    this.delegate = delegate;
+    this.zone = zone;
+    this.converter = new ZoneConverter(zone);
+  }
+
+  /**
+   * Returns the time zone this calendar takes and returns times in.
+   *
+   * @return the zone of this view
+   */
+  public ZoneId getZone() {
+    return this.zone;
+  }
+
+  /**
+   * Returns a view of the same stored events in another time zone. Nothing is copied, so events
+   * created through either view are seen by both.
+   *
+   * @param other the time zone of the new view
+   * @return a view of this calendar's events in the given zone
+   */
+  public ZonedCalendarModel withZone(ZoneId other) {
+    return new ZonedCalendarModel(this.delegate, other);
+  }
+
+  @Override
+  public void createEvent(Map<String, String> properties) {
+    Map<String, String> stored = new HashMap<>(properties);
+    String on = stored.remove("on");
+    if (on != null && !stored.containsKey("from")) {
+      // an all-day event covers the working hours of its day in this zone
+      stored.put("from", DateTimes.parseDate(on).atTime(8, 0).toString());
+      stored.put("to", DateTimes.parseDate(on).atTime(17, 0).toString());
+    } else if (on != null) {
+      stored.put("on", on);
+    }
+    if (stored.containsKey("repeats") || stored.containsKey("for")
+            || stored.containsKey("until")) {
+      // occurrences are laid out in this zone and converted one at a time
+      stored.put("zone", this.zone.getId());
+    } else {
+      this.convertIn(stored, "from");
+      this.convertIn(stored, "to");
+    }
+    this.delegate.createEvent(stored);
+  }
+
+  @Override
+  public void editEvent(String eventType, String property, Map<String, String> identifier,
+                        String newPropertyValue) {
+    Map<String, String> utc = new HashMap<>(identifier);
+    this.convertIn(utc, "from");
+    this.convertIn(utc, "to");
+    String value = newPropertyValue;
+    if (value != null && (property.equals("start") || property.equals("end"))) {
+      // each occurrence keeps its own day in this zone, which may not be its day in UTC
+      value = DateTimes.parseDateTime(value) + "[" + this.zone.getId() + "]";
+    }
+    this.delegate.editEvent(eventType, property, utc, value);
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end) {
+    return this.fromUtc(this.delegate.getSchedule(this.toUtc(start), this.toUtc(end)));
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end,
+                                               Map<String, String> filters) {
+    return this.fromUtc(this.delegate.getSchedule(this.toUtc(start), this.toUtc(end), filters));
+  }
+
+  @Override
+  public SchedulePage getSchedulePage(String start, String end, String cursor, int limit) {
+    SchedulePage page = this.delegate.getSchedulePage(this.toUtc(start), this.toUtc(end),
+            cursor, limit);
+    return new SchedulePage(this.fromUtc(page.getItems()), page.getCursor());
+  }
+
+  @Override
+  public List<Map<String, String>> getSchedule(String day) {
+    LocalDate date = DateTimes.parseDate(day);
+    return this.getSchedule(date.atTime(0, 0).toString(), date.atTime(23, 59).toString());
+  }
+
+  @Override
+  public String getStatus(String dateTime) {
+    return this.delegate.getStatus(this.toUtc(dateTime));
+  }
+
+  /**
+   * Retrieves the busy totals over the given days of this calendar's zone. Days of a zone other
+   * than UTC do not line up with the stored calendar's running totals, so the totals are added
+   * up from the events overlapping the range instead.
+   */
+  @Override
+  public Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+    LocalDate first = DateTimes.parseDate(firstDay);
+    LocalDate last = DateTimes.parseDate(lastDay);
+    if (first.isAfter(last)) {
+      throw new IllegalArgumentException("Start time cannot be after end time.");
+    }
+    if (this.zone.normalized().equals(ZoneOffset.UTC)) {
+      return this.delegate.getBusyTotals(firstDay, lastDay);
+    }
+
+    LocalDateTime from = this.converter.toUtc(first.atStartOfDay());
+    LocalDateTime until = this.converter.toUtc(last.plusDays(1).atStartOfDay());
+    long minutes = 0;
+    long events = 0;
+    Iterator<TimeSlot> slots = this.delegate.busySlots(from.toString(), until.toString());
+    while (slots.hasNext()) {
+      TimeSlot slot = slots.next();
+      if (!slot.getStart().isBefore(from) && slot.getStart().isBefore(until)) {
+        events++;
+      }
+      LocalDateTime overlapStart = slot.getStart().isAfter(from) ? slot.getStart() : from;
+      LocalDateTime overlapEnd = slot.getEnd().isBefore(until) ? slot.getEnd() : until;
+      if (overlapStart.isBefore(overlapEnd)) {
+        minutes += Duration.between(overlapStart, overlapEnd).toMinutes();
+      }
+    }
+    Map<String, Long> totals = new LinkedHashMap<>();
+    totals.put("minutes", minutes);
+    totals.put("events", events);
+    return totals;
+  }
+
+  @Override
+  public Iterator<TimeSlot> busySlots(String start, String end) {
+    Iterator<TimeSlot> slots = this.delegate.busySlots(this.toUtc(start), this.toUtc(end));
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return slots.hasNext();
+      }
+
+      @Override
+      public TimeSlot next() {
+        TimeSlot slot = slots.next();
+        return new TimeSlot(converter.fromUtc(slot.getStart()), converter.fromUtc(slot.getEnd()));
+      }
+    };
+  }
+
+  @Override
+  public List<Map<String, String>> search(String query, String start, String end) {
+    return this.fromUtc(this.delegate.search(query, start == null ? null : this.toUtc(start),
+            end == null ? null : this.toUtc(end)));
+  }
+
+  @Override
+  public Map<String, Long> getMemoryUsage() {
+    return this.delegate.getMemoryUsage();
+  }
+
+  @Override
+  public void undo() {
+    this.delegate.undo();
+  }
+
+  @Override
+  public void redo() {
+    this.delegate.redo();
+  }
+
+  @Override
+  public void checkpoint(String name) {
+    this.delegate.checkpoint(name);
+  }
+
+  @Override
+  public void restoreCheckpoint(String name) {
+    this.delegate.restoreCheckpoint(name);
+  }
+
+  /**
+   * Applies the given changes as one change, as documented by
+   * {@link CalendarModel#transact(Consumer)}. The changes are given this calendar, so their
+   * times are read in this calendar's zone.
+   */
+  @Override
+  public void transact(Consumer<CalendarModel> changes) {
+    this.delegate.transact(utc -> changes.accept(this));
+  }
+
+  /**
+   * Converts a date-time in this calendar's zone to UTC.
+   */
+  private String toUtc(String local) {
+    return this.converter.toUtc(DateTimes.parseDateTime(local)).toString();
+  }
+
+  /**
+   * Converts the date-time under the given key of the given properties to UTC, if present.
+   */
+  private void convertIn(Map<String, String> properties, String key) {
+    String local = properties.get(key);
+    if (local != null) {
+      properties.put(key, this.toUtc(local));
+    }
+  }
+
+  /**
+   * Copies the given schedule with its start and end times converted to this calendar's zone.
+   */
+  private List<Map<String, String>> fromUtc(List<Map<String, String>> schedule) {
+    List<Map<String, String>> local = new ArrayList<>(schedule.size());
+    for (Map<String, String> item : schedule) {
+      Map<String, String> copy = new HashMap<>(item);
+      copy.put("from",
+              this.converter.fromUtc(DateTimes.parseDateTime(item.get("from"))).toString());
+      copy.put("to", this.converter.fromUtc(DateTimes.parseDateTime(item.get("to"))).toString());
+      local.add(copy);
+    }
+    return local;
+  }
+}
@@ -145,6 +145,61 @@ public class CalendarViewImpl implements CalendarView {
             "and time"
             + System.lineSeparator()
             + System.lineSeparator()
+            + "use calendar <name>"
+            + System.lineSeparator()
+            + "-  switches later commands to the calendar with the given name, which is "
+            + "created empty if it has never been used"
+            + System.lineSeparator()
+            + System.lineSeparator()
+            + "search <words>"
+            + System.lineSeparator()
+            + "-  prints the events whose subject or description contains every given word, "
+            + "where a word ending in * matches any word beginning with the rest of it"
+            + System.lineSeparator()
+            + "search <words> from <dateTime> to <dateTime>"
+            + System.lineSeparator()
+            + "-  searches like above among the events within the given time interval"
+            + System.lineSeparator()
+            + System.lineSeparator()
+            + "undo"
+            + System.lineSeparator()
+            + "-  reverts the most recent change to the calendar's events"
+            + System.lineSeparator()
+            + "redo"
+            + System.lineSeparator()
+            + "-  reapplies the most recently undone change"
+            + System.lineSeparator()
+            + "checkpoint <name>"
+            + System.lineSeparator()
+            + "-  saves the calendar's current events under the given name"
+            + System.lineSeparator()
+            + "restore <name>"
+            + System.lineSeparator()
+            + "-  brings the calendar's events back to the checkpoint with the given name, "
+            + "which can be undone"
+            + System.lineSeparator()
+            + System.lineSeparator()
+            + "begin"
+            + System.lineSeparator()
+            + "-  starts a transaction, which holds back create and edit commands until it "
+            + "ends"
+            + System.lineSeparator()
+            + "commit"
+            + System.lineSeparator()
+            + "-  runs the commands of the open transaction as one change, so either all of "
+            + "them take effect or none do"
+            + System.lineSeparator()
+            + "rollback"
+            + System.lineSeparator()
+            + "-  discards the commands of the open transaction"
+            + System.lineSeparator()
+            + System.lineSeparator()
+            + "memory"
+            + System.lineSeparator()
+            + "-  prints an estimate of the memory the calendar takes up, broken down by what "
+            + "it is spent on"
+            + System.lineSeparator()
+            + System.lineSeparator()
             + "menu"
             + System.lineSeparator()
             + "-  print this menu"
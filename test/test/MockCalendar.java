@@ -1,9 +1,15 @@
 package test;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import model.CalendarModel;
+import model.SchedulePage;
+import model.TimeSlot;
 
 /**
  * A Mock Calendar Model class used for testing.
@@ -50,6 +56,30 @@ public class MockCalendar implements CalendarModel {
     return List.of();
   }
 
+  @Override
+  public List<Map<String, String>> getSchedule(String start, String end,
+                                               Map<String, String> filters) {
+    log.append("start: ").append(start).append("\n");
+    log.append("end: ").append(end).append("\n");
+    log.append("filters: ").append(new TreeMap<>(filters)).append("\n");
+    return List.of();
+  }
+
+  @Override
+  public Map<String, Long> getMemoryUsage() {
+    log.append("memory\n");
+    return Map.of();
+  }
+
+  @Override
+  public SchedulePage getSchedulePage(String start, String end, String cursor, int limit) {
+    log.append("start: ").append(start).append("\n");
+    log.append("end: ").append(end).append("\n");
+    log.append("cursor: ").append(cursor).append("\n");
+    log.append("limit: ").append(limit).append("\n");
+    return new SchedulePage(List.of(), null);
+  }
+
   @Override
   public List<Map<String, String>> getSchedule(String day) {
     log.append("day: ").append(day).append("\n");
@@ -62,4 +92,51 @@ public class MockCalendar implements CalendarModel {
     return "";
   }
 
+  @Override
+  public Map<String, Long> getBusyTotals(String firstDay, String lastDay) {
+    log.append("first day: ").append(firstDay).append("\n");
+    log.append("last day: ").append(lastDay).append("\n");
+    return Map.of();
+  }
+
+  @Override
+  public Iterator<TimeSlot> busySlots(String start, String end) {
+    log.append("busy start: ").append(start).append("\n");
+    log.append("busy end: ").append(end).append("\n");
+    return Collections.emptyIterator();
+  }
+
+  @Override
+  public List<Map<String, String>> search(String query, String start, String end) {
+    log.append("query: ").append(query).append("\n");
+    log.append("search start: ").append(start).append("\n");
+    log.append("search end: ").append(end).append("\n");
+    return List.of();
+  }
+
+  @Override
+  public void undo() {
+    log.append("undo\n");
+  }
+
+  @Override
+  public void redo() {
+    log.append("redo\n");
+  }
+
+  @Override
+  public void checkpoint(String name) {
+    log.append("checkpoint: ").append(name).append("\n");
+  }
+
+  @Override
+  public void restoreCheckpoint(String name) {
+    log.append("restore: ").append(name).append("\n");
+  }
+
+  @Override
+  public void transact(Consumer<CalendarModel> changes) {
+    log.append("transact\n");
+    changes.accept(this);
+  }
 }
@@ -3,16 +3,39 @@ package test;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import controller.CalendarController;
 import controller.CalendarControllerImpl;
+import controller.CalendarRouter;
+import controller.CalendarServer;
+import controller.HashRing;
+import controller.ShardServer;
 import model.CalendarModel;
+import model.CalendarModelImpl;
+import model.CalendarRegistry;
 import view.CalendarView;
 import view.CalendarViewImpl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * JUnit test class for calendar controller.
@@ -92,7 +115,24 @@ public class TestCalendarController {
 
     controller.control();
 
-    expected = "start: 2025-06-05T10:00\n" + "end: 2025-06-05T12:00\n";
+    expected = "start: 2025-06-05T10:00\n" + "end: 2025-06-05T12:00\n" + "cursor: null\n"
+            + "limit: 100\n";
+    assertEquals(expected, log.toString());
+  }
+
+  @Test
+  public void testExecutePrintCmdWithFilters() {
+    in = new StringReader("print events on 2025-06-05 location online\n"
+            + "print events from 2025-06-05T10:00 to 2025-06-05T12:00 subject \"Team m\" "
+            + "duration 30");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+
+    controller.control();
+
+    expected = "start: 2025-06-05T00:00\n" + "end: 2025-06-05T23:59\n"
+            + "filters: {location=online}\n" + "start: 2025-06-05T10:00\n"
+            + "end: 2025-06-05T12:00\n" + "filters: {duration=30, subject=Team m}\n";
     assertEquals(expected, log.toString());
   }
 
@@ -108,6 +148,60 @@ public class TestCalendarController {
     assertEquals(expected, log.toString());
   }
 
+  @Test
+  public void testExecuteSearchCmd() {
+    in = new StringReader("search Team meet*\n"
+            + "search standup from 2025-06-05T10:00 to 2025-06-05T12:00");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+
+    controller.control();
+
+    expected = "query: Team meet*\n" + "search start: null\n" + "search end: null\n"
+            + "query: standup\n" + "search start: 2025-06-05T10:00\n"
+            + "search end: 2025-06-05T12:00\n";
+    assertEquals(expected, log.toString());
+  }
+
+  @Test
+  public void testExecuteHistoryCmds() {
+    in = new StringReader("checkpoint before\nundo\nredo\nrestore before\nq");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+
+    controller.control();
+
+    expected = "checkpoint: before\n" + "undo\n" + "redo\n" + "restore: before\n";
+    assertEquals(expected, log.toString());
+  }
+
+  @Test
+  public void testExecuteMemoryCmd() {
+    in = new StringReader("memory\nmemory usage\nq");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+
+    controller.control();
+
+    assertEquals("memory\n", log.toString());
+  }
+
+  @Test
+  public void testExecuteTransactionCmds() {
+    in = new StringReader("begin\ncreate event Staged on 2025-06-05\nrollback\n"
+            + "begin\ncreate event Kept on 2025-06-05\nedit event location Kept from "
+            + "2025-06-05T08:00 with online\ncommit\nq");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+
+    controller.control();
+
+    expected = "transact\n" + "event: Kept\n" + "on: 2025-06-05\n" + "property: location\n"
+            + "identifiers: from - 2025-06-05T08:00\n" + "identifiers: event - Kept\n"
+            + "newPropValue: online\n";
+    assertEquals(expected, log.toString());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testInvalidControllerNullModel() {
     new CalendarControllerImpl(null, quit, view);
@@ -154,5 +248,254 @@ public class TestCalendarController {
     assertEquals(expected, log.toString());
   }
 
-}
+  @Test
+  public void testUseCalendarSwitchesActiveCalendar() throws IOException {
+    CalendarRegistry registry = new CalendarRegistry(Files.createTempDirectory("calendars"),
+            1024 * 1024);
+    in = new StringReader("create event work on 2025-06-05\nuse calendar home\n"
+            + "create event chores on 2025-06-05\nq");
+
+    controller = new CalendarControllerImpl(registry, "office", in, view);
+    controller.control();
+
+    assertEquals("work", registry.get("office").getSchedule("2025-06-05").get(0).get("event"));
+    assertEquals("chores", registry.get("home").getSchedule("2025-06-05").get(0).get("event"));
+  }
+
+  @Test
+  public void testUseCalendarWithoutRegistry() {
+    in = new StringReader("use calendar home\nq");
+
+    controller = new CalendarControllerImpl(mockModel, in, view);
+    controller.control();
+
+    assertEquals("", log.toString());
+  }
 
+  /**
+   * Check that clients connected to the server at the same time share one calendar, each with
+   * its own session and output.
+   */
+  @Test(timeout = 10000)
+  public void testServerSessionsShareCalendar() throws Exception {
+    try (CalendarServer server = new CalendarServer(new CalendarModelImpl(), 0)) {
+      new Thread(server::serve).start();
+
+      try (Socket first = new Socket("localhost", server.getPort());
+           Socket second = new Socket("localhost", server.getPort())) {
+        PrintWriter firstOut = new PrintWriter(first.getOutputStream(), true);
+        firstOut.println("create event shared on 2025-06-05");
+        firstOut.println("q");
+        first.shutdownOutput();
+        drain(first);
+
+        PrintWriter secondOut = new PrintWriter(second.getOutputStream(), true);
+        secondOut.println("print events on 2025-06-05");
+        secondOut.println("q");
+        second.shutdownOutput();
+        assertTrue(drain(second).contains("* shared : from 2025-06-05T08:00 to 2025-06-05T17:00"));
+      }
+    }
+  }
+
+  /**
+   * Check that a hash ring spreads keys over its nodes, and that adding a node only moves keys
+   * to the new node.
+   */
+  @Test
+  public void testHashRingMovesFewKeys() {
+    HashRing ring = new HashRing(List.of("a:1", "b:2", "c:3"), 128);
+    HashRing grown = ring.with("d:4");
+    Map<String, Integer> owned = new HashMap<>();
+    int moved = 0;
+    for (int i = 0; i < 4000; i++) {
+      String key = "tenant-" + i;
+      owned.merge(ring.owner(key), 1, Integer::sum);
+      if (!ring.owner(key).equals(grown.owner(key))) {
+        assertEquals("d:4", grown.owner(key));
+        moved++;
+      }
+    }
+    for (int count : owned.values()) {
+      assertTrue(count > 1000 && count < 1700);
+    }
+    assertTrue(moved > 700 && moved < 1300);
+  }
+
+  /**
+   * Check that a router sends each calendar's commands to the shard owning it, and that
+   * calendars keep their events when a new shard takes them over.
+   */
+  @Test(timeout = 20000)
+  public void testRouterMovesCalendarsToNewShard() throws Exception {
+    List<ShardServer> shards = new ArrayList<>();
+    List<String> addresses = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ShardServer shard = new ShardServer(new CalendarRegistry(
+              Files.createTempDirectory("shard"), 1L << 20), 0);
+      new Thread(shard::serve).start();
+      shards.add(shard);
+      addresses.add("localhost:" + shard.getPort());
+    }
+
+    try (CalendarRouter router = new CalendarRouter(addresses.subList(0, 2), 0)) {
+      new Thread(router::serve).start();
+      StringBuilder commands = new StringBuilder();
+      for (int i = 0; i < 20; i++) {
+        commands.append("use calendar team").append(i).append("\n")
+                .append("create event Planning").append(i).append(" on 2025-06-05\n");
+      }
+      session(router, commands + "q\n");
+
+      assertTrue(router.addShard(addresses.get(2)) > 0);
+      for (int i = 0; i < 20; i++) {
+        assertTrue(session(router, "use calendar team" + i + "\nprint events on 2025-06-05\nq\n")
+                .contains("* Planning" + i + " : from 2025-06-05T08:00 to 2025-06-05T17:00"));
+      }
+      assertTrue(session(router, "begin\ncreate event Kept on 2025-06-06\ncommit\n"
+              + "print events on 2025-06-06\nq\n").contains("* Kept : from 2025-06-06T08:00"));
+    } finally {
+      for (ShardServer shard : shards) {
+        shard.close();
+      }
+    }
+  }
+
+  /**
+   * Check that one user's command waiting on a shard does not hold up another user's command
+   * to the same shard.
+   */
+  @Test(timeout = 20000)
+  public void testRouterDoesNotQueueUsersBehindOneConnection() throws Exception {
+    CountDownLatch released = new CountDownLatch(1);
+    try (ServerSocket shard = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+      Thread accepting = new Thread(() -> {
+        try {
+          while (true) {
+            Socket connection = shard.accept();
+            new Thread(() -> answerSlowly(connection, released)).start();
+          }
+        } catch (IOException e) {
+          // the test is over
+        }
+      });
+      accepting.start();
+
+      try (CalendarRouter router = new CalendarRouter(
+              List.of("localhost:" + shard.getLocalPort()), 0);
+           Socket stalled = new Socket("localhost", router.getPort())) {
+        new Thread(router::serve).start();
+        PrintWriter stalledOut = new PrintWriter(stalled.getOutputStream(), true);
+        stalledOut.println("stall");
+        Thread.sleep(200);
+
+        assertTrue(session(router, "print events on 2025-06-05\nq\n").contains("answered"));
+      } finally {
+        released.countDown();
+      }
+    }
+  }
+
+  /**
+   * Answers the requests of a router connection the way a shard would, except that a command
+   * of "stall" is only answered once the given latch is released.
+   */
+  private static void answerSlowly(Socket connection, CountDownLatch released) {
+    try (Socket socket = connection) {
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+              StandardCharsets.UTF_8));
+      PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+      for (String request = in.readLine(); request != null; request = in.readLine()) {
+        String[] words = request.split(" ");
+        for (int i = 0; i < Integer.parseInt(words[2]); i++) {
+          if (in.readLine().equals("stall")) {
+            released.await();
+          }
+        }
+        out.print("answered\n.\n");
+        out.flush();
+      }
+    } catch (IOException | InterruptedException e) {
+      // the router disconnected
+    }
+  }
+
+  /**
+   * Check that a shard that fails part way through taking over calendars is left without any of
+   * them and out of the cluster, so that adding it can be tried again.
+   */
+  @Test(timeout = 20000)
+  public void testRouterUndoesAFailedShardAddition() throws Exception {
+    AtomicInteger importsLeft = new AtomicInteger(2);
+    CalendarRegistry flaky = new CalendarRegistry(Files.createTempDirectory("shard"), 1L << 20) {
+      @Override
+      public synchronized void importCalendar(String name, byte[] data) {
+        if (importsLeft.getAndDecrement() == 0) {
+          throw new IllegalStateException("The disk is full.");
+        }
+        super.importCalendar(name, data);
+      }
+    };
+    ShardServer first = new ShardServer(new CalendarRegistry(
+            Files.createTempDirectory("shard"), 1L << 20), 0);
+    ShardServer added = new ShardServer(flaky, 0);
+    new Thread(first::serve).start();
+    new Thread(added::serve).start();
+
+    try (CalendarRouter router = new CalendarRouter(List.of("localhost:" + first.getPort()), 0)) {
+      new Thread(router::serve).start();
+      StringBuilder commands = new StringBuilder();
+      for (int i = 0; i < 20; i++) {
+        commands.append("use calendar team").append(i).append("\n")
+                .append("create event Planning").append(i).append(" on 2025-06-05\n");
+      }
+      session(router, commands + "q\n");
+
+      try {
+        router.addShard("localhost:" + added.getPort());
+        fail("The failed import should fail the addition.");
+      } catch (IllegalStateException e) {
+        assertTrue(flaky.names().isEmpty());
+      }
+      for (int i = 0; i < 20; i++) {
+        assertTrue(session(router, "use calendar team" + i + "\nprint events on 2025-06-05\nq\n")
+                .contains("* Planning" + i + " : from 2025-06-05T08:00"));
+      }
+
+      importsLeft.set(Integer.MAX_VALUE);
+      int moved = router.addShard("localhost:" + added.getPort());
+      assertTrue(moved > 2);
+      assertEquals(moved, flaky.names().size());
+    } finally {
+      first.close();
+      added.close();
+    }
+  }
+
+  /**
+   * Runs one session through the given router and returns everything it sent back.
+   */
+  private static String session(CalendarRouter router, String commands) throws IOException {
+    try (Socket socket = new Socket("localhost", router.getPort())) {
+      PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+      writer.print(commands);
+      writer.flush();
+      socket.shutdownOutput();
+      return drain(socket);
+    }
+  }
+
+  /**
+   * Reads everything a server session sends until it closes the connection.
+   */
+  private static String drain(Socket socket) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+            StandardCharsets.UTF_8));
+    StringBuilder all = new StringBuilder();
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      all.append(line).append(System.lineSeparator());
+    }
+    return all.toString();
+  }
+
+}
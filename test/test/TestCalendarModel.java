@@ -3,14 +3,45 @@ package test;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import model.AsyncCalendarModel;
 import model.CalendarModel;
 import model.CalendarModelImpl;
+import model.CalendarRegistry;
+import model.CommonAvailability;
+import model.ConflictPolicy;
+import model.ReplicationFollower;
+import model.ReplicationPrimary;
+import model.ScheduleDelta;
+import model.SchedulePage;
+import model.Subscription;
+import model.TimeSlot;
+import model.ZonedCalendarModel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * A JUnit test class for calendar model.
@@ -906,5 +937,1414 @@ public class TestCalendarModel {
             seriesCal.getSchedule("2025-06-05").get(0).get("from"));
   }
 
+  /**
+   * Check that busy slots are produced in start order and include an earlier, longer event that
+   * still overlaps the requested range.
+   */
+  @Test
+  public void busySlotsIncludesLongEarlierEvent() {
+    HashMap<String, String> longEvent = new HashMap<>();
+    longEvent.put("event", "Conference");
+    longEvent.put("from", "2025-05-29T09:00");
+    longEvent.put("to", "2025-06-01T17:00");
+    cal1.createEvent(longEvent);
+
+    Iterator<TimeSlot> busy = cal1.busySlots("2025-05-31T00:00", "2025-05-31T23:59");
+    assertEquals("2025-05-29T09:00 to 2025-06-01T17:00", busy.next().toString());
+    assertEquals("2025-05-31T13:00 to 2025-05-31T16:00", busy.next().toString());
+    assertFalse(busy.hasNext());
+  }
+
+  /**
+   * Check that the free time shared by several calendars skips every calendar's busy time.
+   */
+  @Test
+  public void findFreeSlotsAcrossCalendars() {
+    HashMap<String, String> morning = new HashMap<>();
+    morning.put("event", "Morning meeting");
+    morning.put("from", "2025-05-31T09:00");
+    morning.put("to", "2025-05-31T10:00");
+    cal.createEvent(morning);
+
+    HashMap<String, String> lunch = new HashMap<>();
+    lunch.put("event", "Lunch");
+    lunch.put("from", "2025-05-31T12:00");
+    lunch.put("to", "2025-05-31T14:00");
+    cal.createEvent(lunch);
+
+    List<Map<String, String>> free = CommonAvailability.findFreeSlots(List.of(cal, cal1),
+            "2025-05-31T08:00", "2025-05-31T18:00");
+
+    assertEquals(3, free.size());
+    assertEquals("2025-05-31T08:00", free.get(0).get("from"));
+    assertEquals("2025-05-31T09:00", free.get(0).get("to"));
+    assertEquals("2025-05-31T10:00", free.get(1).get("from"));
+    assertEquals("2025-05-31T12:00", free.get(1).get("to"));
+    assertEquals("2025-05-31T16:00", free.get(2).get("from"));
+    assertEquals("2025-05-31T18:00", free.get(2).get("to"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void findFreeSlotsNoCalendars() {
+    CommonAvailability.findFreeSlots(List.of(), "2025-05-31T08:00", "2025-05-31T18:00");
+  }
+
+  /**
+   * Check that a calendar evicted to disk for being over the heap budget comes back with the
+   * same events, including its place in a series.
+   */
+  @Test
+  public void registryEvictsAndReloadsCalendars() throws IOException {
+    Path dir = Files.createTempDirectory("calendars");
+    CalendarRegistry registry = new CalendarRegistry(dir, 1);
+
+    HashMap<String, String> seriesProps = new HashMap<>();
+    seriesProps.put("event", "Standup");
+    seriesProps.put("from", "2025-06-02T09:00");
+    seriesProps.put("to", "2025-06-02T09:15");
+    seriesProps.put("description", "Daily sync");
+    seriesProps.put("location", "online");
+    seriesProps.put("repeats", "MTWRF");
+    seriesProps.put("for", "10");
+    registry.get("alice").createEvent(seriesProps);
+    registry.get("bob");
+
+    assertFalse(registry.memoryUsage().containsKey("alice"));
+    assertTrue(Files.exists(dir.resolve("alice.cal")));
+
+    CalendarModel alice = registry.get("alice");
+    assertEquals(10, alice.getSchedule("2025-06-01T00:00", "2025-06-30T00:00").size());
+    assertEquals("Daily sync", alice.getSchedule("2025-06-13").get(0).get("description"));
+    assertEquals("online", alice.getSchedule("2025-06-13").get(0).get("location"));
+
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "Standup");
+    id.put("from", "2025-06-09T09:00");
+    alice.editEvent("series", "subject", id, "Scrum");
+    assertEquals("Scrum", alice.getSchedule("2025-06-02").get(0).get("event"));
+    assertEquals("Scrum", alice.getSchedule("2025-06-13").get(0).get("event"));
+  }
+
+  /**
+   * Check that a calendar held on to while it is evicted keeps every change made through it,
+   * and that its conflict policy is stored with it.
+   */
+  @Test
+  public void registryCalendarsSurviveEviction() throws IOException {
+    CalendarRegistry registry = new CalendarRegistry(Files.createTempDirectory("calendars"), 1);
+    CalendarModel alice = registry.get("alice");
+    registry.setConflictPolicy("alice", ConflictPolicy.REJECT);
+    alice.createEvent(Map.of("event", "Review", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T10:00"));
+    registry.get("bob");
+    assertFalse(registry.memoryUsage().containsKey("alice"));
+
+    alice.createEvent(Map.of("event", "Retro", "from", "2025-06-03T09:00",
+            "to", "2025-06-03T10:00"));
+    registry.get("bob");
+    assertEquals(2, registry.get("alice").getSchedule("2025-06-01T00:00",
+            "2025-06-30T00:00").size());
+    try {
+      alice.createEvent(Map.of("event", "Overlap", "from", "2025-06-02T09:30",
+              "to", "2025-06-02T10:30"));
+      fail("The stored calendar should still reject conflicts.");
+    } catch (IllegalArgumentException e) {
+      assertEquals(1, alice.getSchedule("2025-06-02").size());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void registryRejectsUnsafeNames() throws IOException {
+    new CalendarRegistry(Files.createTempDirectory("calendars"), 1024).get("../escape");
+  }
+
+  /**
+   * Check that repeated queries for a day are served from the day cache, and that editing a
+   * series discards the cached days of every occurrence but not unrelated days.
+   */
+  @Test
+  public void dayCacheHitsAndInvalidatesEditedSeries() {
+    CalendarModelImpl cached = new CalendarModelImpl(10);
+    HashMap<String, String> seriesProps = new HashMap<>();
+    seriesProps.put("event", "A series.");
+    seriesProps.put("from", "2025-06-02T13:00");
+    seriesProps.put("to", "2025-06-02T16:00");
+    seriesProps.put("repeats", "MW");
+    seriesProps.put("for", "4");
+    cached.createEvent(seriesProps);
+    HashMap<String, String> other = new HashMap<>();
+    other.put("event", "Unrelated");
+    other.put("on", "2025-06-03");
+    cached.createEvent(other);
+
+    cached.getSchedule("2025-06-03");
+    cached.getSchedule("2025-06-11");
+    cached.getSchedule("2025-06-03");
+    assertEquals(1L, (long) cached.getCacheStatistics().get("hits"));
+    assertEquals(2L, (long) cached.getCacheStatistics().get("misses"));
+
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "A series.");
+    id.put("from", "2025-06-04T13:00");
+    cached.editEvent("series", "location", id, "online");
+
+    assertEquals("online", cached.getSchedule("2025-06-11").get(0).get("location"));
+    assertEquals("Unrelated", cached.getSchedule("2025-06-03").get(0).get("event"));
+    assertEquals(2L, (long) cached.getCacheStatistics().get("hits"));
+    assertEquals(3L, (long) cached.getCacheStatistics().get("misses"));
+  }
+
+  @Test
+  public void dayCacheEvictsLeastRecentlyUsedDay() {
+    CalendarModelImpl cached = new CalendarModelImpl(2);
+    cached.getSchedule("2025-06-01");
+    cached.getSchedule("2025-06-02");
+    cached.getSchedule("2025-06-01");
+    cached.getSchedule("2025-06-03");
+    cached.getSchedule("2025-06-01");
+
+    assertEquals(1L, (long) cached.getCacheStatistics().get("evictions"));
+    assertEquals(2L, (long) cached.getCacheStatistics().get("hits"));
+    assertEquals(2L, (long) cached.getCacheStatistics().get("size"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void dayCacheResultsAreImmutable() {
+    CalendarModelImpl cached = new CalendarModelImpl(2);
+    cached.createEvent(Map.of("event", "Fixed", "on", "2025-06-01"));
+    cached.getSchedule("2025-06-01").get(0).put("event", "Changed");
+  }
+
+  /**
+   * Check that a room-booking calendar refuses a series that would double-book any occurrence,
+   * and reports every conflicting occurrence without adding any of the series.
+   */
+  @Test
+  public void rejectPolicyRefusesOverlappingSeries() {
+    CalendarModelImpl room = new CalendarModelImpl();
+    room.setConflictPolicy(ConflictPolicy.REJECT);
+    room.createEvent(Map.of("event", "Booked", "from", "2025-06-02T14:00",
+            "to", "2025-06-02T15:00"));
+    room.createEvent(Map.of("event", "Also booked", "from", "2025-06-04T12:00",
+            "to", "2025-06-04T13:30"));
+
+    HashMap<String, String> seriesProps = new HashMap<>();
+    seriesProps.put("event", "Weekly");
+    seriesProps.put("from", "2025-06-02T13:00");
+    seriesProps.put("to", "2025-06-02T14:30");
+    seriesProps.put("repeats", "MW");
+    seriesProps.put("for", "4");
+    try {
+      room.createEvent(seriesProps);
+    } catch (IllegalArgumentException e) {
+      assertEquals(2, room.getConflicts().size());
+      assertEquals("Booked", room.getConflicts().get(0).get("conflict"));
+      assertEquals("2025-06-04T13:00", room.getConflicts().get(1).get("from"));
+      assertEquals(0, room.getSchedule("2025-06-09").size());
+      return;
+    }
+    throw new AssertionError("The overlapping series should have been rejected.");
+  }
+
+  @Test
+  public void rejectPolicyAllowsBackToBackEvents() {
+    CalendarModelImpl room = new CalendarModelImpl();
+    room.setConflictPolicy(ConflictPolicy.REJECT);
+    room.createEvent(Map.of("event", "First", "from", "2025-06-02T13:00",
+            "to", "2025-06-02T14:00"));
+    room.createEvent(Map.of("event", "Second", "from", "2025-06-02T14:00",
+            "to", "2025-06-02T15:00"));
+    assertEquals(2, room.getSchedule("2025-06-02").size());
+  }
+
+  /**
+   * Check that conflicts and schedules find a long event that started in an earlier month, and
+   * stop finding it once it is undone, among many short events.
+   */
+  @Test
+  public void longEventsAreFoundAcrossMonthsUntilRemoved() {
+    CalendarModelImpl room = new CalendarModelImpl();
+    room.setConflictPolicy(ConflictPolicy.WARN);
+    room.createEvent(Map.of("event", "Standup", "from", "2025-05-01T09:00",
+            "to", "2025-05-01T09:15", "repeats", "MTWRFSU", "for", "90"));
+    room.createEvent(Map.of("event", "Vacation", "from", "2025-05-20T00:00",
+            "to", "2025-07-10T00:00"));
+
+    room.createEvent(Map.of("event", "Review", "from", "2025-07-01T13:00",
+            "to", "2025-07-01T14:00"));
+    assertEquals(1, room.getConflicts().size());
+    assertEquals("Vacation", room.getConflicts().get(0).get("conflict"));
+    assertEquals(List.of("Vacation", "Review"), this.subjectsOf(room.getSchedule(
+            "2025-07-01T12:00", "2025-07-01T18:00")));
+    assertEquals("busy", room.getStatus("2025-06-15T20:00"));
+
+    room.undo();
+    room.undo();
+    room.createEvent(Map.of("event", "Review", "from", "2025-07-01T13:00",
+            "to", "2025-07-01T14:00"));
+    assertTrue(room.getConflicts().isEmpty());
+    assertEquals(List.of("Review"), this.subjectsOf(room.getSchedule("2025-07-01T12:00",
+            "2025-07-01T18:00")));
+    assertEquals("available", room.getStatus("2025-06-15T20:00"));
+    assertEquals(List.of("Standup"), this.subjectsOf(room.getSchedule("2025-06-15")));
+  }
+
+  @Test
+  public void rejectPolicyRestoresEventOnConflictingEdit() {
+    CalendarModelImpl room = new CalendarModelImpl();
+    room.setConflictPolicy(ConflictPolicy.REJECT);
+    room.createEvent(Map.of("event", "First", "from", "2025-06-02T13:00",
+            "to", "2025-06-02T14:00"));
+    room.createEvent(Map.of("event", "Second", "from", "2025-06-02T15:00",
+            "to", "2025-06-02T16:00"));
+
+    try {
+      room.editEvent("event", "end", Map.of("event", "First"), "2025-06-02T15:30");
+    } catch (IllegalArgumentException e) {
+      assertEquals("2025-06-02T14:00", room.getSchedule("2025-06-02").get(0).get("to"));
+      return;
+    }
+    throw new AssertionError("The overlapping edit should have been rejected.");
+  }
+
+  @Test
+  public void warnPolicyAddsAndReportsConflicts() {
+    CalendarModelImpl warned = new CalendarModelImpl();
+    warned.setConflictPolicy(ConflictPolicy.WARN);
+    warned.createEvent(Map.of("event", "First", "on", "2025-06-02"));
+    warned.createEvent(Map.of("event", "Second", "from", "2025-06-02T12:00",
+            "to", "2025-06-02T13:00"));
+
+    assertEquals(2, warned.getSchedule("2025-06-02").size());
+    assertEquals(1, warned.getConflicts().size());
+    assertEquals("First", warned.getConflicts().get(0).get("conflict"));
+  }
+
+  /**
+   * Check that busy totals count each event on its start day, split multi-day events' minutes
+   * at midnight, and follow edits.
+   */
+  @Test
+  public void busyTotalsOverDayWeekAndMonth() {
+    HashMap<String, String> overnight = new HashMap<>();
+    overnight.put("event", "Overnight");
+    overnight.put("from", "2025-06-01T22:00");
+    overnight.put("to", "2025-06-02T02:00");
+    seriesCal.createEvent(overnight);
+
+    assertEquals(120L, (long) seriesCal.getBusyTotals("2025-06-01", "2025-06-01")
+            .get("minutes"));
+    assertEquals(1L, (long) seriesCal.getBusyTotals("2025-06-01", "2025-06-01").get("events"));
+    assertEquals(300L, (long) seriesCal.getBusyTotals("2025-06-02", "2025-06-02")
+            .get("minutes"));
+    assertEquals(5L, (long) seriesCal.getBusyTotals("2025-06-01", "2025-06-07").get("events"));
+    assertEquals(0L, (long) seriesCal.getBusyTotals("2025-06-06", "2025-06-30").get("events"));
+    assertEquals(4 * 180L + 240L, (long) seriesCal.getBusyTotals("2025-01-01", "2025-12-31")
+            .get("minutes"));
+
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "A series.");
+    id.put("from", "2025-06-02T13:00");
+    seriesCal.editEvent("series", "end", id, "2025-06-02T14:00");
+    assertEquals(4 * 60L + 240L, (long) seriesCal.getBusyTotals("2025-01-01", "2025-12-31")
+            .get("minutes"));
+    assertEquals(0L, (long) seriesCal.getBusyTotals("2024-01-01", "2024-12-31").get("events"));
+
+    seriesCal.createEvent(Map.of("event", "Long ago", "on", "2019-03-04"));
+    assertEquals(540L, (long) seriesCal.getBusyTotals("2019-01-01", "2019-12-31")
+            .get("minutes"));
+    assertEquals(6L, (long) seriesCal.getBusyTotals("2019-01-01", "2025-12-31").get("events"));
+  }
+
+  /**
+   * Check that busy totals far apart in time are kept without covering the years between them.
+   */
+  @Test
+  public void busyTotalsOfDistantYearsStaySmall() {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Founding", "on", "0001-01-01"));
+    calendar.createEvent(Map.of("event", "Far future", "from", "9999-12-30T22:00",
+            "to", "9999-12-31T02:00"));
+    calendar.createEvent(Map.of("event", "Leap day", "on", "2024-02-29"));
+
+    assertEquals(540L + 240L + 540L, (long) calendar.getBusyTotals("0001-01-01", "9999-12-31")
+            .get("minutes"));
+    assertEquals(3L, (long) calendar.getBusyTotals("0001-01-01", "9999-12-31").get("events"));
+    assertEquals(540L, (long) calendar.getBusyTotals("2024-02-29", "2024-12-31")
+            .get("minutes"));
+    assertEquals(0L, (long) calendar.getBusyTotals("2024-03-01", "9999-12-29").get("events"));
+    assertEquals(120L, (long) calendar.getBusyTotals("9999-12-31", "9999-12-31")
+            .get("minutes"));
+    assertTrue(calendar.getMemoryUsage().get("indexBytes") < 100_000);
+  }
+
+  /**
+   * Check that a query spanning years, which is searched in parallel by month, returns every
+   * event exactly once and in order.
+   */
+  @Test
+  public void wideScheduleQueryKeepsOrder() {
+    HashMap<String, String> daily = new HashMap<>();
+    daily.put("event", "Daily");
+    daily.put("from", "2025-01-01T09:00");
+    daily.put("to", "2025-01-01T10:00");
+    daily.put("repeats", "MTWRFSU");
+    daily.put("until", "2026-12-31");
+    cal.createEvent(daily);
+
+    List<Map<String, String>> schedule = cal.getSchedule("2024-12-01T00:00", "2027-02-01T00:00");
+    assertEquals(730, schedule.size());
+    for (int i = 1; i < schedule.size(); i++) {
+      assertTrue(schedule.get(i - 1).get("from").compareTo(schedule.get(i).get("from")) < 0);
+    }
+    assertEquals("2026-12-31T09:00", schedule.get(729).get("from"));
+  }
+
+  /**
+   * Check that editing a detail of this and the following events of a series changes only those
+   * occurrences, and that a later whole-series edit keeps the partial edit.
+   */
+  @Test
+  public void editDetailsKeepsSeriesTogether() {
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "First");
+    id.put("from", "2025-05-12T10:00");
+    seriesCal2.editEvent("events", "location", id, "online");
+
+    assertEquals(null, seriesCal2.getSchedule("2025-05-07").get(0).get("location"));
+    assertEquals("online", seriesCal2.getSchedule("2025-05-12").get(0).get("location"));
+    assertEquals("online", seriesCal2.getSchedule("2025-05-21").get(0).get("location"));
+
+    HashMap<String, String> first = new HashMap<>();
+    first.put("event", "First");
+    first.put("from", "2025-05-05T10:00");
+    seriesCal2.editEvent("series", "description", first, "Weekly review");
+
+    assertEquals("Weekly review", seriesCal2.getSchedule("2025-05-05").get(0)
+            .get("description"));
+    assertEquals("Weekly review", seriesCal2.getSchedule("2025-05-21").get(0)
+            .get("description"));
+    assertEquals("online", seriesCal2.getSchedule("2025-05-21").get(0).get("location"));
+    assertEquals(null, seriesCal2.getSchedule("2025-05-05").get(0).get("location"));
+  }
+
+  /**
+   * Check that editing a detail of one occurrence changes only that occurrence and, like any
+   * other edit of a single event, takes it out of its series.
+   */
+  @Test
+  public void editDetailOfOneOccurrence() {
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "A series.");
+    id.put("from", "2025-06-03T13:00");
+    seriesCal.editEvent("event", "status", id, "private");
+
+    assertEquals(null, seriesCal.getSchedule("2025-06-02").get(0).get("status"));
+    assertEquals("private", seriesCal.getSchedule("2025-06-03").get(0).get("status"));
+    assertEquals(null, seriesCal.getSchedule("2025-06-04").get(0).get("status"));
+
+    seriesCal.editEvent("events", "location", id, "online");
+    assertEquals("online", seriesCal.getSchedule("2025-06-03").get(0).get("location"));
+    assertEquals(null, seriesCal.getSchedule("2025-06-04").get(0).get("location"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void editDetailInvalidValueLeavesSeries() {
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "A series.");
+    id.put("from", "2025-06-03T13:00");
+    try {
+      seriesCal.editEvent("series", "location", id, "moon");
+    } finally {
+      assertEquals(4, seriesCal.getSchedule("2025-06-01T00:00", "2025-06-30T00:00").size());
+    }
+  }
+
+  /**
+   * Check that a subscriber is told only about changes within its window, with the removal and
+   * re-adding of an edited event reported as one edit.
+   */
+  @Test
+  public void subscribersReceiveChangesInTheirWindow() throws InterruptedException {
+    CalendarModelImpl watched = new CalendarModelImpl();
+    watched.createEvent(Map.of("event", "Existing", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T10:00"));
+    BlockingQueue<Map<String, String>> received = new LinkedBlockingQueue<>();
+    Subscription subscription = watched.subscribe("2025-06-02T00:00", "2025-06-03T23:59",
+        received::addAll);
+
+    watched.createEvent(Map.of("event", "Elsewhere", "on", "2025-06-10"));
+    watched.createEvent(Map.of("event", "Inside", "on", "2025-06-03"));
+    watched.editEvent("event", "subject", Map.of("event", "Existing"), "Renamed");
+    watched.editEvent("event", "start", Map.of("event", "Renamed"), "2025-06-02T09:30");
+
+    Map<String, String> first = received.poll(5, TimeUnit.SECONDS);
+    assertEquals("created", first.get("change"));
+    assertEquals("Inside", first.get("event"));
+    Map<String, String> second = received.poll(5, TimeUnit.SECONDS);
+    assertEquals("edited", second.get("change"));
+    assertEquals("Renamed", second.get("event"));
+    assertEquals("removed", received.poll(5, TimeUnit.SECONDS).get("change"));
+    Map<String, String> fourth = received.poll(5, TimeUnit.SECONDS);
+    assertEquals("created", fourth.get("change"));
+    assertEquals("2025-06-02T09:30", fourth.get("from"));
+
+    subscription.cancel();
+    watched.createEvent(Map.of("event", "Unheard", "on", "2025-06-02"));
+    assertEquals(null, received.poll(200, TimeUnit.MILLISECONDS));
+  }
 
-}
\ No newline at end of file
+  /**
+   * Check that a client catching up from a version sees only the latest state of what changed
+   * since then, and is told to resync once those changes have been trimmed.
+   */
+  @Test
+  public void changesSinceVersion() {
+    CalendarModelImpl synced = new CalendarModelImpl();
+    synced.createEvent(Map.of("event", "Old", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T10:00"));
+    synced.createEvent(Map.of("event", "Gone", "on", "2025-06-04"));
+    long clientVersion = synced.getVersion();
+    assertEquals(2, clientVersion);
+    assertTrue(synced.changesSince(clientVersion).getChanges().isEmpty());
+
+    synced.editEvent("event", "subject", Map.of("event", "Old"), "Renamed");
+    synced.createEvent(Map.of("event", "New", "on", "2025-06-03"));
+    synced.editEvent("event", "location", Map.of("event", "New"), "online");
+    synced.createEvent(Map.of("event", "Brief", "on", "2025-06-05"));
+    synced.editEvent("event", "start", Map.of("event", "Gone"), "2025-06-04T07:00");
+
+    ScheduleDelta delta = synced.changesSince(clientVersion);
+    assertFalse(delta.isResyncRequired());
+    assertEquals(7, delta.getVersion());
+    List<Map<String, String>> changes = delta.getChanges();
+    assertEquals(5, changes.size());
+    assertEquals("edited", changes.get(0).get("change"));
+    assertEquals("Renamed", changes.get(0).get("event"));
+    assertEquals("created", changes.get(1).get("change"));
+    assertEquals("online", changes.get(1).get("location"));
+    assertEquals("created", changes.get(2).get("change"));
+    assertEquals("Brief", changes.get(2).get("event"));
+    assertEquals("removed", changes.get(3).get("change"));
+    assertEquals("2025-06-04T08:00", changes.get(3).get("from"));
+    assertEquals("created", changes.get(4).get("change"));
+    assertEquals("2025-06-04T07:00", changes.get(4).get("from"));
+
+    synced.setChangeLogCapacity(2);
+    assertTrue(synced.changesSince(clientVersion).isResyncRequired());
+    assertFalse(synced.changesSince(6).isResyncRequired());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void changesSinceFutureVersion() {
+    new CalendarModelImpl().changesSince(1);
+  }
+
+  /**
+   * Check that searches match whole words and prefixes in subjects and descriptions, ignoring
+   * case, and follow edits to the searched text.
+   */
+  @Test
+  public void searchSubjectAndDescription() {
+    CalendarModelImpl searched = new CalendarModelImpl();
+    searched.createEvent(Map.of("event", "Team Meeting", "from", "2024-03-04T09:00",
+            "to", "2024-03-04T10:00", "description", "Quarterly planning, budget."));
+    searched.createEvent(Map.of("event", "Team lunch", "on", "2025-06-02"));
+    searched.createEvent(Map.of("event", "Dentist", "from", "2025-06-03T09:00",
+            "to", "2025-06-03T10:00", "description", "Meet at the front desk"));
+
+    List<Map<String, String>> found = searched.search("team", null, null);
+    assertEquals(2, found.size());
+    assertEquals("Team Meeting", found.get(0).get("event"));
+    assertEquals("Team lunch", found.get(1).get("event"));
+    assertEquals(1, searched.search("TEAM budget", null, null).size());
+    assertEquals(2, searched.search("meet*", null, null).size());
+    assertEquals("Dentist", searched.search("meet", null, null).get(0).get("event"));
+    assertEquals(1, searched.search("team", "2025-01-01T00:00", "2025-12-31T23:59").size());
+    assertEquals("Team lunch",
+            searched.search("team", "2025-06-02T12:00", "2025-06-02T12:00").get(0).get("event"));
+
+    searched.editEvent("event", "description", Map.of("event", "Dentist"), "Checkup");
+    assertEquals(1, searched.search("meet*", null, null).size());
+    assertEquals("Dentist", searched.search("checkup", null, null).get(0).get("event"));
+    searched.editEvent("event", "subject", Map.of("event", "Team lunch"), "Lunch");
+    assertEquals(1, searched.search("team", null, null).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void searchWithoutWords() {
+    new CalendarModelImpl().search(" ,* ", null, null);
+  }
+
+  /**
+   * Check that paging through a range returns every event of the full schedule exactly once,
+   * in order, even when events are added before the cursor between pages.
+   */
+  @Test
+  public void pagesCoverTheWholeRange() {
+    CalendarModelImpl paged = new CalendarModelImpl();
+    for (int day = 1; day <= 9; day++) {
+      paged.createEvent(Map.of("event", "Day " + day, "on", "2025-06-0" + day));
+    }
+    List<Map<String, String>> all = paged.getSchedule("2025-06-02T12:00", "2025-06-08T12:00");
+
+    SchedulePage first = paged.getSchedulePage("2025-06-02T12:00", "2025-06-08T12:00", null, 3);
+    assertEquals(all.subList(0, 3), first.getItems());
+    assertTrue(first.hasNext());
+    paged.createEvent(Map.of("event", "Late addition", "from", "2025-06-03T18:00",
+            "to", "2025-06-03T19:00"));
+    SchedulePage second = paged.getSchedulePage("2025-06-02T12:00", "2025-06-08T12:00",
+            first.getCursor(), 3);
+    assertEquals(all.subList(3, 6), second.getItems());
+    SchedulePage third = paged.getSchedulePage("2025-06-02T12:00", "2025-06-08T12:00",
+            second.getCursor(), 3);
+    assertEquals(all.subList(6, 7), third.getItems());
+    assertFalse(third.hasNext());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pageWithForgedCursor() {
+    new CalendarModelImpl().getSchedulePage("2025-06-02T12:00", "2025-06-08T12:00",
+            "not-a-cursor", 3);
+  }
+
+  /**
+   * Check that repeated subjects and descriptions are only counted once towards a calendar's
+   * memory use, and stop counting once no event uses them.
+   */
+  @Test
+  public void repeatedTextIsShared() throws IOException {
+    CalendarRegistry registry = new CalendarRegistry(Files.createTempDirectory("calendars"),
+            Long.MAX_VALUE);
+    String longText = "x".repeat(1000);
+    for (int day = 1; day <= 9; day++) {
+      registry.get("repeated").createEvent(Map.of("event", "Review", "on", "2025-06-0" + day,
+              "description", longText));
+      registry.get("distinct").createEvent(Map.of("event", "Review " + day,
+              "on", "2025-06-0" + day, "description", longText + day));
+    }
+    long repeated = registry.memoryUsage().get("repeated");
+    assertTrue(registry.memoryUsage().get("distinct") > repeated + 7000);
+
+    for (int day = 1; day <= 9; day++) {
+      registry.get("repeated").editEvent("event", "description",
+              Map.of("from", "2025-06-0" + day + "T08:00"), "short");
+    }
+    assertTrue(registry.memoryUsage().get("repeated") < repeated - 900);
+  }
+
+  /**
+   * Check that a zoned calendar stores UTC times, shows them in its own zone, and can be viewed
+   * from another zone, including across a daylight saving change.
+   */
+  @Test
+  public void zonedCalendarsStoreUtc() {
+    CalendarModelImpl utc = new CalendarModelImpl();
+    ZonedCalendarModel newYork = new ZonedCalendarModel(utc, ZoneId.of("America/New_York"));
+    newYork.createEvent(Map.of("event", "Standup", "from", "2025-03-07T09:00",
+            "to", "2025-03-07T09:30"));
+    newYork.createEvent(Map.of("event", "Retro", "from", "2025-03-10T09:00",
+            "to", "2025-03-10T10:00"));
+
+    assertEquals("2025-03-07T14:00", utc.getSchedule("2025-03-07").get(0).get("from"));
+    assertEquals("2025-03-10T13:00", utc.getSchedule("2025-03-10").get(0).get("from"));
+    assertEquals("2025-03-10T09:00", newYork.getSchedule("2025-03-10").get(0).get("from"));
+    assertEquals("busy", newYork.getStatus("2025-03-07T09:15"));
+    assertEquals("available", newYork.getStatus("2025-03-07T14:15"));
+
+    ZonedCalendarModel tokyo = newYork.withZone(ZoneId.of("Asia/Tokyo"));
+    assertEquals("2025-03-07T23:00", tokyo.getSchedule("2025-03-07").get(0).get("from"));
+    assertEquals("2025-03-10T22:00", tokyo.getSchedule("2025-03-10").get(0).get("from"));
+    assertEquals(Map.of("minutes", 90L, "events", 2L),
+            newYork.getBusyTotals("2025-03-07", "2025-03-10"));
+    assertEquals(Map.of("minutes", 30L, "events", 1L),
+            tokyo.getBusyTotals("2025-03-07", "2025-03-07"));
+
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "Retro");
+    id.put("from", "2025-03-10T09:00");
+    newYork.editEvent("event", "start", id, "2025-03-10T09:30");
+    assertEquals("2025-03-10T13:30", utc.getSchedule("2025-03-10").get(0).get("from"));
+  }
+
+  /**
+   * Check that a series repeats on the days of its zone even when its occurrences start on
+   * another day in UTC, both for a number of times and until a date.
+   */
+  @Test
+  public void zonedSeriesRepeatOnLocalDays() {
+    CalendarModelImpl utc = new CalendarModelImpl();
+    ZonedCalendarModel newYork = new ZonedCalendarModel(utc, ZoneId.of("America/New_York"));
+    newYork.createEvent(Map.of("event", "Evening class", "from", "2025-06-02T20:00",
+            "to", "2025-06-02T21:00", "repeats", "M", "for", "3"));
+    List<String> starts = new ArrayList<>();
+    for (Map<String, String> item : newYork.getSchedule("2025-06-01T00:00",
+            "2025-06-30T00:00")) {
+      starts.add(item.get("from"));
+    }
+    assertEquals(List.of("2025-06-02T20:00", "2025-06-09T20:00", "2025-06-16T20:00"), starts);
+    assertEquals("2025-06-03T00:00", utc.getSchedule("2025-06-03").get(0).get("from"));
+
+    ZonedCalendarModel tokyo = newYork.withZone(ZoneId.of("Asia/Tokyo"));
+    tokyo.createEvent(Map.of("event", "Breakfast", "from", "2025-06-02T07:00",
+            "to", "2025-06-02T08:00", "repeats", "MW", "until", "2025-06-09"));
+    starts.clear();
+    for (Map<String, String> item : tokyo.getSchedule("2025-06-01T00:00",
+            "2025-06-30T00:00", Map.of("subject", "Breakfast"))) {
+      starts.add(item.get("from"));
+    }
+    assertEquals(List.of("2025-06-02T07:00", "2025-06-04T07:00", "2025-06-09T07:00"), starts);
+  }
+
+  /**
+   * Check that a series keeps its local time on both sides of a daylight saving change, and that
+   * editing its start keeps each occurrence on its own local day.
+   */
+  @Test
+  public void zonedSeriesKeepLocalTimesAcrossDaylightSaving() {
+    CalendarModelImpl utc = new CalendarModelImpl();
+    ZonedCalendarModel newYork = new ZonedCalendarModel(utc, ZoneId.of("America/New_York"));
+    newYork.createEvent(Map.of("event", "Planning", "from", "2025-02-24T09:00",
+            "to", "2025-02-24T10:00", "repeats", "M", "for", "4"));
+    List<String> starts = new ArrayList<>();
+    for (Map<String, String> item : newYork.getSchedule("2025-02-01T00:00",
+            "2025-03-31T00:00")) {
+      starts.add(item.get("from"));
+    }
+    assertEquals(List.of("2025-02-24T09:00", "2025-03-03T09:00", "2025-03-10T09:00",
+            "2025-03-17T09:00"), starts);
+    assertEquals("2025-03-10T13:00", utc.getSchedule("2025-03-10").get(0).get("from"));
+
+    newYork.editEvent("series", "end", Map.of("event", "Planning", "from", "2025-03-03T09:00"),
+            "2025-03-03T21:00");
+    newYork.editEvent("series", "start", Map.of("event", "Planning", "from", "2025-03-03T09:00"),
+            "2025-03-03T20:00");
+    starts.clear();
+    for (Map<String, String> item : newYork.getSchedule("2025-02-01T00:00",
+            "2025-03-31T00:00")) {
+      starts.add(item.get("from") + "/" + item.get("to"));
+    }
+    assertEquals(List.of("2025-02-24T20:00/2025-02-24T21:00", "2025-03-03T20:00/2025-03-03T21:00",
+            "2025-03-10T20:00/2025-03-10T21:00", "2025-03-17T20:00/2025-03-17T21:00"), starts);
+  }
+
+  /**
+   * Check that moving an event to an evening time west of UTC, which is the next day in UTC,
+   * keeps it on its local day.
+   */
+  @Test
+  public void zonedEveningEditsKeepTheirLocalDay() {
+    CalendarModelImpl utc = new CalendarModelImpl();
+    ZonedCalendarModel newYork = new ZonedCalendarModel(utc, ZoneId.of("America/New_York"));
+    newYork.createEvent(Map.of("event", "Dinner", "from", "2025-06-05T18:00",
+            "to", "2025-06-05T23:00"));
+    newYork.editEvent("event", "start", Map.of("event", "Dinner", "from", "2025-06-05T18:00"),
+            "2025-06-05T20:00");
+
+    Map<String, String> dinner = newYork.getSchedule("2025-06-05").get(0);
+    assertEquals("2025-06-05T20:00", dinner.get("from"));
+    assertEquals("2025-06-05T23:00", dinner.get("to"));
+    assertEquals("2025-06-06T00:00", utc.getSchedule("2025-06-06").get(0).get("from"));
+  }
+
+  /**
+   * Check that times skipped or repeated by a daylight saving change are resolved like
+   * ZonedDateTime resolves them.
+   */
+  @Test
+  public void zonedCalendarsResolveTransitions() {
+    CalendarModelImpl utc = new CalendarModelImpl();
+    ZonedCalendarModel newYork = new ZonedCalendarModel(utc, ZoneId.of("America/New_York"));
+    newYork.createEvent(Map.of("event", "Skipped", "from", "2025-03-09T02:30",
+            "to", "2025-03-09T04:00"));
+    newYork.createEvent(Map.of("event", "Repeated", "from", "2025-11-02T01:30",
+            "to", "2025-11-02T03:00"));
+
+    assertEquals("2025-03-09T07:30", utc.getSchedule("2025-03-09").get(0).get("from"));
+    assertEquals("2025-03-09T03:30", newYork.getSchedule("2025-03-09").get(0).get("from"));
+    assertEquals("2025-11-02T05:30", utc.getSchedule("2025-11-02").get(0).get("from"));
+  }
+
+  /**
+   * Check that schedule items read like the maps they replace but cannot be changed.
+   */
+  @Test
+  public void scheduleItemsAreReadOnlyViews() {
+    CalendarModelImpl viewed = new CalendarModelImpl();
+    viewed.createEvent(Map.of("event", "Review", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T10:00", "location", "online"));
+    Map<String, String> item = viewed.getSchedule("2025-06-02").get(0);
+
+    HashMap<String, String> expected = new HashMap<>();
+    expected.put("event", "Review");
+    expected.put("from", "2025-06-02T09:00");
+    expected.put("to", "2025-06-02T10:00");
+    expected.put("description", null);
+    expected.put("location", "online");
+    assertEquals(expected, item);
+    assertEquals(expected.hashCode(), item.hashCode());
+    assertFalse(item.containsKey("status"));
+    try {
+      item.put("status", "private");
+      fail("Schedule items should not be changeable.");
+    } catch (UnsupportedOperationException e) {
+      assertEquals(5, item.size());
+    }
+  }
+
+  /**
+   * Check that dates and times are validated field by field, accepting leap days only in leap
+   * years and times with seconds as before.
+   */
+  @Test
+  public void parseDatesAndTimesStrictly() {
+    CalendarModelImpl parsed = new CalendarModelImpl();
+    parsed.createEvent(Map.of("event", "Leap", "on", "2024-02-29"));
+    parsed.createEvent(Map.of("event", "Precise", "from", "2025-06-02T09:00:30",
+            "to", "2025-06-02T10:00"));
+    assertEquals(1, parsed.getSchedule("2024-02-29").size());
+    assertEquals("busy", parsed.getStatus("2025-06-02T09:00:45"));
+
+    for (String invalid : new String[] {"2025-02-29T09:00", "2025-13-01T09:00",
+        "2025-06-01T24:00", "2025-06-01T09:60", "2025-06-01 09:00", "2025-6-01T09:00",
+        "2025-06-01T09:0a"}) {
+      try {
+        parsed.getStatus(invalid);
+        fail(invalid + " should not be parsed.");
+      } catch (DateTimeParseException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Check that undoing and redoing series edits brings back exactly the events before and after
+   * them, along with the calendar's totals and search index.
+   */
+  @Test
+  public void undoAndRedoSeriesEdits() {
+    CalendarModelImpl history = new CalendarModelImpl();
+    history.createEvent(Map.of("event", "Standup", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T09:15", "repeats", "MTWRF", "for", "10"));
+    List<Map<String, String>> created = history.getSchedule("2025-06-01T00:00",
+            "2025-06-30T00:00");
+
+    HashMap<String, String> id = new HashMap<>();
+    id.put("event", "Standup");
+    id.put("from", "2025-06-04T09:00");
+    history.editEvent("series", "subject", id, "Scrum");
+    history.editEvent("series", "location", Map.of("event", "Scrum",
+            "from", "2025-06-05T09:00"), "online");
+    List<Map<String, String>> edited = history.getSchedule("2025-06-01T00:00",
+            "2025-06-30T00:00");
+
+    history.undo();
+    history.undo();
+    assertEquals(created, history.getSchedule("2025-06-01T00:00", "2025-06-30T00:00"));
+    assertEquals(10, history.search("standup", null, null).size());
+    assertEquals(0, history.search("scrum", null, null).size());
+    assertEquals(150L, history.getBusyTotals("2025-06-01", "2025-06-30").get("minutes")
+            .longValue());
+
+    history.redo();
+    history.redo();
+    assertEquals(edited, history.getSchedule("2025-06-01T00:00", "2025-06-30T00:00"));
+    assertEquals(10, history.search("scrum", null, null).size());
+  }
+
+  /**
+   * Check that restoring a checkpoint can be undone, and that a new change clears what could be
+   * redone.
+   */
+  @Test
+  public void restoreCheckpoints() {
+    CalendarModelImpl history = new CalendarModelImpl();
+    history.createEvent(Map.of("event", "Kept", "on", "2025-06-02"));
+    history.checkpoint("clean");
+    history.createEvent(Map.of("event", "Mistake", "on", "2025-06-03"));
+    history.editEvent("event", "subject", Map.of("event", "Kept"), "Broken");
+
+    history.restoreCheckpoint("clean");
+    assertEquals("Kept", history.getSchedule("2025-06-02").get(0).get("event"));
+    assertTrue(history.getSchedule("2025-06-03").isEmpty());
+    history.undo();
+    assertEquals("Broken", history.getSchedule("2025-06-02").get(0).get("event"));
+    assertEquals(1, history.getSchedule("2025-06-03").size());
+
+    history.undo();
+    history.createEvent(Map.of("event", "Another", "on", "2025-06-04"));
+    try {
+      history.redo();
+      fail("Nothing should be left to redo after a new change.");
+    } catch (IllegalStateException e) {
+      assertEquals("Kept", history.getSchedule("2025-06-02").get(0).get("event"));
+    }
+  }
+
+  /**
+   * Check that a series edited after undoing, redoing or restoring an edit of it still reaches
+   * every one of its occurrences.
+   */
+  @Test
+  public void seriesEditsAfterUndoReachEveryOccurrence() {
+    CalendarModelImpl history = this.weeklySeries();
+    history.editEvent("series", "description", Map.of("event", "Review",
+            "from", "2025-06-02T10:00"), "new");
+    history.undo();
+    history.editEvent("series", "location", Map.of("event", "Review",
+            "from", "2025-06-09T10:00"), "online");
+    assertEquals(4, history.getSchedule("2025-06-01T00:00", "2025-06-30T00:00",
+            Map.of("location", "online")).size());
+
+    history = this.weeklySeries();
+    history.editEvent("events", "start", Map.of("event", "Review",
+            "from", "2025-06-09T10:00"), "2025-06-09T09:15");
+    history.undo();
+    history.editEvent("series", "subject", Map.of("event", "Review",
+            "from", "2025-06-16T10:00"), "T");
+    assertEquals(List.of("T", "T", "T", "T"), this.subjectsOf(history.getSchedule(
+            "2025-06-01T00:00", "2025-06-30T00:00")));
+  }
+
+  /**
+   * Check that a series edited after an edit of it is undone and redone follows the redone
+   * edit.
+   */
+  @Test
+  public void seriesEditsAfterRedoFollowTheRedoneEdit() {
+    CalendarModelImpl history = this.weeklySeries();
+    history.editEvent("series", "description", Map.of("event", "Review",
+            "from", "2025-06-02T10:00"), "new");
+    history.undo();
+    history.redo();
+    history.editEvent("series", "location", Map.of("event", "Review",
+            "from", "2025-06-23T10:00"), "online");
+    assertEquals(4, history.getSchedule("2025-06-01T00:00", "2025-06-30T00:00",
+            Map.of("location", "online")).size());
+
+    history = this.weeklySeries();
+    history.editEvent("events", "start", Map.of("event", "Review",
+            "from", "2025-06-09T10:00"), "2025-06-09T09:15");
+    history.undo();
+    history.redo();
+    // the redone edit split the series again, so only the part it moved is renamed
+    history.editEvent("series", "subject", Map.of("event", "Review",
+            "from", "2025-06-16T09:15"), "T");
+    assertEquals(List.of("Review", "T", "T", "T"), this.subjectsOf(history.getSchedule(
+            "2025-06-01T00:00", "2025-06-30T00:00")));
+  }
+
+  /**
+   * Check that a series edited after restoring a checkpoint taken before it was split and
+   * edited reaches every one of its occurrences.
+   */
+  @Test
+  public void seriesEditsAfterRestoringACheckpoint() {
+    CalendarModelImpl history = this.weeklySeries();
+    history.checkpoint("plain");
+    history.editEvent("series", "description", Map.of("event", "Review",
+            "from", "2025-06-02T10:00"), "new");
+    history.editEvent("events", "start", Map.of("event", "Review",
+            "from", "2025-06-09T10:00"), "2025-06-09T09:15");
+    history.restoreCheckpoint("plain");
+    history.editEvent("series", "subject", Map.of("event", "Review",
+            "from", "2025-06-16T10:00"), "T");
+    history.editEvent("series", "status", Map.of("event", "T",
+            "from", "2025-06-02T10:00"), "private");
+    assertEquals(List.of("T", "T", "T", "T"), this.subjectsOf(history.getSchedule(
+            "2025-06-01T00:00", "2025-06-30T00:00", Map.of("status", "private"))));
+  }
+
+  /**
+   * Creates a calendar holding a series of four weekly reviews from 2025-06-02.
+   */
+  private CalendarModelImpl weeklySeries() {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Review", "from", "2025-06-02T10:00",
+            "to", "2025-06-02T11:00", "repeats", "M", "for", "4"));
+    return calendar;
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void undoWithoutChanges() {
+    CalendarModelImpl history = new CalendarModelImpl();
+    try {
+      history.createEvent(Map.of("event", "Bad", "from", "2025-06-02T10:00",
+              "to", "2025-06-02T09:00"));
+    } catch (IllegalArgumentException e) {
+      // a failed create leaves nothing to undo
+    }
+    history.undo();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void restoreUnknownCheckpoint() {
+    new CalendarModelImpl().restoreCheckpoint("missing");
+  }
+
+  /**
+   * Check that undoing many changes to a calendar spread over years walks back through exactly
+   * the schedules it had along the way.
+   */
+  @Test
+  public void undoManyChanges() {
+    CalendarModelImpl history = new CalendarModelImpl();
+    Random random = new Random(42);
+    List<List<Map<String, String>>> schedules = new ArrayList<>();
+    schedules.add(history.getSchedule("2020-01-01T00:00", "2030-01-01T00:00"));
+    for (int i = 0; i < 60; i++) {
+      String day = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(3000)).toString();
+      if (i % 3 == 2 && !schedules.get(i).isEmpty()) {
+        Map<String, String> victim = schedules.get(i).get(random.nextInt(schedules.get(i).size()));
+        history.editEvent("event", "start", Map.of("event", victim.get("event"),
+                "from", victim.get("from")), victim.get("from").substring(0, 11) + "06:00");
+      } else {
+        history.createEvent(Map.of("event", "Event " + i, "on", day));
+      }
+      schedules.add(history.getSchedule("2020-01-01T00:00", "2030-01-01T00:00"));
+    }
+    for (int i = 59; i >= 0; i--) {
+      history.undo();
+      assertEquals(schedules.get(i), history.getSchedule("2020-01-01T00:00",
+              "2030-01-01T00:00"));
+    }
+  }
+
+  @Test
+  public void scheduleAsOfVersion() {
+    CalendarModelImpl versioned = new CalendarModelImpl();
+    versioned.createEvent(Map.of("event", "Standup", "from", "2025-06-02T09:00",
+            "to", "2025-06-02T09:30"));
+    long created = versioned.getVersion();
+    versioned.editEvent("event", "subject", Map.of("event", "Standup"), "Sync");
+    versioned.editEvent("event", "start", Map.of("event", "Sync"), "2025-06-02T08:00");
+
+    assertTrue(versioned.getScheduleAsOf(0, "2025-06-02T00:00", "2025-06-02T23:59").isEmpty());
+    List<Map<String, String>> original = versioned.getScheduleAsOf(created,
+            "2025-06-02T00:00", "2025-06-02T23:59");
+    assertEquals(1, original.size());
+    assertEquals("Standup", original.get(0).get("event"));
+    assertEquals("2025-06-02T09:00", original.get(0).get("from"));
+    assertEquals("available", versioned.getStatusAsOf(created, "2025-06-02T08:30"));
+    assertEquals("busy", versioned.getStatus("2025-06-02T08:30"));
+    assertEquals(versioned.getSchedule("2025-06-02T00:00", "2025-06-02T23:59"),
+            versioned.getScheduleAsOf(versioned.getVersion(), "2025-06-02T00:00",
+                    "2025-06-02T23:59"));
+  }
+
+  @Test
+  public void scheduleAsOfTime() throws InterruptedException {
+    CalendarModelImpl versioned = new CalendarModelImpl();
+    versioned.createEvent(Map.of("event", "Review", "on", "2025-06-03"));
+    Thread.sleep(5);
+    Instant between = Instant.now();
+    Thread.sleep(5);
+    versioned.editEvent("event", "end", Map.of("event", "Review"), "2025-06-03T12:00");
+
+    assertEquals("busy", versioned.getStatusAsOf(between, "2025-06-03T15:00"));
+    assertEquals("available", versioned.getStatus("2025-06-03T15:00"));
+    assertEquals("2025-06-03T17:00", versioned.getScheduleAsOf(between, "2025-06-03T00:00",
+            "2025-06-03T23:59").get(0).get("to"));
+  }
+
+  @Test
+  public void replacedVersionsArePruned() {
+    CalendarModelImpl versioned = new CalendarModelImpl();
+    versioned.createEvent(Map.of("event", "Standup", "on", "2025-06-02"));
+    versioned.setVersionRetention(Duration.ZERO);
+    versioned.createEvent(Map.of("event", "Retro", "on", "2025-06-03"));
+
+    assertEquals(2, versioned.getScheduleAsOf(2, "2025-06-01T00:00", "2025-06-04T00:00")
+            .size());
+    try {
+      versioned.getScheduleAsOf(1, "2025-06-01T00:00", "2025-06-04T00:00");
+      fail("A pruned version should not be queryable.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      versioned.getStatusAsOf(3, "2025-06-02T09:00");
+      fail("A future version should not be queryable.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void transactionsApplyTogether() {
+    CalendarModelImpl batched = new CalendarModelImpl();
+    batched.createEvent(Map.of("event", "Standup", "on", "2025-06-02"));
+    batched.transact(calendar -> {
+      calendar.createEvent(Map.of("event", "Import", "from", "2025-06-03T09:00",
+              "to", "2025-06-03T10:00"));
+      calendar.editEvent("event", "location", Map.of("event", "Import",
+              "from", "2025-06-03T09:00"), "online");
+      calendar.createEvent(Map.of("event", "Review", "from", "2025-06-04T09:00",
+              "to", "2025-06-04T09:30", "repeats", "MTWRF", "for", "3"));
+      assertEquals("available", calendar.getStatus("2025-06-03T09:30"));
+    });
+
+    assertEquals(2, batched.getVersion());
+    assertEquals("online", batched.getSchedule("2025-06-03T00:00", "2025-06-03T23:59")
+            .get(0).get("location"));
+    assertEquals(3, batched.search("review", null, null).size());
+    assertEquals(5L, batched.getBusyTotals("2025-06-01", "2025-06-30").get("events")
+            .longValue());
+    assertEquals(4, batched.changesSince(1).getChanges().size());
+
+    batched.undo();
+    assertEquals(1, batched.getSchedule("2025-06-01T00:00", "2025-06-30T00:00").size());
+  }
+
+  @Test
+  public void failedTransactionsApplyNothing() {
+    CalendarModelImpl batched = new CalendarModelImpl();
+    batched.createEvent(Map.of("event", "Standup", "on", "2025-06-02"));
+    try {
+      batched.transact(calendar -> {
+        calendar.createEvent(Map.of("event", "Import", "on", "2025-06-03"));
+        calendar.createEvent(Map.of("event", "Standup", "on", "2025-06-02"));
+      });
+      fail("A duplicate event should fail the whole transaction.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    assertEquals(1, batched.getVersion());
+    assertEquals(1, batched.getSchedule("2025-06-01T00:00", "2025-06-30T00:00").size());
+    assertEquals(0, batched.search("import", null, null).size());
+    try {
+      batched.transact(CalendarModel::undo);
+      fail("Undo should not be allowed within a transaction.");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    batched.undo();
+    assertEquals(0, batched.getSchedule("2025-06-01T00:00", "2025-06-30T00:00").size());
+  }
+
+  @Test
+  public void asyncChangesArePublishedBeforeCompleting() throws Exception {
+    AsyncCalendarModel async = new AsyncCalendarModel(new CalendarModelImpl());
+    List<CompletableFuture<Void>> created = new ArrayList<>();
+    for (int day = 1; day <= 28; day++) {
+      created.add(async.createEvent(Map.of("event", "Day " + day,
+              "on", String.format("2025-02-%02d", day))));
+    }
+    CompletableFuture<Void> duplicate = async.createEvent(Map.of("event", "Day 1",
+            "on", "2025-02-01"));
+    CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+    assertEquals(28, async.getSchedule("2025-02-01T00:00", "2025-02-28T23:59").get().size());
+    assertEquals("busy", async.getStatus("2025-02-14T12:00").get());
+    try {
+      duplicate.get(5, TimeUnit.SECONDS);
+      fail("A duplicate event should fail its own future.");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+
+    async.undo().get(5, TimeUnit.SECONDS);
+    assertEquals(0, async.getSchedule("2025-02-28").get().size());
+    assertTrue(async.getSchedule("2025-02-28T00:00", "2025-02-01T00:00")
+            .isCompletedExceptionally());
+
+    async.close();
+    assertEquals(29, async.getVersion());
+    assertTrue(async.createEvent(Map.of("event", "Late", "on", "2025-03-01"))
+            .isCompletedExceptionally());
+  }
+
+  @Test
+  public void followersReplayThePrimarysJournal() throws Exception {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Before", "on", "2025-07-01"));
+    try (ReplicationPrimary primary = new ReplicationPrimary(calendar, 0);
+         ReplicationFollower early = new ReplicationFollower("localhost", primary.getPort())) {
+      primary.createEvent(Map.of("event", "Review", "from", "2025-07-02T09:00",
+              "to", "2025-07-02T10:00"));
+      primary.transact(batch -> {
+        batch.createEvent(Map.of("event", "Import", "on", "2025-07-03"));
+        batch.editEvent("event", "location", Map.of("event", "Import",
+                "from", "2025-07-03T08:00"), "online");
+      });
+      this.awaitSequence(early, primary.getSequence());
+      assertEquals(3, early.getSchedule("2025-07-01T00:00", "2025-07-31T23:59").size());
+      assertEquals("online", early.getSchedule("2025-07-03").get(0).get("location"));
+
+      primary.undo();
+      try (ReplicationFollower late = new ReplicationFollower("localhost",
+              primary.getPort())) {
+        this.awaitSequence(early, primary.getSequence());
+        this.awaitSequence(late, primary.getSequence());
+        assertEquals(primary.getSchedule("2025-07-01T00:00", "2025-07-31T23:59"),
+                early.getSchedule("2025-07-01T00:00", "2025-07-31T23:59"));
+        assertEquals(primary.getSchedule("2025-07-01T00:00", "2025-07-31T23:59"),
+                late.getSchedule("2025-07-01T00:00", "2025-07-31T23:59"));
+        assertEquals("available", late.getStatus("2025-07-03T12:00"));
+        assertEquals("busy", late.getStatus("2025-07-02T09:30"));
+      }
+    }
+  }
+
+  /**
+   * Check that a follower whose copy has drifted from the primary reports the entry it could not
+   * apply and copies the primary's calendar again.
+   */
+  @Test
+  public void followersResyncWhenAnEntryFails() throws Exception {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    try (ReplicationPrimary primary = new ReplicationPrimary(calendar, 0);
+         ReplicationFollower follower = new ReplicationFollower("localhost",
+                 primary.getPort())) {
+      primary.createEvent(Map.of("event", "Review", "on", "2025-07-02"));
+      this.awaitSequence(follower, primary.getSequence());
+      assertNull(follower.getLastFailure());
+
+      // a change made behind the primary's back is never journaled
+      calendar.createEvent(Map.of("event", "Hidden", "on", "2025-07-03"));
+      primary.editEvent("event", "subject", Map.of("event", "Hidden"), "Shown");
+      this.awaitSequence(follower, primary.getSequence());
+      assertTrue(follower.getLastFailure() instanceof IllegalArgumentException);
+      assertEquals(List.of("Review", "Shown"), this.subjectsOf(follower.getSchedule(
+              "2025-07-01T00:00", "2025-07-31T23:59")));
+    }
+  }
+
+  @Test
+  public void followersRefuseReadsWhenTooStale() throws Exception {
+    ReplicationFollower orphan;
+    try (ReplicationPrimary primary = new ReplicationPrimary(new CalendarModelImpl(), 0)) {
+      orphan = new ReplicationFollower("localhost", primary.getPort());
+      primary.createEvent(Map.of("event", "Review", "on", "2025-07-02"));
+      this.awaitSequence(orphan, primary.getSequence());
+      Thread.sleep(300);
+      assertTrue(orphan.getStaleness().compareTo(Duration.ofMillis(250)) < 0);
+    }
+    orphan.setMaxStaleness(Duration.ofMillis(200));
+    Thread.sleep(400);
+    assertTrue(orphan.getStaleness().compareTo(Duration.ofMillis(200)) > 0);
+    try {
+      orphan.getSchedule("2025-07-02");
+      fail("A follower cut off from its primary should refuse to answer.");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    orphan.setMaxStaleness(Duration.ofMinutes(1));
+    assertEquals(1, orphan.getSchedule("2025-07-02").size());
+    orphan.close();
+  }
+
+  /**
+   * Waits until queries to the given follower reflect every entry up to the given sequence
+   * number.
+   */
+  private void awaitSequence(ReplicationFollower follower, long sequence)
+          throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (follower.getAppliedSequence() < sequence
+            || follower.getStaleness().compareTo(Duration.ofMillis(500)) > 0) {
+      if (System.nanoTime() > deadline) {
+        fail("The follower only reached entry " + follower.getAppliedSequence() + " of "
+                + sequence + ".");
+      }
+      Thread.sleep(20);
+    }
+  }
+
+  @Test
+  public void filteredSchedulesOnlyIncludeMatchingEvents() {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Team meeting", "from", "2025-08-04T09:00",
+            "to", "2025-08-04T10:00", "location", "online", "status", "private"));
+    calendar.createEvent(Map.of("event", "Team lunch", "from", "2025-08-04T12:00",
+            "to", "2025-08-04T12:30", "location", "physical"));
+    calendar.createEvent(Map.of("event", "Meeting notes", "description", "team meeting",
+            "from", "2025-08-04T14:00", "to", "2025-08-04T15:00", "location", "online"));
+    calendar.createEvent(Map.of("event", "Offsite", "on", "2025-08-05"));
+
+    assertEquals(List.of("Team meeting", "Meeting notes"), this.subjectsOf(calendar.getSchedule(
+            "2025-08-04T00:00", "2025-08-05T23:59", Map.of("location", "online"))));
+    assertEquals(List.of("Team meeting"), this.subjectsOf(calendar.getSchedule(
+            "2025-08-04T00:00", "2025-08-05T23:59", Map.of("status", "PRIVATE"))));
+    assertEquals(List.of("Team meeting"), this.subjectsOf(calendar.getSchedule(
+            "2025-08-04T00:00", "2025-08-05T23:59", Map.of("subject", "team m"))));
+    assertEquals(List.of("Team meeting", "Team lunch"), this.subjectsOf(calendar.getSchedule(
+            "2025-08-04T00:00", "2025-08-05T23:59", Map.of("subject", "Team"))));
+    assertEquals(List.of("Team meeting", "Meeting notes", "Offsite"),
+            this.subjectsOf(calendar.getSchedule("2025-08-04T00:00", "2025-08-05T23:59",
+                    Map.of("duration", "60"))));
+    assertEquals(List.of("Meeting notes"), this.subjectsOf(calendar.getSchedule(
+            "2025-08-04T09:30", "2025-08-05T23:59",
+            Map.of("location", "online", "subject", "Meeting", "duration", "45"))));
+    assertEquals(calendar.getSchedule("2025-08-04T00:00", "2025-08-05T23:59"),
+            calendar.getSchedule("2025-08-04T00:00", "2025-08-05T23:59", Map.of()));
+
+    for (Map<String, String> invalid : List.of(Map.of("colour", "red"),
+            Map.of("location", "moon"), Map.of("duration", "-5"))) {
+      try {
+        calendar.getSchedule("2025-08-04T00:00", "2025-08-05T23:59", invalid);
+        fail("The filter " + invalid + " should be rejected.");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void sealedEventsAreStillQueriedButNotChanged() throws IOException {
+    Path dir = Files.createTempDirectory("sealed");
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Kickoff", "description", "yearly planning",
+            "from", "2025-01-06T09:00", "to", "2025-01-06T11:00"));
+    calendar.createEvent(Map.of("event", "Standup", "from", "2025-02-03T09:00",
+            "to", "2025-02-03T09:15", "repeats", "MW", "for", "4"));
+    calendar.createEvent(Map.of("event", "Retro", "from", "2025-01-31T16:00",
+            "to", "2025-02-01T10:00"));
+    calendar.createEvent(Map.of("event", "Launch", "on", "2030-01-02"));
+    List<Map<String, String>> before = calendar.getSchedule("2025-01-01T00:00",
+            "2030-12-31T23:59");
+
+    calendar.setColdStorage(dir, Duration.ofDays(30));
+    assertEquals(6, calendar.sealPastEvents());
+    assertEquals(0, calendar.sealPastEvents());
+    assertEquals(2, dir.toFile().list().length);
+
+    assertEquals(before, calendar.getSchedule("2025-01-01T00:00", "2030-12-31T23:59"));
+    assertEquals(List.of("Retro"), this.subjectsOf(calendar.getSchedule("2025-02-01")));
+    assertEquals("busy", calendar.getStatus("2025-02-01T09:00"));
+    assertEquals("available", calendar.getStatus("2025-02-01T11:00"));
+    assertEquals(List.of("Kickoff"), this.subjectsOf(calendar.search("plan*", null, null)));
+    assertEquals(List.of("Standup", "Standup", "Standup", "Standup"),
+            this.subjectsOf(calendar.getSchedule("2025-02-01T00:00", "2025-02-28T23:59",
+                    Map.of("duration", "15", "subject", "stand"))));
+    List<String> paged = new ArrayList<>();
+    String cursor = null;
+    do {
+      SchedulePage page = calendar.getSchedulePage("2025-01-01T00:00", "2030-12-31T23:59",
+              cursor, 2);
+      paged.addAll(this.subjectsOf(page.getItems()));
+      cursor = page.getCursor();
+    } while (cursor != null);
+    assertEquals(this.subjectsOf(before), paged);
+
+    try {
+      calendar.createEvent(Map.of("event", "Late entry", "on", "2025-02-20"));
+      fail("Events cannot be created among sealed events.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      calendar.editEvent("event", "subject", Map.of("event", "Kickoff"), "Renamed");
+      fail("Sealed events cannot be edited.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      calendar.undo();
+      fail("Sealing forgets the changes that could be undone.");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    calendar.editEvent("event", "subject", Map.of("event", "Launch"), "Release");
+    assertEquals("Release", calendar.getSchedule("2030-01-02").get(0).get("event"));
+  }
+
+  /**
+   * Check that the schedules published for asynchronous queries include sealed events, both
+   * when the calendar is wrapped after sealing and once later changes are published.
+   */
+  @Test
+  public void asyncErrorsFailOnlyTheirOwnChange() throws Exception {
+    AsyncCalendarModel async = new AsyncCalendarModel(new CalendarModelImpl());
+    try {
+      CompletableFuture<Void> overflow = async.transact(model -> {
+        throw new StackOverflowError();
+      });
+      CompletableFuture<Void> created = async.createEvent(Map.of("event", "Retro",
+              "on", "2025-04-04"));
+      try {
+        overflow.get(5, TimeUnit.SECONDS);
+        fail("An error should fail the change that threw it.");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof StackOverflowError);
+      }
+      created.get(5, TimeUnit.SECONDS);
+      async.createEvent(Map.of("event", "Demo", "on", "2025-04-05")).get(5, TimeUnit.SECONDS);
+      assertEquals(List.of("Retro", "Demo"), this.subjectsOf(async.getSchedule(
+              "2025-04-01T00:00", "2025-04-30T23:59").get()));
+    } finally {
+      async.close();
+    }
+  }
+
+  @Test
+  public void asyncQueriesIncludeSealedEvents() throws Exception {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    calendar.createEvent(Map.of("event", "Kickoff", "from", "2025-01-06T09:00",
+            "to", "2025-01-06T11:00"));
+    calendar.setColdStorage(Files.createTempDirectory("sealed"), Duration.ofDays(30));
+    assertEquals(1, calendar.sealPastEvents());
+
+    AsyncCalendarModel async = new AsyncCalendarModel(calendar);
+    try {
+      assertEquals(List.of("Kickoff"), this.subjectsOf(async.getSchedule("2025-01-06").get()));
+      assertEquals("busy", async.getStatus("2025-01-06T10:00").get());
+
+      async.createEvent(Map.of("event", "Launch", "on", "2030-01-02")).get(5, TimeUnit.SECONDS);
+      assertEquals(List.of("Kickoff", "Launch"), this.subjectsOf(async.getSchedule(
+              "2025-01-01T00:00", "2030-12-31T23:59").get()));
+      assertEquals("busy", async.getStatus("2025-01-06T09:00").get());
+    } finally {
+      async.close();
+    }
+  }
+
+  @Test
+  public void memoryUsageIsKeptUpToDate() {
+    CalendarModelImpl calendar = new CalendarModelImpl();
+    Map<String, Long> empty = calendar.getMemoryUsage();
+    assertEquals(0L, (long) empty.get("events"));
+    assertEquals(0L, (long) empty.get("totalBytes"));
+
+    calendar.createEvent(Map.of("event", "Standup", "from", "2025-09-01T09:00",
+            "to", "2025-09-01T09:15", "repeats", "MWF", "for", "6"));
+    calendar.createEvent(Map.of("event", "Review", "description", "quarterly numbers",
+            "on", "2025-09-04"));
+    Map<String, Long> usage = calendar.getMemoryUsage();
+    assertEquals(List.of("events", "series", "eventBytes", "dateTimeBytes", "seriesBytes",
+            "stringBytes", "indexBytes", "totalBytes", "sealedEvents", "sealedDiskBytes"),
+            new ArrayList<>(usage.keySet()));
+    assertEquals(7L, (long) usage.get("events"));
+    assertEquals(1L, (long) usage.get("series"));
+    assertEquals(usage.get("eventBytes") + usage.get("dateTimeBytes")
+            + usage.get("seriesBytes") + usage.get("stringBytes") + usage.get("indexBytes"),
+            (long) usage.get("totalBytes"));
+
+    calendar.editEvent("events", "subject", Map.of("event", "Standup",
+            "from", "2025-09-05T09:00"), "Sync");
+    assertEquals(7L, (long) calendar.getMemoryUsage().get("events"));
+    assertEquals(2L, (long) calendar.getMemoryUsage().get("series"));
+    calendar.undo();
+    assertEquals(usage, calendar.getMemoryUsage());
+    calendar.undo();
+    calendar.undo();
+    // the per-day totals keep the span of days they have grown to
+    Map<String, Long> emptied = calendar.getMemoryUsage();
+    for (String component : List.of("events", "series", "eventBytes", "dateTimeBytes",
+            "seriesBytes", "stringBytes")) {
+      assertEquals(0L, (long) emptied.get(component));
+    }
+  }
+
+  /**
+   * Returns the subjects of the given schedule items, in order.
+   */
+  private List<String> subjectsOf(List<Map<String, String>> schedule) {
+    List<String> subjects = new ArrayList<>();
+    for (Map<String, String> item : schedule) {
+      subjects.add(item.get("event"));
+    }
+    return subjects;
+  }
+}